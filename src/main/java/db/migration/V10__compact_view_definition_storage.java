@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package db.migration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Moves the view definition ddl and json state into compact binary columns.
+ * <br>
+ * The values are written in version 1 of the compact encoding: a format version byte,
+ * a compression byte, then either the payload or the varint payload length followed by
+ * the deflated payload.  A list payload is the varint count followed by the varint length
+ * and UTF-8 bytes of each entry.  The encoding is kept here rather than shared with the
+ * application so that the migration is not affected by later changes.
+ */
+public class V10__compact_view_definition_storage extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 256;
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte UNCOMPRESSED = 0;
+    private static final byte DEFLATED = 1;
+    private static final int COMPRESSION_THRESHOLD = 256;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("alter table view_definition add column ddl_data bytea"); //$NON-NLS-1$
+            statement.execute("alter table view_definition add column state_data bytea"); //$NON-NLS-1$
+        }
+        try (Statement select = connection.createStatement();
+                ResultSet rs = select.executeQuery("select id, ddl, state from view_definition"); //$NON-NLS-1$
+                PreparedStatement update = connection.prepareStatement(
+                        "update view_definition set ddl_data = ?, state_data = ? where id = ?")) { //$NON-NLS-1$
+            int count = 0;
+            while (rs.next()) {
+                String state = rs.getString(3);
+                update.setBytes(1, encodeString(rs.getString(2)));
+                update.setBytes(2, state == null ? null : encodeList(getSourcePaths(mapper.readTree(state))));
+                update.setString(3, rs.getString(1));
+                update.addBatch();
+                if (++count % BATCH_SIZE == 0) {
+                    update.executeBatch();
+                }
+            }
+            update.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("alter table view_definition drop column ddl"); //$NON-NLS-1$
+            statement.execute("alter table view_definition drop column state"); //$NON-NLS-1$
+        }
+    }
+
+    static List<String> getSourcePaths(JsonNode state) {
+        List<String> result = new ArrayList<>();
+        for (JsonNode path : state.path("sourcePaths")) { //$NON-NLS-1$
+            result.add(path.asText());
+        }
+        return result;
+    }
+
+    static byte[] encodeString(String value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        return encode(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static byte[] encodeList(List<String> values) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        writeVarInt(payload, values.size());
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(payload, bytes.length);
+            payload.write(bytes);
+        }
+        return encode(payload.toByteArray());
+    }
+
+    private static byte[] encode(byte[] payload) throws IOException {
+        if (payload.length >= COMPRESSION_THRESHOLD) {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            result.write(FORMAT_VERSION);
+            result.write(DEFLATED);
+            writeVarInt(result, payload.length);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+            try (DeflaterOutputStream out = new DeflaterOutputStream(result, deflater)) {
+                out.write(payload);
+            } finally {
+                deflater.end();
+            }
+            //only when smaller than storing the value as is
+            if (result.size() < payload.length) {
+                return result.toByteArray();
+            }
+        }
+        byte[] result = new byte[payload.length + 2];
+        result[0] = FORMAT_VERSION;
+        result[1] = UNCOMPRESSED;
+        System.arraycopy(payload, 0, result, 2, payload.length);
+        return result;
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package db.migration;
+
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Moves the edition export chunks into shared blobs looked up by their content hash,
+ * so that identical exports are stored once.
+ * <br>
+ * The hash is the hex SHA-256 of the export, computed here rather than shared with
+ * the application so that the migration is not affected by later changes.
+ */
+public class V12__content_addressed_exports extends BaseJavaMigration {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            //the hash is not unique, concurrent writers of the same content may each store a blob
+            statement.execute("create table export_blob (id VARCHAR(64) NOT NULL, hash VARCHAR(64) NOT NULL, blob_size bigint NOT NULL, " //$NON-NLS-1$
+                    + "created_at timestamp default CURRENT_TIMESTAMP, PRIMARY KEY (id))"); //$NON-NLS-1$
+            statement.execute("create index export_blob_hash on export_blob (hash)"); //$NON-NLS-1$
+            //chunks are written under the blob id before the blob row is created
+            statement.execute("create table export_blob_chunk (blob_id VARCHAR(64) NOT NULL, seq integer NOT NULL, " //$NON-NLS-1$
+                    + "data bytea NOT NULL, PRIMARY KEY (blob_id, seq))"); //$NON-NLS-1$
+            statement.execute("alter table edition add column export_blob_id VARCHAR(64)"); //$NON-NLS-1$
+            statement.execute("alter table edition add column dv_hash VARCHAR(64)"); //$NON-NLS-1$
+            statement.execute("alter table edition add column vdb_hash VARCHAR(64)"); //$NON-NLS-1$
+        }
+
+        List<String> editionIds = new ArrayList<>();
+        try (Statement select = connection.createStatement();
+                ResultSet rs = select.executeQuery("select distinct edition_id from edition_export_chunk")) { //$NON-NLS-1$
+            while (rs.next()) {
+                editionIds.add(rs.getString(1));
+            }
+        }
+
+        Map<String, String> stored = new HashMap<>();
+        try (PreparedStatement chunks = connection.prepareStatement(
+                    "select data from edition_export_chunk where edition_id = ? order by seq"); //$NON-NLS-1$
+                PreparedStatement insertBlob = connection.prepareStatement(
+                    "insert into export_blob (id, hash, blob_size) values (?, ?, ?)"); //$NON-NLS-1$
+                PreparedStatement copyChunks = connection.prepareStatement(
+                    "insert into export_blob_chunk (blob_id, seq, data) select ?, seq, data from edition_export_chunk where edition_id = ?"); //$NON-NLS-1$
+                PreparedStatement updateEdition = connection.prepareStatement(
+                    "update edition set export_blob_id = ? where id = ?")) { //$NON-NLS-1$
+            for (String editionId : editionIds) {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+                long size = 0;
+                chunks.setString(1, editionId);
+                try (ResultSet rs = chunks.executeQuery()) {
+                    while (rs.next()) {
+                        byte[] data = rs.getBytes(1);
+                        digest.update(data);
+                        size += data.length;
+                    }
+                }
+                String hash = toHex(digest.digest());
+                String blobId = stored.get(hash);
+                if (blobId == null) {
+                    blobId = UUID.randomUUID().toString();
+                    stored.put(hash, blobId);
+                    insertBlob.setString(1, blobId);
+                    insertBlob.setString(2, hash);
+                    insertBlob.setLong(3, size);
+                    insertBlob.executeUpdate();
+                    copyChunks.setString(1, blobId);
+                    copyChunks.setString(2, editionId);
+                    copyChunks.executeUpdate();
+                }
+                updateEdition.setString(1, blobId);
+                updateEdition.setString(2, editionId);
+                updateEdition.executeUpdate();
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table edition_export_chunk"); //$NON-NLS-1$
+            statement.execute("alter table edition add foreign key (export_blob_id) references export_blob(id)"); //$NON-NLS-1$
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            result[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(result);
+    }
+
+}
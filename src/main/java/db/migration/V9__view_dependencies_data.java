@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package db.migration;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.StringTokenizer;
+import java.util.UUID;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Populates the view_dependency table from the source paths
+ * held in the existing view definition state.
+ * <br>
+ * The state and path formats are those at the time of this migration, so the
+ * parsing is kept here rather than shared with the model.
+ */
+public class V9__view_dependencies_data extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        Connection connection = context.getConnection();
+        try (Statement select = connection.createStatement();
+                ResultSet rs = select.executeQuery("select id, dv_name, state from view_definition"); //$NON-NLS-1$
+                PreparedStatement insert = connection.prepareStatement(
+                        "insert into view_dependency (id, view_id, dv_name, source_name, table_name) values (?, ?, ?, ?, ?)")) { //$NON-NLS-1$
+            while (rs.next()) {
+                String state = rs.getString(3);
+                if (state == null) {
+                    continue;
+                }
+                for (JsonNode path : mapper.readTree(state).path("sourcePaths")) { //$NON-NLS-1$
+                    List<String> values = parseSourcePath(path.asText());
+                    if (values == null) {
+                        continue;
+                    }
+                    insert.setString(1, UUID.randomUUID().toString());
+                    insert.setString(2, rs.getString(1));
+                    insert.setString(3, rs.getString(2));
+                    insert.setString(4, values.get(0));
+                    insert.setString(5, values.get(1));
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * @return the values of the key=value segments of a path such as
+     * schema=source/table=name, or null if it has fewer than two segments or is malformed
+     */
+    static List<String> parseSourcePath(String path) throws UnsupportedEncodingException {
+        List<String> values = new ArrayList<>();
+        StringTokenizer segments = new StringTokenizer(path, "/"); //$NON-NLS-1$
+        try {
+            while (segments.hasMoreTokens()) {
+                StringTokenizer keyValue = new StringTokenizer(segments.nextToken(), "="); //$NON-NLS-1$
+                keyValue.nextToken();
+                values.add(URLDecoder.decode(keyValue.nextToken(), "UTF-8")); //$NON-NLS-1$
+            }
+        } catch (NoSuchElementException e) {
+            //not a key=value path
+            return null;
+        }
+        if (values.size() < 2) {
+            return null;
+        }
+        return values;
+    }
+
+}
@@ -16,13 +16,18 @@
 
 package io.syndesis.dv;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import io.syndesis.dv.model.DataVirtualization;
 import io.syndesis.dv.model.Edition;
 import io.syndesis.dv.model.SourceSchema;
 import io.syndesis.dv.model.ViewDefinition;
+import io.syndesis.dv.model.ViewDefinitionSummary;
 
 public interface RepositoryManager {
 
@@ -57,6 +62,22 @@ public interface RepositoryManager {
 
     SourceSchema findSchemaBySourceId(String id);
 
+    /**
+     * Get the ddl of the source schema without loading the entity.  The entity is used
+     * if it's already loaded in the transaction, otherwise the ddl is served from a cache
+     * that is validated against the current entity version.
+     * @param id
+     * @return the ddl or null if there is no schema or ddl
+     */
+    String findSchemaDdlBySourceId(String id);
+
+    /**
+     * Get the name of the source schema without loading the entity
+     * @param id
+     * @return the name or null if there is no schema
+     */
+    String findSchemaNameBySourceId(String id);
+
     boolean deleteSchemaBySourceId(String id);
 
     SourceSchema createSchema(String id, String name, String contents);
@@ -72,6 +93,12 @@ public interface RepositoryManager {
 
     DataVirtualization findDataVirtualizationBySourceId(String sourceId);
 
+    /**
+     * @param sourceId
+     * @return true if there is a virtualization published as the given source
+     */
+    boolean isDataVirtualizationSource(String sourceId);
+
     public Iterable<? extends DataVirtualization> findDataVirtualizations();
 
     boolean deleteDataVirtualization(String virtualizationName);
@@ -91,6 +118,28 @@ public interface RepositoryManager {
 
     List<? extends ViewDefinition> findViewDefinitions(String dvName);
 
+    /**
+     * Find the listing properties of the views without loading the ddl or state
+     * @param dvName
+     * @return
+     */
+    List<? extends ViewDefinitionSummary> findViewDefinitionSummaries(String dvName);
+
+    /**
+     * Find the listing properties of the views of all of the given virtualizations
+     * in a single query
+     * @param dvNames
+     * @return
+     */
+    List<? extends ViewDefinitionSummary> findViewDefinitionSummaries(Collection<String> dvNames);
+
+    /**
+     * Count the views of each of the given virtualizations in a single query
+     * @param dvNames
+     * @return map of virtualization name to view count, virtualizations without views are omitted
+     */
+    Map<String, Long> findViewDefinitionCounts(Collection<String> dvNames);
+
     List<ViewDefinition> saveAllViewDefinitions(
             Iterable<ViewDefinition> entities);
 
@@ -98,6 +147,28 @@ public interface RepositoryManager {
 
     Long deleteViewDefinitions(String virtualization);
 
+    /**
+     * Replace the persisted source table dependencies of the view with
+     * those of its current source paths
+     * @param viewDefinition
+     */
+    void saveViewDependencies(ViewDefinition viewDefinition);
+
+    /**
+     * Find the names of the virtualizations with views that use the given source
+     * @param sourceName
+     * @return
+     */
+    List<String> findDataVirtualizationNamesBySource(String sourceName);
+
+    /**
+     * Find the views that use the given source table
+     * @param sourceName
+     * @param tableName
+     * @return
+     */
+    List<? extends ViewDefinition> findViewDefinitionsBySourceTable(String sourceName, String tableName);
+
     /**
      * Create a new published edition, with an automatically assigned revision number
      * @param virtualization
@@ -112,4 +183,21 @@ public interface RepositoryManager {
     void saveEditionExport(Edition edition, byte[] byteArray);
 
     byte[] findEditionExport(Edition edition);
+
+    /**
+     * Open a stream to replace the export of the edition.  The export is
+     * written in chunks as the stream is filled, and is complete once the
+     * stream is closed.  Must be used within a transaction.
+     * @param edition
+     * @return
+     */
+    OutputStream openEditionExportOutput(Edition edition);
+
+    /**
+     * Open a stream over the export of the edition that reads it a chunk
+     * at a time.  Must be consumed within the calling transaction.
+     * @param edition
+     * @return the stream or null if there is no export
+     */
+    InputStream openEditionExportInput(Edition edition);
 }
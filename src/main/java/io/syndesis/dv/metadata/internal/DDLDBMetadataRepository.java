@@ -28,7 +28,6 @@ import org.teiid.translator.ExecutionFactory;
 import org.teiid.translator.TranslatorException;
 
 import io.syndesis.dv.RepositoryManager;
-import io.syndesis.dv.model.SourceSchema;
 
 @Component
 public class DDLDBMetadataRepository implements MetadataRepository<Object, Object> {
@@ -49,9 +48,10 @@ public class DDLDBMetadataRepository implements MetadataRepository<Object, Objec
     public void loadMetadata(MetadataFactory factory,
             ExecutionFactory<Object, Object> executionFactory, Object connectionFactory,
             String text) throws TranslatorException {
-        SourceSchema schema = repositoryManager.findSchemaBySourceId(text);
-        if (schema != null && schema.getDdl() != null) {
-            factory.parse(new StringReader(schema.getDdl()));
+        //avoids reloading the ddl if it is unchanged
+        String ddl = repositoryManager.findSchemaDdlBySourceId(text);
+        if (ddl != null) {
+            factory.parse(new StringReader(ddl));
         }
     }
 
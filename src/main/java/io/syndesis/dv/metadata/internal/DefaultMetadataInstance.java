@@ -23,15 +23,17 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
 import javax.xml.stream.XMLStreamException;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -58,6 +60,7 @@ import org.teiid.core.types.TransformationException;
 import org.teiid.core.types.basic.ClobToStringTransform;
 import org.teiid.core.util.AccessibleByteArrayOutputStream;
 import org.teiid.core.util.ArgCheck;
+import org.teiid.deployers.CompositeVDB;
 import org.teiid.deployers.VDBLifeCycleListener;
 import org.teiid.deployers.VirtualDatabaseException;
 import org.teiid.dqp.internal.datamgr.ConnectorManagerRepository.ConnectorManagerException;
@@ -191,7 +194,11 @@ public class DefaultMetadataInstance implements MetadataInstance {
                     .collect(Collectors.toList());
         }
 
-        private Set<String> haveErrors;
+        /*
+         * The paths with errors keyed by schema.  Instances are shared via the vdb registry
+         * and outlive the loading of the vdb, so the paths are only kept once it has loaded.
+         */
+        private final Map<String, Set<String>> errorPaths = new ConcurrentHashMap<>();
 
         @Override
         public boolean hasValidationError(String schemaName, String objectName, String childType) {
@@ -199,17 +206,22 @@ public class DefaultMetadataInstance implements MetadataInstance {
             if (m == null) {
                 return false;
             }
-            if (haveErrors == null) {
-                haveErrors = new HashSet<>();
+            Set<String> errors = errorPaths.get(schemaName);
+            if (errors == null) {
+                boolean loading = isLoading();
+                errors = new HashSet<>();
                 for (Message message : m.getMessages()) {
                     if (message.getPath() != null && message.getSeverity() == Severity.ERROR) {
-                        haveErrors.add(message.getPath());
+                        errors.add(message.getPath());
                     }
                 }
+                if (!loading) {
+                    errorPaths.put(schemaName, errors);
+                }
             }
             FullyQualifiedName fqn = new FullyQualifiedName(childType, objectName);
             String path = fqn.toString();
-            return haveErrors.contains(path);
+            return errors.contains(path);
         }
 
     }
@@ -221,12 +233,71 @@ public class DefaultMetadataInstance implements MetadataInstance {
 
     private Admin admin;
 
+    /*
+     * Snapshots of the deployed vdbs keyed by name, maintained by a lifecycle listener
+     * so that the frequent lookups do not need to go through the admin api
+     */
+    private final Map<String, TeiidVdbImpl> vdbs = new ConcurrentHashMap<>();
+
     public DefaultMetadataInstance() {
 
     }
 
     public DefaultMetadataInstance(TeiidServer server) {
         this.server = server;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        this.server.addVDBLifeCycleListener(new VDBLifeCycleListener() {
+            @Override
+            public void added(String name, CompositeVDB vdb) {
+                refreshVdb(vdb.getVDB().getName());
+            }
+
+            @Override
+            public void finishedDeployment(String name, CompositeVDB vdb) {
+                refreshVdb(vdb.getVDB().getName());
+            }
+
+            @Override
+            public void removed(String name, CompositeVDB vdb) {
+                vdbs.remove(vdb.getVDB().getName());
+            }
+        });
+        try {
+            for (VDB vdb : getAdmin().getVDBs()) {
+                refreshVdb(vdb.getName());
+            }
+        } catch (AdminException e) {
+            KLog.getLogger().warn("Could not load the initial vdbs", e); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Update the registry entry for the given vdb from the current
+     * server state.  Listeners may be notified out of order relative
+     * to nested deploy / undeploy calls, so the server is consulted
+     * rather than trusting the event payload.
+     */
+    void refreshVdb(String name) {
+        try {
+            VDB vdb = getAdmin().getVDB(name, DEFAULT_VDB_VERSION);
+            if (vdb == null || vdb.getStatus() == Status.REMOVED) {
+                vdbs.remove(name);
+                return;
+            }
+            vdbs.compute(name, (k, existing) -> {
+                if (existing != null && existing.getVDBMetaData() == vdb) {
+                    return existing;
+                }
+                return new TeiidVdbImpl(vdb);
+            });
+        } catch (AdminException e) {
+            vdbs.remove(name);
+            KLog.getLogger().warn("Could not refresh the vdb " + name, e); //$NON-NLS-1$
+        }
     }
 
     public Admin getAdmin() {
@@ -395,25 +466,17 @@ public class DefaultMetadataInstance implements MetadataInstance {
 
     @Override
     public Collection<TeiidVdb> getVdbs() throws KException {
-        try {
-            Collection<? extends VDB> vdbs = getAdmin().getVDBs();
-            if (vdbs.isEmpty()) {
-                return Collections.emptyList();
-            }
-
-            List<TeiidVdb> teiidVdbs = new ArrayList<>();
-            for (VDB vdb : vdbs) {
-                teiidVdbs.add(new TeiidVdbImpl(vdb));
-            }
-
-            return teiidVdbs;
-        } catch (AdminException ex) {
-            throw handleError(ex);
-        }
+        return Collections.unmodifiableCollection(vdbs.values());
     }
 
     @Override
     public TeiidVdbImpl getVdb(String name) throws KException {
+        TeiidVdbImpl result = vdbs.get(name);
+        if (result != null) {
+            return result;
+        }
+        //not yet registered - fall back to the server, but don't cache
+        //as that could race with the listener removal
         try {
             VDB vdb = getAdmin().getVDB(name, DEFAULT_VDB_VERSION);
             if (vdb == null) {
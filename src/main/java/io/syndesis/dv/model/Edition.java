@@ -42,6 +42,12 @@ public class Edition
     private String dataVirtualizationName;
     @CreationTimestamp
     private Timestamp createdAt;
+    @Column(name = "export_blob_id")
+    private String exportBlobId;
+    @Column(name = "dv_hash")
+    private String dvHash;
+    @Column(name = "vdb_hash")
+    private String vdbHash;
 
     public Edition() {
 
@@ -79,4 +85,37 @@ public class Edition
         return id;
     }
 
+    /**
+     * @return the id of the export zip blob, which may be shared with other editions
+     */
+    public String getExportBlobId() {
+        return exportBlobId;
+    }
+
+    public void setExportBlobId(String exportBlobId) {
+        this.exportBlobId = exportBlobId;
+    }
+
+    /**
+     * @return the content hash of the exported views and sources
+     */
+    public String getDvHash() {
+        return dvHash;
+    }
+
+    public void setDvHash(String dvHash) {
+        this.dvHash = dvHash;
+    }
+
+    /**
+     * @return the content hash of the published vdb xml
+     */
+    public String getVdbHash() {
+        return vdbHash;
+    }
+
+    public void setVdbHash(String vdbHash) {
+        this.vdbHash = vdbHash;
+    }
+
 }
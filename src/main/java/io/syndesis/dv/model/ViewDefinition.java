@@ -19,12 +19,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
+import javax.persistence.AttributeConverter;
 import javax.persistence.Column;
 import javax.persistence.Convert;
 import javax.persistence.Entity;
 
 import org.hibernate.annotations.DynamicUpdate;
-import io.syndesis.dv.repository.JpaConverterJson;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -32,6 +32,9 @@ import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
+import io.syndesis.dv.repository.CompactEncoding;
+import io.syndesis.dv.repository.JpaConverterCompressedString;
+
 /**
  * Represents the configuration of a view editor state
  */
@@ -40,7 +43,7 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 @JsonInclude(Include.NON_NULL)
 @JsonPropertyOrder(alphabetic = true)
 @DynamicUpdate
-public class ViewDefinition extends BaseEntity {
+public class ViewDefinition extends BaseEntity implements ViewDefinitionSummary {
 
     public static class State {
         private List<String> sourcePaths = new ArrayList<>(1);
@@ -66,13 +69,31 @@ public class ViewDefinition extends BaseEntity {
         }
     }
 
-    public static class ViewDefinitionStateConvertor extends JpaConverterJson<State> {
+    /**
+     * Stores the state as a {@link CompactEncoding} list of the source paths
+     */
+    public static class ViewDefinitionStateConvertor implements AttributeConverter<State, byte[]> {
+        @Override
+        public byte[] convertToDatabaseColumn(State attribute) {
+            if (attribute == null) {
+                return null;
+            }
+            return CompactEncoding.encodeList(attribute.sourcePaths);
+        }
+
         @Override
-        public Class<State> targetClass() {
-            return State.class;
+        public State convertToEntityAttribute(byte[] dbData) {
+            if (dbData == null) {
+                return null;
+            }
+            State state = new State();
+            state.sourcePaths = CompactEncoding.decodeList(dbData);
+            return state;
         }
     }
 
+    @Column(name = "ddl_data")
+    @Convert(converter = JpaConverterCompressedString.class)
     private String ddl;
     @Column(name = "dv_name")
     private String dataVirtualizationName;
@@ -83,6 +104,7 @@ public class ViewDefinition extends BaseEntity {
     private boolean parsable;
 
     @JsonIgnore //for non-Entity serialization, the getters/setters will be used
+    @Column(name = "state_data")
     @Convert(converter = ViewDefinitionStateConvertor.class)
     private State state = new State();
 
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.model;
+
+/**
+ * The listing properties of a {@link ViewDefinition}, which may be
+ * loaded as a projection without the ddl and state
+ */
+public interface ViewDefinitionSummary {
+
+    String getId();
+
+    String getName();
+
+    String getDescription();
+
+    String getDataVirtualizationName();
+
+    boolean isParsable();
+
+}
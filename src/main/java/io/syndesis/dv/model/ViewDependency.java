@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.syndesis.dv.model;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.springframework.data.util.Pair;
+
+import io.syndesis.dv.utils.PathUtils;
+
+/**
+ * A persisted link from a view to one of the source tables it uses.
+ * Derived from the {@link ViewDefinition} source paths so that the
+ * usage of a source can be found without loading each view.
+ */
+@Entity
+public class ViewDependency {
+
+    @Id
+    @GeneratedValue(generator = "uuid2")
+    @GenericGenerator(name = "uuid2", strategy = "org.hibernate.id.UUIDGenerator")
+    private String id;
+    @Column(name = "view_id")
+    private String viewDefinitionId;
+    @Column(name = "dv_name")
+    private String dataVirtualizationName;
+    private String sourceName;
+    private String tableName;
+
+    protected ViewDependency() {
+
+    }
+
+    public ViewDependency(ViewDefinition viewDefinition, String sourceName, String tableName) {
+        this.viewDefinitionId = viewDefinition.getId();
+        this.dataVirtualizationName = viewDefinition.getDataVirtualizationName();
+        this.sourceName = sourceName;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Parse a source path of the form schema=x/table=y
+     * @param sourcePath
+     * @return the source and table name pair, or null if the path is not a table path
+     */
+    public static Pair<String, String> parseSourcePath(String sourcePath) {
+        List<Pair<String, String>> options = null;
+        try {
+            options = PathUtils.getOptions(sourcePath);
+        } catch (NoSuchElementException e) {
+            //not a key=value path
+            return null;
+        }
+        if (options.size() < 2) {
+            return null;
+        }
+        return Pair.of(options.get(0).getSecond(), options.get(1).getSecond());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getViewDefinitionId() {
+        return viewDefinitionId;
+    }
+
+    public String getDataVirtualizationName() {
+        return dataVirtualizationName;
+    }
+
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+}
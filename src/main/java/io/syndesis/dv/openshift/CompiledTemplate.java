@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.openshift;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.teiid.core.util.ObjectConverterUtil;
+
+/**
+ * A text template split once into literal and variable segments, so that
+ * rendering is a single pass over the segments.
+ * <br>
+ * A variable is a name of letters, digits, '.', '-' or '_' between the open and close
+ * delimiters.  A variable without a value is rendered as is.
+ */
+final class CompiledTemplate {
+
+    static final String MUSTACHE_OPEN = "{{"; //$NON-NLS-1$
+    static final String MUSTACHE_CLOSE = "}}"; //$NON-NLS-1$
+    static final String COMMENT_OPEN = "<!--"; //$NON-NLS-1$
+    static final String COMMENT_CLOSE = "-->"; //$NON-NLS-1$
+
+    private static final Map<String, CompiledTemplate> RESOURCES = new ConcurrentHashMap<>();
+
+    /**
+     * literals are at even indexes, variable names at odd indexes
+     */
+    private final String[] segments;
+    private final String open;
+    private final String close;
+    private final int literalLength;
+
+    CompiledTemplate(String text, String open, String close) {
+        this.open = open;
+        this.close = close;
+        List<String> parts = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int pos = 0;
+        while (true) {
+            int start = text.indexOf(open, pos);
+            int end = start < 0 ? -1 : text.indexOf(close, start + open.length());
+            if (end < 0) {
+                literal.append(text, pos, text.length());
+                break;
+            }
+            String name = text.substring(start + open.length(), end);
+            if (!isName(name)) {
+                //not a variable, keep the open delimiter and continue after it
+                literal.append(text, pos, start + open.length());
+                pos = start + open.length();
+                continue;
+            }
+            literal.append(text, pos, start);
+            parts.add(literal.toString());
+            parts.add(name);
+            literal.setLength(0);
+            pos = end + close.length();
+        }
+        parts.add(literal.toString());
+        this.segments = parts.toArray(new String[parts.size()]);
+        int length = 0;
+        for (int i = 0; i < segments.length; i += 2) {
+            length += segments[i].length();
+        }
+        this.literalLength = length;
+    }
+
+    private static boolean isName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '.' && c != '-' && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the compiled form of the classpath resource, which is loaded only once
+     */
+    static CompiledTemplate forResource(String resource, String open, String close) throws IOException {
+        CompiledTemplate result = RESOURCES.get(resource);
+        if (result == null) {
+            try (InputStream is = CompiledTemplate.class.getClassLoader().getResourceAsStream(resource)) {
+                if (is == null) {
+                    throw new IOException("Template not found " + resource); //$NON-NLS-1$
+                }
+                result = new CompiledTemplate(new String(ObjectConverterUtil.convertToByteArray(is), StandardCharsets.UTF_8),
+                        open, close);
+            }
+            RESOURCES.putIfAbsent(resource, result);
+        }
+        return result;
+    }
+
+    String render(Map<String, String> values) {
+        int length = literalLength;
+        for (int i = 1; i < segments.length; i += 2) {
+            String value = values.get(segments[i]);
+            length += value == null ? segments[i].length() + open.length() + close.length() : value.length();
+        }
+        StringBuilder result = new StringBuilder(length);
+        for (int i = 0; i < segments.length; i++) {
+            if (i % 2 == 0) {
+                result.append(segments[i]);
+                continue;
+            }
+            String value = values.get(segments[i]);
+            if (value == null) {
+                result.append(open).append(segments[i]).append(close);
+            } else {
+                result.append(value);
+            }
+        }
+        return result.toString();
+    }
+
+}
@@ -43,6 +43,7 @@ public class PublishConfiguration implements StringConstants {
     // cpu units
     private int cpuUnits = 500; // 100m is 0.1 of CPU, at 500m we have 1/2 CPU as default
     private long publishedRevision;
+    private int priority;
 
     public String getBuildImageStream() {
         String stream = System.getenv("BUILD_IMAGE_STREAM");
@@ -178,5 +179,16 @@ public class PublishConfiguration implements StringConstants {
         this.publishedRevision = publishedRevision;
     }
 
+    /**
+     * @return the priority, higher first, when the publish queue is ordered by priority
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
 }
 
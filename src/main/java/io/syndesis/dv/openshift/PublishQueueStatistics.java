@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.openshift;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * A snapshot of the publish queue
+ */
+@JsonSerialize(as = PublishQueueStatistics.class)
+public class PublishQueueStatistics {
+
+    private int pending;
+    private int running;
+    private int maxConcurrent;
+    private long submitted;
+    private long superseded;
+    private long completed;
+    private long averageWaitMillis;
+    private long maxWaitMillis;
+    private long oldestPendingMillis;
+
+    public int getPending() {
+        return pending;
+    }
+
+    public void setPending(int pending) {
+        this.pending = pending;
+    }
+
+    public int getRunning() {
+        return running;
+    }
+
+    public void setRunning(int running) {
+        this.running = running;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public void setSubmitted(long submitted) {
+        this.submitted = submitted;
+    }
+
+    public long getSuperseded() {
+        return superseded;
+    }
+
+    public void setSuperseded(long superseded) {
+        this.superseded = superseded;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public long getAverageWaitMillis() {
+        return averageWaitMillis;
+    }
+
+    public void setAverageWaitMillis(long averageWaitMillis) {
+        this.averageWaitMillis = averageWaitMillis;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public long getOldestPendingMillis() {
+        return oldestPendingMillis;
+    }
+
+    public void setOldestPendingMillis(long oldestPendingMillis) {
+        this.oldestPendingMillis = oldestPendingMillis;
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.openshift;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import io.syndesis.dv.openshift.BuildStatus.Status;
+
+/**
+ * Limits how many publish configurations run at the same time.
+ * <br>
+ * Work waits in a queue ordered either by submission or by priority, then submission.
+ * At most one configuration runs for a given virtualization, and an optional limit
+ * applies to each namespace.  A newer publish of a virtualization replaces any
+ * of its work that is still waiting.
+ */
+public class PublishScheduler {
+
+    public enum Ordering {
+        FIFO,
+        PRIORITY
+    }
+
+    private static class Task {
+        final BuildStatus work;
+        final Runnable runnable;
+        final long sequence;
+        final long queued = System.currentTimeMillis();
+
+        Task(BuildStatus work, Runnable runnable, long sequence) {
+            this.work = work;
+            this.runnable = runnable;
+            this.sequence = sequence;
+        }
+
+        int getPriority() {
+            PublishConfiguration config = work.getPublishConfiguration();
+            return config == null ? 0 : config.getPriority();
+        }
+    }
+
+    private final Executor executor;
+    private final int maxConcurrent;
+    private final int maxPerNamespace;
+    private final Comparator<Task> order;
+
+    private final List<Task> pending = new ArrayList<>();
+    private final Set<String> running = new HashSet<>();
+    private final Map<String, Integer> runningPerNamespace = new HashMap<>();
+
+    private long sequence;
+    private long submitted;
+    private long superseded;
+    private long completed;
+    private long totalWaitMillis;
+    private long maxWaitMillis;
+
+    /**
+     * @param executor to run the work on, which should have at least maxConcurrent threads
+     * @param maxConcurrent the maximum number of running configurations
+     * @param maxPerNamespace the maximum number of running configurations per namespace, or 0 for no limit
+     * @param ordering
+     */
+    public PublishScheduler(Executor executor, int maxConcurrent, int maxPerNamespace, Ordering ordering) {
+        this.executor = executor;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxPerNamespace = maxPerNamespace;
+        Comparator<Task> bySequence = Comparator.comparingLong(t -> t.sequence);
+        if (ordering == Ordering.PRIORITY) {
+            this.order = Comparator.<Task>comparingInt(t -> -t.getPriority()).thenComparing(bySequence);
+        } else {
+            this.order = bySequence;
+        }
+    }
+
+    /**
+     * Queue the runnable to configure the work.  Any waiting work for the same
+     * virtualization is cancelled.
+     */
+    public synchronized void submit(BuildStatus work, Runnable runnable) {
+        for (Iterator<Task> iter = pending.iterator(); iter.hasNext();) {
+            Task task = iter.next();
+            if (task.work.getOpenShiftName().equals(work.getOpenShiftName())) {
+                iter.remove();
+                superseded++;
+                task.work.setStatus(Status.CANCELLED);
+                task.work.setStatusMessage("Superseded by a newer publish request");
+                task.work.setLastUpdated();
+            }
+        }
+        queue(work, runnable);
+    }
+
+    /**
+     * Queue the runnable to continue configuring the work after waiting on OpenShift.
+     * Unlike a new publish, it does not cancel any waiting work.
+     */
+    public synchronized void resume(BuildStatus work, Runnable runnable) {
+        queue(work, runnable);
+    }
+
+    private void queue(BuildStatus work, Runnable runnable) {
+        submitted++;
+        pending.add(new Task(work, runnable, sequence++));
+        pending.sort(order);
+        dispatch();
+    }
+
+    private void dispatch() {
+        for (Iterator<Task> iter = pending.iterator(); iter.hasNext() && running.size() < maxConcurrent;) {
+            Task task = iter.next();
+            String namespace = task.work.getNamespace();
+            if (running.contains(task.work.getOpenShiftName())
+                    || (maxPerNamespace > 0 && runningPerNamespace.getOrDefault(namespace, 0) >= maxPerNamespace)) {
+                continue;
+            }
+            iter.remove();
+            running.add(task.work.getOpenShiftName());
+            runningPerNamespace.merge(namespace, 1, Integer::sum);
+            long wait = System.currentTimeMillis() - task.queued;
+            totalWaitMillis += wait;
+            maxWaitMillis = Math.max(maxWaitMillis, wait);
+            executor.execute(() -> {
+                try {
+                    task.runnable.run();
+                } finally {
+                    completed(task);
+                }
+            });
+        }
+        int position = 1;
+        for (Task task : pending) {
+            task.work.setStatusMessage("Queued for configuration, position " + position++ + " of " + pending.size());
+        }
+    }
+
+    private synchronized void completed(Task task) {
+        completed++;
+        running.remove(task.work.getOpenShiftName());
+        runningPerNamespace.computeIfPresent(task.work.getNamespace(), (k, v) -> v == 1 ? null : v - 1);
+        dispatch();
+    }
+
+    public synchronized PublishQueueStatistics getStatistics() {
+        PublishQueueStatistics stats = new PublishQueueStatistics();
+        stats.setPending(pending.size());
+        stats.setRunning(running.size());
+        stats.setMaxConcurrent(maxConcurrent);
+        stats.setSubmitted(submitted);
+        stats.setSuperseded(superseded);
+        stats.setCompleted(completed);
+        long started = submitted - superseded - pending.size();
+        stats.setAverageWaitMillis(started == 0 ? 0 : totalWaitMillis / started);
+        stats.setMaxWaitMillis(maxWaitMillis);
+        long now = System.currentTimeMillis();
+        stats.setOldestPendingMillis(pending.stream().mapToLong(t -> now - t.queued).max().orElse(0));
+        return stats;
+    }
+
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.openshift;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.ReplicationController;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.openshift.api.model.Build;
+import io.fabric8.openshift.api.model.DeploymentConfig;
+import io.fabric8.openshift.api.model.Route;
+import io.fabric8.openshift.client.OpenShiftClient;
+
+/**
+ * An in memory copy of the resources labeled with an application, that is the resources
+ * of the virtualizations.
+ * <br>
+ * Each kind of resource is listed once and then kept current by a watch.  All kinds are
+ * listed again periodically in case an event was missed, and a kind whose watch closes
+ * is not used until it has been listed again.  As a list may be older than the events
+ * received while it was made, those events take precedence over it.
+ * <br>
+ * Reads fall back to OpenShift when the kind is not synchronized or the resource
+ * is not cached, as it may have just been created.
+ */
+class ResourceCache {
+
+    private static final Log LOGGER = LogFactory.getLog(ResourceCache.class);
+
+    @FunctionalInterface
+    interface WatchFactory<T> {
+        Watch watch(OpenShiftClient client, String namespace, Watcher<T> watcher);
+    }
+
+    /**
+     * The cached resources of a single kind by name
+     */
+    final class Kind<T extends HasMetadata> {
+        private final String type;
+        private final BiFunction<OpenShiftClient, String, List<T>> lister;
+        private final WatchFactory<T> watchFactory;
+        private final Map<String, T> items = new ConcurrentHashMap<>();
+        /**
+         * The names changed by events since the last list was started,
+         * and the resources deleted
+         */
+        private final Set<String> changed = ConcurrentHashMap.newKeySet();
+        private final Map<String, T> deleted = new ConcurrentHashMap<>();
+        private volatile boolean synced;
+        private volatile long lastSync;
+        private Watch watch;
+
+        Kind(String type, BiFunction<OpenShiftClient, String, List<T>> lister, WatchFactory<T> watchFactory) {
+            this.type = type;
+            this.lister = lister;
+            this.watchFactory = watchFactory;
+        }
+
+        /**
+         * Watch, if not already, and then list all of the resources
+         */
+        private void sync(OpenShiftClient client) {
+            try {
+                if (watch == null) {
+                    watch = watchFactory.watch(client, namespace, new KindWatcher());
+                }
+                //earlier events are reflected in the list
+                changed.clear();
+                deleted.clear();
+                Set<String> names = new HashSet<>();
+                for (T item : lister.apply(client, namespace)) {
+                    String name = item.getMetadata().getName();
+                    names.add(name);
+                    items.compute(name, (k, existing) -> {
+                        T removed = deleted.get(name);
+                        if (removed != null && isNewer(removed, item)) {
+                            //deleted after it was listed
+                            return existing;
+                        }
+                        return existing == null || isNewer(item, existing) ? item : existing;
+                    });
+                }
+                //keep what was created after it was listed
+                items.keySet().removeIf(name -> !names.contains(name) && !changed.contains(name));
+                lastSync = System.currentTimeMillis();
+                synced = true;
+                resyncs.incrementAndGet();
+            } catch (KubernetesClientException e) {
+                LOGGER.warn("Could not synchronize the cached " + type + ": " + e.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+                synced = false;
+            }
+        }
+
+        private void update(T item) {
+            items.merge(item.getMetadata().getName(), item, (existing, candidate) -> {
+                return isNewer(candidate, existing) ? candidate : existing;
+            });
+        }
+
+        private void remove(T item) {
+            String name = item.getMetadata().getName();
+            items.compute(name, (k, existing) -> {
+                //with the removal, so that a concurrent list sees either both or neither
+                deleted.put(name, item);
+                return null;
+            });
+        }
+
+        private void close() {
+            synced = false;
+            if (watch != null) {
+                try {
+                    watch.close();
+                } catch (KubernetesClientException e) {
+                    LOGGER.debug("Could not close watch: " + e.getMessage()); //$NON-NLS-1$
+                }
+                watch = null;
+            }
+            items.clear();
+            changed.clear();
+            deleted.clear();
+        }
+
+        private class KindWatcher implements Watcher<T> {
+            @Override
+            public void eventReceived(Action action, T resource) {
+                events.incrementAndGet();
+                changed.add(resource.getMetadata().getName());
+                if (action == Action.DELETED) {
+                    remove(resource);
+                } else if (action == Action.ADDED || action == Action.MODIFIED) {
+                    update(resource);
+                }
+                String application = getApplication(resource);
+                if (application != null) {
+                    listener.accept(application);
+                }
+            }
+
+            @Override
+            public void onClose(KubernetesClientException cause) {
+                if (cause == null) {
+                    return;
+                }
+                //typically an expired resource version - watch and list again
+                LOGGER.debug("Watch of " + type + " closed: " + cause.getMessage()); //$NON-NLS-1$ //$NON-NLS-2$
+                synchronized (ResourceCache.this) {
+                    synced = false;
+                    watch = null;
+                    if (started) {
+                        watchRestarts.incrementAndGet();
+                        executor.execute(() -> restart(Kind.this));
+                    }
+                }
+            }
+        }
+    }
+
+    private final List<Kind<?>> kinds = new CopyOnWriteArrayList<>();
+
+    final Kind<Build> builds = addKind("builds", //$NON-NLS-1$
+            (c, ns) -> c.builds().inNamespace(ns).withLabel(TeiidOpenShiftClient.APPLICATION_LABEL).list().getItems(),
+            (c, ns, w) -> c.builds().inNamespace(ns).withLabel(TeiidOpenShiftClient.APPLICATION_LABEL).watch(w));
+    final Kind<DeploymentConfig> deploymentConfigs = addKind("deployment configs", //$NON-NLS-1$
+            (c, ns) -> c.deploymentConfigs().inNamespace(ns).withLabel(TeiidOpenShiftClient.APPLICATION_LABEL).list().getItems(),
+            (c, ns, w) -> c.deploymentConfigs().inNamespace(ns).withLabel(TeiidOpenShiftClient.APPLICATION_LABEL).watch(w));
+    final Kind<Service> services = addKind("services", //$NON-NLS-1$
+            (c, ns) -> c.services().inNamespace(ns).withLabel(TeiidOpenShiftClient.APPLICATION_LABEL).list().getItems(),
+            (c, ns, w) -> c.services().inNamespace(ns).withLabel(TeiidOpenShiftClient.APPLICATION_LABEL).watch(w));
+    final Kind<Route> routes = addKind("routes", //$NON-NLS-1$
+            (c, ns) -> c.routes().inNamespace(ns).withLabel(TeiidOpenShiftClient.APPLICATION_LABEL).list().getItems(),
+            (c, ns, w) -> c.routes().inNamespace(ns).withLabel(TeiidOpenShiftClient.APPLICATION_LABEL).watch(w));
+    final Kind<ReplicationController> replicationControllers = addKind("replication controllers", //$NON-NLS-1$
+            (c, ns) -> c.replicationControllers().inNamespace(ns).withLabel(TeiidOpenShiftClient.APPLICATION_LABEL).list().getItems(),
+            (c, ns, w) -> c.replicationControllers().inNamespace(ns).withLabel(TeiidOpenShiftClient.APPLICATION_LABEL).watch(w));
+
+    private final Supplier<OpenShiftClient> clients;
+    private final ScheduledExecutorService executor;
+    private final long resyncMillis;
+    private final Consumer<String> listener;
+
+    private volatile String namespace;
+    private volatile boolean started;
+    private ScheduledFuture<?> resync;
+
+    private final AtomicLong apiCallsAvoided = new AtomicLong();
+    private final AtomicLong apiCalls = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+    private final AtomicLong watchRestarts = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+
+    /**
+     * @param clients supplies the client to use for the lists and watches
+     * @param executor runs the periodic and restart synchronizations
+     * @param resyncMillis how often all resources are listed again
+     * @param listener notified with the application of each changed resource, after the cache is updated
+     */
+    ResourceCache(Supplier<OpenShiftClient> clients, ScheduledExecutorService executor, long resyncMillis,
+            Consumer<String> listener) {
+        this.clients = clients;
+        this.executor = executor;
+        this.resyncMillis = resyncMillis;
+        this.listener = listener;
+    }
+
+    /**
+     * Add a kind of resource to cache, which must be done before starting
+     */
+    <T extends HasMetadata> Kind<T> addKind(String type, BiFunction<OpenShiftClient, String, List<T>> lister,
+            WatchFactory<T> watchFactory) {
+        Kind<T> kind = new Kind<>(type, lister, watchFactory);
+        kinds.add(kind);
+        return kind;
+    }
+
+    /**
+     * Start caching the resources of the namespace, if not already started
+     */
+    synchronized void start(String namespace) {
+        if (started) {
+            return;
+        }
+        this.namespace = namespace;
+        this.started = true;
+        OpenShiftClient client = clients.get();
+        for (Kind<?> kind : kinds) {
+            kind.sync(client);
+        }
+        resync = executor.scheduleWithFixedDelay(this::resync, resyncMillis, resyncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        started = false;
+        if (resync != null) {
+            resync.cancel(false);
+            resync = null;
+        }
+        for (Kind<?> kind : kinds) {
+            kind.close();
+        }
+    }
+
+    synchronized void resync() {
+        if (!started) {
+            return;
+        }
+        OpenShiftClient client = clients.get();
+        for (Kind<?> kind : kinds) {
+            kind.sync(client);
+        }
+    }
+
+    private synchronized void restart(Kind<?> kind) {
+        if (started) {
+            kind.sync(clients.get());
+        }
+    }
+
+    boolean isSynced() {
+        if (!started) {
+            return false;
+        }
+        for (Kind<?> kind : kinds) {
+            if (!kind.synced) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the named resource from the cache, otherwise from OpenShift
+     */
+    <T extends HasMetadata> T get(Kind<T> kind, String namespace, String name, Supplier<T> api) {
+        if (kind.synced && namespace.equals(this.namespace)) {
+            T item = kind.items.get(name);
+            if (item != null) {
+                apiCallsAvoided.incrementAndGet();
+                return item;
+            }
+        }
+        apiCalls.incrementAndGet();
+        return api.get();
+    }
+
+    /**
+     * Get the resources of the application, or of all applications when null, from the cache
+     * if the kind is synchronized, otherwise from OpenShift
+     */
+    <T extends HasMetadata> List<T> list(Kind<T> kind, String namespace, String application, Supplier<List<T>> api) {
+        if (kind.synced && namespace.equals(this.namespace)) {
+            apiCallsAvoided.incrementAndGet();
+            List<T> result = new ArrayList<>();
+            for (T item : kind.items.values()) {
+                if (application == null || application.equals(getApplication(item))) {
+                    result.add(item);
+                }
+            }
+            return result;
+        }
+        apiCalls.incrementAndGet();
+        return api.get();
+    }
+
+    /**
+     * Remove the resources of the application, which are being deleted, so that later
+     * reads go to OpenShift until the watches report the resources again
+     */
+    void evict(String application) {
+        for (Kind<?> kind : kinds) {
+            kind.items.values().removeIf(item -> application.equals(getApplication(item)));
+        }
+    }
+
+    ResourceCacheStatistics getStatistics() {
+        ResourceCacheStatistics stats = new ResourceCacheStatistics();
+        stats.setSynced(isSynced());
+        long oldest = Long.MAX_VALUE;
+        int size = 0;
+        for (Kind<?> kind : kinds) {
+            size += kind.items.size();
+            oldest = Math.min(oldest, kind.lastSync);
+        }
+        stats.setCachedResources(size);
+        if (started && oldest > 0) {
+            stats.setStalenessMillis(System.currentTimeMillis() - oldest);
+        }
+        stats.setApiCallsAvoided(apiCallsAvoided.get());
+        stats.setApiCalls(apiCalls.get());
+        stats.setResyncs(resyncs.get());
+        stats.setWatchRestarts(watchRestarts.get());
+        stats.setEvents(events.get());
+        return stats;
+    }
+
+    private static String getApplication(HasMetadata item) {
+        Map<String, String> labels = item.getMetadata().getLabels();
+        return labels == null ? null : labels.get(TeiidOpenShiftClient.APPLICATION_LABEL);
+    }
+
+    /**
+     * Resource versions are opaque, but are numeric in practice
+     */
+    static boolean isNewer(HasMetadata candidate, HasMetadata existing) {
+        try {
+            return Long.parseLong(candidate.getMetadata().getResourceVersion())
+                    >= Long.parseLong(existing.getMetadata().getResourceVersion());
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+}
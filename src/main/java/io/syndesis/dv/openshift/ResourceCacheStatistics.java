@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.openshift;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * A snapshot of the cache of openshift resources.  The staleness is the time since
+ * the oldest full list of a kind of resource, which bounds the age of the cache if a
+ * watch event was missed.
+ */
+@JsonSerialize(as = ResourceCacheStatistics.class)
+public class ResourceCacheStatistics {
+
+    private boolean synced;
+    private int cachedResources;
+    private long apiCallsAvoided;
+    private long apiCalls;
+    private long resyncs;
+    private long watchRestarts;
+    private long events;
+    private long stalenessMillis;
+
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public void setSynced(boolean synced) {
+        this.synced = synced;
+    }
+
+    public int getCachedResources() {
+        return cachedResources;
+    }
+
+    public void setCachedResources(int cachedResources) {
+        this.cachedResources = cachedResources;
+    }
+
+    public long getApiCallsAvoided() {
+        return apiCallsAvoided;
+    }
+
+    public void setApiCallsAvoided(long apiCallsAvoided) {
+        this.apiCallsAvoided = apiCallsAvoided;
+    }
+
+    public long getApiCalls() {
+        return apiCalls;
+    }
+
+    public void setApiCalls(long apiCalls) {
+        this.apiCalls = apiCalls;
+    }
+
+    public long getResyncs() {
+        return resyncs;
+    }
+
+    public void setResyncs(long resyncs) {
+        this.resyncs = resyncs;
+    }
+
+    public long getWatchRestarts() {
+        return watchRestarts;
+    }
+
+    public void setWatchRestarts(long watchRestarts) {
+        this.watchRestarts = watchRestarts;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public void setEvents(long events) {
+        this.events = events;
+    }
+
+    public long getStalenessMillis() {
+        return stalenessMillis;
+    }
+
+    public void setStalenessMillis(long stalenessMillis) {
+        this.stalenessMillis = stalenessMillis;
+    }
+
+}
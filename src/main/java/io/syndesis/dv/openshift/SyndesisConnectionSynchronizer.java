@@ -117,7 +117,7 @@ public class SyndesisConnectionSynchronizer {
     public void addConnection(DefaultSyndesisDataSource sds, boolean update) {
         // this is avoid circular creation of the virtualization connection that is
         // published through syndesis
-        if (repositoryManager.findDataVirtualizationBySourceId(sds.getSyndesisConnectionId()) != null) {
+        if (repositoryManager.isDataVirtualizationSource(sds.getSyndesisConnectionId())) {
             return;
         }
 
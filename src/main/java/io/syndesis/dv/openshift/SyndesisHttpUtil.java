@@ -20,6 +20,7 @@ import java.io.InputStream;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Map;
 
 import javax.net.ssl.SSLContext;
 
@@ -31,6 +32,7 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.AbstractResponseHandler;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -102,6 +104,28 @@ public class SyndesisHttpUtil {
         }
     }
 
+    public static InputStream executePOST(String url, byte[] payload, Map<String, String> headers) {
+        try {
+            CloseableHttpClient client = buildHttpClient();
+            HttpPost request = new HttpPost(url);
+            addDefaultHeaders(request);
+            headers.forEach(request::setHeader);
+            request.setEntity(new ByteArrayEntity(payload));
+            HttpResponse response = client.execute(request);
+            ResponseHandler<InputStream> handler = new AbstractResponseHandler<InputStream>(){
+                @Override
+                public InputStream handleEntity(final HttpEntity entity) throws IOException {
+                    return entity.getContent();
+                }
+            };
+            InputStream result = handler.handleResponse(response);
+            return result;
+        } catch (UnsupportedOperationException | IOException | KeyManagementException | NoSuchAlgorithmException
+                | KeyStoreException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public static InputStream executeDELETE(String url) {
         try {
             CloseableHttpClient client = buildHttpClient();
@@ -15,20 +15,21 @@
  */
 package io.syndesis.dv.openshift;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileWriter;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.io.PrintWriter;
-import java.io.Reader;
-import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Calendar;
 import java.util.Collection;
@@ -37,27 +38,33 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.UUID;
 import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.annotation.PreDestroy;
 import javax.persistence.PersistenceException;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.jboss.shrinkwrap.api.GenericArchive;
-import org.jboss.shrinkwrap.api.ShrinkWrap;
-import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
-import org.jboss.shrinkwrap.api.asset.StringAsset;
-import org.jboss.shrinkwrap.api.exporter.TarExporter;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
@@ -65,6 +72,7 @@ import org.teiid.adminapi.Model;
 import org.teiid.adminapi.impl.ModelMetaData;
 import org.teiid.adminapi.impl.SourceMappingMetadata;
 import org.teiid.adminapi.impl.VDBMetaData;
+import org.teiid.adminapi.impl.VDBMetadataParser;
 import org.teiid.core.util.AccessibleByteArrayOutputStream;
 import org.teiid.core.util.ObjectConverterUtil;
 
@@ -73,10 +81,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.fabric8.kubernetes.api.KubernetesHelper;
 import io.fabric8.kubernetes.api.builds.Builds;
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.Container;
 import io.fabric8.kubernetes.api.model.ContainerPort;
 import io.fabric8.kubernetes.api.model.EnvVar;
 import io.fabric8.kubernetes.api.model.EnvVarBuilder;
 import io.fabric8.kubernetes.api.model.EnvVarSourceBuilder;
+import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.ObjectMeta;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.Quantity;
@@ -90,13 +102,11 @@ import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.internal.PodOperationsImpl;
 import io.fabric8.openshift.api.model.Build;
 import io.fabric8.openshift.api.model.BuildConfig;
-import io.fabric8.openshift.api.model.BuildList;
 import io.fabric8.openshift.api.model.DeploymentCondition;
 import io.fabric8.openshift.api.model.DeploymentConfig;
 import io.fabric8.openshift.api.model.DeploymentConfigStatus;
 import io.fabric8.openshift.api.model.ImageStream;
 import io.fabric8.openshift.api.model.Route;
-import io.fabric8.openshift.api.model.RouteList;
 import io.fabric8.openshift.api.model.RouteSpec;
 import io.fabric8.openshift.api.model.TLSConfigBuilder;
 import io.fabric8.openshift.client.DefaultOpenShiftClient;
@@ -119,12 +129,13 @@ import io.syndesis.dv.metadata.MetadataInstance;
 import io.syndesis.dv.metadata.TeiidDataSource;
 import io.syndesis.dv.metadata.internal.DefaultMetadataInstance;
 import io.syndesis.dv.model.DataVirtualization;
-import io.syndesis.dv.model.SourceSchema;
 import io.syndesis.dv.openshift.BuildStatus.RouteStatus;
 import io.syndesis.dv.openshift.BuildStatus.Status;
 import io.syndesis.dv.server.DvConfigurationProperties;
+import io.syndesis.dv.utils.HashingOutputStream;
 import io.syndesis.dv.utils.StringNameValidator;
 import io.syndesis.dv.utils.StringUtils;
+import io.syndesis.dv.utils.TarOutputStream;
 import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient;
 
@@ -163,172 +174,272 @@ public class TeiidOpenShiftClient implements StringConstants {
     /**
      * Responsible for sending SUBMITTED work to be configured
      * and for sending completed builds to be deployed.
+     * <br>
+     * Each run is a single non-blocking check of the work.  Runs are triggered
+     * by watch events on the builds and deployment configs of the virtualization,
+     * by the completion of configuration or deletion, and by a fallback poll
+     * in case an event is missed.
      */
     private class BuildStatusRunner implements Runnable {
 
-        private BuildStatus work;
+        private final BuildStatus work;
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private volatile ScheduledFuture<?> fallback;
 
         public BuildStatusRunner(BuildStatus buildStatus) {
             this.work = buildStatus;
         }
 
+        /**
+         * Request a check as soon as possible.  Requests that arrive before
+         * the check has started are coalesced.
+         */
+        void trigger() {
+            if (pending.compareAndSet(false, true)) {
+                monitorExecutor.execute(this);
+            }
+        }
+
         @Override
         public void run() {
+            pending.set(false);
+            if (activeJobs.get(work.getOpenShiftName()) != this) {
+                //replaced by a newer request
+                return;
+            }
+            boolean monitor = false;
             try {
-                activeJobs.put(this.work.getOpenShiftName(), this.work);
-                // introduce some delay..
-                long elapsed = System.currentTimeMillis() - work.getLastUpdated();
-                if (elapsed < 3000) {
-                    try {
-                        Thread.sleep(3000 - elapsed);
-                    } catch (InterruptedException e) {
-                        Thread.interrupted();
-                        return;
-                    }
-                }
-
-                if (BuildStatus.Status.DELETE_SUBMITTED.equals(work.getStatus())) {
-                    work.setLastUpdated();
-                    workExecutor.submit(this); // add at end
-                    return;
-                }
-
-                if (BuildStatus.Status.DELETE_REQUEUE.equals(work.getStatus())) {
-                    // requeue will change state to submitted and
-                    work.setLastUpdated();
-                    deleteVirtualization(work.getDataVirtualizationName());
-                    workExecutor.submit(this); // add at end
-                    return;
-                }
-
-                if (BuildStatus.Status.DELETE_DONE.equals(work.getStatus())) {
-                    removeSyndesisConnection(work.getDataVirtualizationName());
-                    return;
-                }
+                monitor = checkStatus(work);
+            } catch (Throwable ex) {
+                //
+                // Does not specify an id so will only be logged in the KLog.
+                //
+                error(null, "Monitor exception", ex);
+            }
+            work.setLastUpdated();
+            ScheduledFuture<?> previous = fallback;
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            if (monitor) {
+                fallback = monitorExecutor.schedule(this::trigger, pollIntervalMillis, TimeUnit.MILLISECONDS);
+            } else {
+                //reported until the cached resources are newer than the finished work
+                finishedJobs.put(work.getOpenShiftName(), work);
+                activeJobs.remove(work.getOpenShiftName(), this);
+                refreshStatusResources();
+            }
+        }
+    }
 
-                if (BuildStatus.Status.FAILED.equals(work.getStatus()) || BuildStatus.Status.CANCELLED.equals(work.getStatus())) {
-                    work.setLastUpdated();
-                    return;
-                }
+    /**
+     * Perform a single check of the work, advancing it to the next state when possible.
+     * Must not block waiting on OpenShift.
+     * @return true if the work should continue to be monitored
+     */
+    protected boolean checkStatus(BuildStatus work) throws KException {
+        if (BuildStatus.Status.DELETE_SUBMITTED.equals(work.getStatus())) {
+            //the delete task will trigger a check once done
+            return true;
+        }
 
-                if (BuildStatus.Status.SUBMITTED.equals(work.getStatus())) {
-                    //
-                    // build submitted for configuration. This is done on another
-                    // thread to avoid clogging up the monitor thread.
-                    //
-                    info(work.getOpenShiftName(), "Publishing - Submitted build to be configured");
+        if (BuildStatus.Status.DELETE_REQUEUE.equals(work.getStatus())) {
+            // requeue will change state to submitted and
+            deleteVirtualization(work.getDataVirtualizationName());
+            return true;
+        }
 
-                    configureBuild(work);
+        if (BuildStatus.Status.DELETE_DONE.equals(work.getStatus())) {
+            removeSyndesisConnection(work.getDataVirtualizationName());
+            return false;
+        }
 
-                    work.setLastUpdated();
-                    workExecutor.submit(this); // add at end
+        if (BuildStatus.Status.FAILED.equals(work.getStatus()) || BuildStatus.Status.CANCELLED.equals(work.getStatus())) {
+            return false;
+        }
 
-                    return;
-                }
+        if (BuildStatus.Status.RUNNING.equals(work.getStatus())) {
+            // the vdb was redeployed without a build
+            return false;
+        }
 
-                //
-                // build is being configured which is done on another thread
-                // so ignore this build for the moment
-                //
-                if (Status.CONFIGURING.equals(work.getStatus())) {
-                    work.setLastUpdated();
-                    workExecutor.submit(this); // add at end
+        if (BuildStatus.Status.SUBMITTED.equals(work.getStatus())) {
+            //
+            // build submitted for configuration. This is done on another
+            // thread to avoid clogging up the monitor thread.
+            //
+            info(work.getOpenShiftName(), "Publishing - Submitted build to be configured");
 
-                    debug(work.getOpenShiftName(), "Publishing - Continuing monitoring as configuring");
-                    return;
-                }
+            configureBuild(work);
+            return true;
+        }
 
-                boolean shouldReQueue = true;
-                final OpenShiftClient client = openshiftClient();
-                Build build = client.builds().inNamespace(work.getNamespace()).withName(work.getName()).get();
-                if (build == null) {
-                    // build got deleted some how ignore, remove from monitoring..
-                    error(work.getOpenShiftName(), "Publishing - No build available for building");
-                    return;
-                }
+        //
+        // build is being configured which is done on another thread
+        // so ignore this build for the moment
+        //
+        if (Status.CONFIGURING.equals(work.getStatus())) {
+            debug(work.getOpenShiftName(), "Publishing - Continuing monitoring as configuring");
+            return true;
+        }
 
-                String lastStatus = build.getStatus().getPhase();
-                if (Builds.isCompleted(lastStatus)) {
-                    if (! Status.DEPLOYING.equals(work.getStatus())) {
-                        info(work.getOpenShiftName(), "Publishing - Build completed. Preparing to deploy");
-                        work.setStatusMessage("build completed, deployment started");
-                        createSecret(client, work.getNamespace(), work.getOpenShiftName(), work);
-                        DeploymentConfig dc = createDeploymentConfig(client, work);
-                        work.setDeploymentName(dc.getMetadata().getName());
-                        work.setStatus(Status.DEPLOYING);
-                        client.deploymentConfigs().inNamespace(work.getNamespace())
-                                .withName(dc.getMetadata().getName()).deployLatest();
-                    } else {
-                        DeploymentConfig dc = client.deploymentConfigs().inNamespace(work.getNamespace())
-                                .withName(work.getDeploymentName()).get();
-                        if (isDeploymentInReadyState(dc)) {
-                            // it done now..
-                            info(work.getOpenShiftName(), "Publishing - Deployment completed");
-                            createServices(client, work.getNamespace(), work.getOpenShiftName());
-                            createSyndesisConnection(client, work.getNamespace(), work.getOpenShiftName(), work.getDataVirtualizationName());
-                            work.setStatus(Status.RUNNING);
-                            shouldReQueue = false;
-                        } else {
-                            if (!isDeploymentProgressing(dc)) {
-                                work.setStatus(Status.FAILED);
-                                info(work.getOpenShiftName(), "Publishing - Deployment seems to be failed, this could be "
-                                        + "due to vdb failure, rediness check failed. Wait threshold is 2 minutes.");
-                                shouldReQueue = false;
-                            }
-                            debug(work.getOpenShiftName(), "Publishing - Deployment not ready");
-                            DeploymentCondition cond = getDeploymentConfigStatus(dc);
-                            if (cond != null) {
-                                debug(work.getOpenShiftName(), "Publishing - Deployment condition: " + cond.getMessage());
-                                work.setStatusMessage(cond.getMessage());
-                            } else {
-                                work.setStatusMessage("Available condition not found in the Deployment Config");
-                            }
-                        }
-                    }
-                } else if (Builds.isCancelled(lastStatus)) {
-                    info(work.getOpenShiftName(), "Publishing - Build cancelled");
-                    // once failed do not queue the work again.
-                    shouldReQueue = false;
-                    work.setStatus(Status.CANCELLED);
-                    work.setStatusMessage(build.getStatus().getMessage());
-                    debug(work.getOpenShiftName(), "Build cancelled: " + work.getName() + ". Reason "
-                            + build.getStatus().getLogSnippet());
-                } else if (Builds.isFailed(lastStatus)) {
-                    error(work.getOpenShiftName(), "Publishing - Build failed");
-                    // once failed do not queue the work again.
-                    shouldReQueue = false;
+        boolean shouldReQueue = true;
+        final OpenShiftClient client = openshiftClient();
+        Build build = resourceCache.get(resourceCache.builds, work.getNamespace(), work.getName(),
+                () -> client.builds().inNamespace(work.getNamespace()).withName(work.getName()).get());
+        if (build == null) {
+            // build got deleted some how ignore, remove from monitoring..
+            error(work.getOpenShiftName(), "Publishing - No build available for building");
+            return false;
+        }
+
+        String lastStatus = build.getStatus().getPhase();
+        if (Builds.isCompleted(lastStatus)) {
+            if (! Status.DEPLOYING.equals(work.getStatus())) {
+                info(work.getOpenShiftName(), "Publishing - Build completed. Preparing to deploy");
+                work.setStatusMessage("build completed, deployment started");
+                // the new image has the latest vdb, so a vdb saved by a previous redeploy must not be mounted
+                Queue<String> errors = new ConcurrentLinkedQueue<>();
+                CompletableFuture.allOf(
+                        resourceTask(work.getOpenShiftName(), "create the secret", errors,
+                                () -> createSecret(client, work.getNamespace(), work.getOpenShiftName(), work)),
+                        resourceTask(work.getOpenShiftName(), "remove the previous vdb config map", errors,
+                                () -> client.configMaps().inNamespace(work.getNamespace())
+                                        .withName(vdbConfigMapName(work.getOpenShiftName())).delete())).join();
+                if (errors.isEmpty()) {
+                    DeploymentConfig dc = createDeploymentConfig(client, work);
+                    work.setDeploymentName(dc.getMetadata().getName());
+                    work.setStatus(Status.DEPLOYING);
+                    client.deploymentConfigs().inNamespace(work.getNamespace())
+                            .withName(dc.getMetadata().getName()).deployLatest();
+                } else {
                     work.setStatus(Status.FAILED);
-                    work.setStatusMessage(build.getStatus().getMessage());
-                    error(work.getOpenShiftName(),
-                            "Build failed :" + work.getName() + ". Reason " + build.getStatus().getLogSnippet());
+                    work.setStatusMessage("Could not prepare the deployment: " + String.join("; ", errors));
+                    shouldReQueue = false;
                 }
-
-                work.setLastUpdated();
-                if (shouldReQueue) {
-                    workExecutor.submit(this); // add at end
+            } else {
+                DeploymentConfig dc = resourceCache.get(resourceCache.deploymentConfigs, work.getNamespace(),
+                        work.getDeploymentName(), () -> client.deploymentConfigs().inNamespace(work.getNamespace())
+                        .withName(work.getDeploymentName()).get());
+                if (isDeploymentInReadyState(dc)) {
+                    // it done now..
+                    exposeDeployment(client, work);
+                    shouldReQueue = false;
                 } else {
-                    // Close the log as no longer needed actively
-                    closeLog(work.getOpenShiftName());
+                    if (!isDeploymentProgressing(dc)) {
+                        work.setStatus(Status.FAILED);
+                        info(work.getOpenShiftName(), "Publishing - Deployment seems to be failed, this could be "
+                                + "due to vdb failure, rediness check failed. Wait threshold is 2 minutes.");
+                        shouldReQueue = false;
+                    }
+                    debug(work.getOpenShiftName(), "Publishing - Deployment not ready");
+                    DeploymentCondition cond = getDeploymentConfigStatus(dc);
+                    if (cond != null) {
+                        debug(work.getOpenShiftName(), "Publishing - Deployment condition: " + cond.getMessage());
+                        work.setStatusMessage(cond.getMessage());
+                    } else {
+                        work.setStatusMessage("Available condition not found in the Deployment Config");
+                    }
                 }
-            } catch (Throwable ex) {
-                //
-                // Does not specify an id so will only be logged in the KLog.
-                //
-                error(null, "Monitor exception", ex);
-            } finally {
-                activeJobs.remove(this.work.getOpenShiftName());
             }
+        } else if (Builds.isCancelled(lastStatus)) {
+            info(work.getOpenShiftName(), "Publishing - Build cancelled");
+            // once failed do not queue the work again.
+            shouldReQueue = false;
+            work.setStatus(Status.CANCELLED);
+            work.setStatusMessage(build.getStatus().getMessage());
+            debug(work.getOpenShiftName(), "Build cancelled: " + work.getName() + ". Reason "
+                    + build.getStatus().getLogSnippet());
+        } else if (Builds.isFailed(lastStatus)) {
+            error(work.getOpenShiftName(), "Publishing - Build failed");
+            // once failed do not queue the work again.
+            shouldReQueue = false;
+            work.setStatus(Status.FAILED);
+            work.setStatusMessage(build.getStatus().getMessage());
+            error(work.getOpenShiftName(),
+                    "Build failed :" + work.getName() + ". Reason " + build.getStatus().getLogSnippet());
+        }
+
+        if (!shouldReQueue) {
+            // Close the log as no longer needed actively
+            closeLog(work.getOpenShiftName());
+        }
+        return shouldReQueue;
+    }
+
+    /**
+     * Start monitoring the work, replacing any existing monitoring of the same virtualization
+     */
+    private void monitor(BuildStatus work) {
+        BuildStatusRunner runner = new BuildStatusRunner(work);
+        activeJobs.put(work.getOpenShiftName(), runner);
+        finishedJobs.remove(work.getOpenShiftName());
+        startWatches(work.getNamespace());
+        runner.trigger();
+    }
+
+    /**
+     * Trigger an immediate check of the monitored work for the virtualization, if any
+     */
+    void triggerCheck(String openShiftName) {
+        BuildStatusRunner runner = activeJobs.get(openShiftName);
+        if (runner != null) {
+            runner.trigger();
         }
     }
 
+    /**
+     * Cache the resources of all virtualizations in the namespace.  Monitored work
+     * is checked as soon as its resources change.
+     */
+    protected void startWatches(String namespace) {
+        resourceCache.start(namespace);
+    }
+
+    /**
+     * Stop the watches and the threads of this client, any queued or in progress work is abandoned
+     */
+    @PreDestroy
+    public void shutdown() {
+        resourceCache.stop();
+        monitorExecutor.shutdownNow();
+        publishService.shutdownNow();
+        configureService.shutdownNow();
+        resourceService.shutdownNow();
+        archiveService.shutdownNow();
+    }
+
+    static final String APPLICATION_LABEL = "application";
     private static final String DESCRIPTION_ANNOTATION_LABEL = "description";
     private static final String DEPLOYMENT_VERSION_LABEL = "syndesis.io/deployment-version";
+    private static final String DEPENDENCY_FINGERPRINT_LABEL = "syndesis.io/dependency-fingerprint";
+
+    /*
+     * must match the generated s2i/Application.java
+     */
+    private static final String VDB_RELOAD_TOKEN_KEY = "vdb.reload.token";
+    private static final String VDB_RELOAD_TOKEN_HEADER = "X-Vdb-Reload-Token";
+    private static final String VDB_RELOAD_PATH = "/actuator/vdb/reload";
+    /*
+     * the actuator endpoints, including the vdb reload, are not on the port exposed by the odata route
+     */
+    private static final int MANAGEMENT_PORT = 8081;
+    private static final String VDB_MOUNT_PATH = "/deployments/vdb";
+    private static final String VDB_VOLUME = "vdb";
+    /*
+     * config maps are limited to 1MiB, leave room for the metadata
+     */
+    private static final int MAX_VDB_CONFIG_MAP_SIZE = 900 * 1024;
 
     private static final String SERVICE_DESCRIPTION = "Virtual Database (VDB)";
 
     private static final String SYSDESIS = "syndesis";
     private static final String MANAGED_BY = "managed-by";
     private static final String SYNDESISURL = "http://syndesis-server/api/v1";
+    private static final long DEFAULT_POLL_INTERVAL_MILLIS = 10000;
+    private static final long DEFAULT_STATUS_REFRESH_MILLIS = 5000;
+    private static final long DEFAULT_STATUS_MAX_AGE_MILLIS = 60000;
+    private static final int BUILD_CONTENTS_BUFFER_SIZE = 1 << 16;
 
     private MetadataInstance metadata;
     private Map<String, DataSourceDefinition> sources = new ConcurrentHashMap<>();
@@ -337,16 +448,60 @@ public class TeiidOpenShiftClient implements StringConstants {
     private long integrationRefreshTime;
 
     /**
-     * Fixed pool of up to 3 threads for configuring images ready to be deployed
+     * Fixed pool of up to 3 threads for deleting the resources of virtualizations
      */
     private ThreadPoolExecutor configureService = new ThreadPoolExecutor(3, 3, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
 
+    /**
+     * Runs the publish configurations, see {@link DvConfigurationProperties#getPublishConcurrency()}
+     */
+    private ThreadPoolExecutor publishService;
+
+    /**
+     * Writes the build contents while they are uploaded
+     */
+    private ThreadPoolExecutor archiveService = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>());
+
+    /**
+     * Creates and deletes the resources of a virtualization concurrently
+     */
+    private ThreadPoolExecutor resourceService = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>());
+    private PublishScheduler publishScheduler;
+
     private Map<String, PrintWriter> logBuffers = new ConcurrentHashMap<>();
     private EncryptionComponent encryptionComponent;
     private DvConfigurationProperties config;
 
-    private ThreadPoolExecutor workExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
-    private Map<String, BuildStatus> activeJobs = new ConcurrentHashMap<>();
+    /**
+     * Single thread for monitoring the work and for the fallback polls
+     */
+    private ScheduledThreadPoolExecutor monitorExecutor = new ScheduledThreadPoolExecutor(1);
+    private Map<String, BuildStatusRunner> activeJobs = new ConcurrentHashMap<>();
+    /**
+     * Work no longer monitored, but finished after the cached resources were loaded
+     */
+    private Map<String, BuildStatus> finishedJobs = new ConcurrentHashMap<>();
+    /**
+     * The resources of the virtualizations, kept current by watches
+     */
+    private ResourceCache resourceCache;
+    /**
+     * How long to wait before checking work again in the absence of a watch event
+     */
+    protected long pollIntervalMillis = DEFAULT_POLL_INTERVAL_MILLIS;
+    /**
+     * The resources of all virtualizations, used for the status of the virtualization list
+     */
+    private volatile StatusResources statusResources;
+    private AtomicBoolean statusRefreshing = new AtomicBoolean();
+    /**
+     * Cached resources older than this are refreshed in the background
+     */
+    protected long statusRefreshMillis = DEFAULT_STATUS_REFRESH_MILLIS;
+    /**
+     * Cached resources older than this are reloaded before use
+     */
+    protected long statusMaxAgeMillis = DEFAULT_STATUS_MAX_AGE_MILLIS;
     private RepositoryManager repositoryManager;
     private Map<String, String> mavenRepos;
 
@@ -356,9 +511,18 @@ public class TeiidOpenShiftClient implements StringConstants {
         this.encryptionComponent = encryptor;
         this.config = config;
         this.repositoryManager = repositoryManager;
-        this.workExecutor.allowCoreThreadTimeOut(true);
+        this.monitorExecutor.setKeepAliveTime(60, TimeUnit.SECONDS);
+        this.monitorExecutor.allowCoreThreadTimeOut(true);
+        this.monitorExecutor.setRemoveOnCancelPolicy(true);
         this.configureService.allowCoreThreadTimeOut(true);
+        int concurrency = Math.max(1, config.getPublishConcurrency());
+        this.publishService = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        this.publishService.allowCoreThreadTimeOut(true);
+        this.publishScheduler = new PublishScheduler(publishService, concurrency,
+                config.getPublishNamespaceLimit(), config.getPublishOrdering());
         this.mavenRepos = mavenRepos;
+        this.resourceCache = new ResourceCache(this::openshiftClient, monitorExecutor,
+                Math.max(1000, config.getResourceResyncMillis()), this::triggerCheck);
 
         // data source definitions
         add(new PostgreSQLDefinition());
@@ -390,6 +554,10 @@ public class TeiidOpenShiftClient implements StringConstants {
 
         pw.close();
     }
+    boolean isLogOpen(String id) {
+        return logBuffers.containsKey(id);
+    }
+
     private void addLog(String id, String message) {
         if (id == null) {
             return; // Cannot record these log messages
@@ -472,10 +640,12 @@ public class TeiidOpenShiftClient implements StringConstants {
         return null;
     }
 
-    private void createSyndesisConnection(final OpenShiftClient client, final String namespace,
+    protected void createSyndesisConnection(final OpenShiftClient client, final String namespace,
             final String openshiftName, final String virtualizationName) throws KException {
         try {
-            Service service = client.services().inNamespace(namespace).withName(openshiftName+"-"+ProtocolType.JDBC.id()).get();
+            String serviceName = openshiftName+"-"+ProtocolType.JDBC.id();
+            Service service = resourceCache.get(resourceCache.services, namespace, serviceName,
+                    () -> client.services().inNamespace(namespace).withName(serviceName).get());
             if (service == null) {
                 info(openshiftName, "Database connection to Virtual Database " +
                         openshiftName + " not created beacuse no service found");
@@ -518,6 +688,11 @@ public class TeiidOpenShiftClient implements StringConstants {
 
     private List<String> findIntegrationUsedIn(String virtualizationName)
             throws KException {
+        return findIntegrationUsedIn(this.repositoryManager.findDataVirtualization(virtualizationName));
+    }
+
+    private List<String> findIntegrationUsedIn(DataVirtualization dv)
+            throws KException {
         List<String> usedIn = null;
         // only get the status every minute, looks like syndesis server is rejecting otherwise and also
         // pushing the pod to restart.
@@ -525,7 +700,6 @@ public class TeiidOpenShiftClient implements StringConstants {
             this.integrationsInUse = findIntegrationByConnectionId();
             this.integrationRefreshTime = System.currentTimeMillis();
         }
-        DataVirtualization dv = this.repositoryManager.findDataVirtualization(virtualizationName);
         if (dv != null && dv.getSourceId() != null) {
             usedIn = this.integrationsInUse.get(dv.getSourceId());
         }
@@ -719,9 +893,9 @@ public class TeiidOpenShiftClient implements StringConstants {
      */
     public String getUniqueKomodoName(DefaultSyndesisDataSource scd, String syndesisName) throws Exception {
         return repositoryManager.runInTransaction(false, () -> {
-            SourceSchema ss = repositoryManager.findSchemaBySourceId(scd.getSyndesisConnectionId());
-            if (ss != null) {
-                return ss.getName();
+            String existing = repositoryManager.findSchemaNameBySourceId(scd.getSyndesisConnectionId());
+            if (existing != null) {
+                return existing;
             }
 
             String name = syndesisName;
@@ -769,11 +943,7 @@ public class TeiidOpenShiftClient implements StringConstants {
     }
 
     public String findDataSourceNameByEventId(String eventId)  {
-        SourceSchema sourceSchema = this.repositoryManager.findSchemaBySourceId(eventId);
-        if (sourceSchema != null) {
-            return sourceSchema.getName();
-        }
-        return null;
+        return this.repositoryManager.findSchemaNameBySourceId(eventId);
     }
 
     private ImageStream createImageStream(OpenShiftClient client, String namespace, String openShiftName) {
@@ -783,14 +953,201 @@ public class TeiidOpenShiftClient implements StringConstants {
         return is;
     }
 
+    /**
+     * A fingerprint of what determines the maven dependencies of the generated project,
+     * shortened to fit in a label value
+     */
+    static String getDependencyFingerprint(String pomXml, PublishConfiguration pc) {
+        MessageDigest digest = HashingOutputStream.newDigest();
+        digest.update(pomXml.getBytes(StandardCharsets.UTF_8));
+        digest.update(pc.getBuildImageStream().getBytes(StandardCharsets.UTF_8));
+        return HashingOutputStream.toHex(digest.digest()).substring(0, 32);
+    }
+
+    /**
+     * When the dependencies of the most recent completed build are unchanged, the maven artifacts
+     * saved in its image can be reused without resolving them again.
+     * @return the most recent completed build or null if there is none
+     */
+    private Build findLatestCompletedBuild(OpenShiftClient client, String namespace, String openShiftName) {
+        List<Build> builds = resourceCache.list(resourceCache.builds, namespace, openShiftName,
+                () -> client.builds().inNamespace(namespace).withLabel(APPLICATION_LABEL, openShiftName).list().getItems());
+        Build latest = null;
+        for (Build build : builds) {
+            if (Builds.isCompleted(build.getStatus().getPhase()) && (latest == null || build.getMetadata()
+                    .getCreationTimestamp().compareTo(latest.getMetadata().getCreationTimestamp()) > 0)) {
+                latest = build;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * @return true if the build was made with the same dependencies
+     */
+    static boolean hasDependencyFingerprint(Build build, String fingerprint) {
+        return build != null && build.getMetadata().getLabels() != null
+                && fingerprint.equals(build.getMetadata().getLabels().get(DEPENDENCY_FINGERPRINT_LABEL));
+    }
+
+    /**
+     * @return the decoded reload token of the running deployment, or null if it was deployed
+     * without support for reloading
+     */
+    static String getReloadToken(Secret secret) {
+        if (secret == null || secret.getData() == null) {
+            return null;
+        }
+        String token = secret.getData().get(VDB_RELOAD_TOKEN_KEY);
+        if (token == null) {
+            return null;
+        }
+        return new String(Base64.getDecoder().decode(token), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A redeploy only replaces the vdb, so everything else about the running deployment
+     * has to match what a new deployment would have.
+     * @return the reason a build is needed, or null if the running deployment can be reused
+     */
+    String getRedeployConflict(DeploymentConfig dc, Secret secret, PublishConfiguration pc, String openShiftName,
+            int vdbSize) {
+        if (getReloadToken(secret) == null) {
+            return "deployment does not support reloading";
+        }
+        if (vdbSize > MAX_VDB_CONFIG_MAP_SIZE) {
+            return "vdb is too large to be saved in a config map";
+        }
+        if (dc == null || !isDeploymentInReadyState(dc)) {
+            return "deployment is not ready";
+        }
+        Container container = null;
+        for (Container c : dc.getSpec().getTemplate().getSpec().getContainers()) {
+            if (openShiftName.equals(c.getName())) {
+                container = c;
+            }
+        }
+        if (container == null) {
+            return "deployment has no virtualization container";
+        }
+        Map<String, Quantity> limits = container.getResources() == null ? null : container.getResources().getLimits();
+        if (limits == null || !isQuantity(limits.get("memory"), pc.getContainerMemorySize())
+                || !isQuantity(limits.get("cpu"), pc.getCpuUnits())) {
+            return "memory or cpu has changed";
+        }
+        List<EnvVar> envs = new ArrayList<>(pc.getEnvironmentVariables());
+        envs.add(envFromSecret(secretName(openShiftName), VDB_RELOAD_TOKEN_KEY));
+        if (!describe(envs).equals(describe(container.getEnv()))) {
+            return "environment variables have changed";
+        }
+        Map<String, String> secrets = new HashMap<>(secret.getData());
+        secrets.remove(VDB_RELOAD_TOKEN_KEY);
+        if (!secrets.equals(pc.getSecretVariables())) {
+            return "secrets have changed";
+        }
+        return null;
+    }
+
+    private static boolean isQuantity(Quantity quantity, String expected) {
+        return quantity != null && expected != null && expected.equals(quantity.getAmount());
+    }
+
+    private static Set<String> describe(List<EnvVar> envs) {
+        Set<String> result = new HashSet<>();
+        if (envs == null) {
+            return result;
+        }
+        for (EnvVar env : envs) {
+            if (env.getValueFrom() != null && env.getValueFrom().getSecretKeyRef() != null) {
+                result.add(env.getName() + "<-" + env.getValueFrom().getSecretKeyRef().getName() + "/" //$NON-NLS-1$ //$NON-NLS-2$
+                        + env.getValueFrom().getSecretKeyRef().getKey());
+            } else {
+                result.add(env.getName() + "=" + env.getValue()); //$NON-NLS-1$
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Redeploy only the vdb of a running virtualization, which is possible when the dependencies
+     * have not changed since the running image was built.  The vdb is posted to the reload
+     * endpoint of each pod and saved in the config map that is used when a pod restarts.
+     * @return true if the vdb was redeployed, false if a build is needed
+     */
+    boolean redeployVdb(OpenShiftClient client, BuildStatus work, Build latestBuild, byte[] vdbContents) {
+        String namespace = work.getNamespace();
+        String openShiftName = work.getOpenShiftName();
+        Secret secret = client.secrets().inNamespace(namespace).withName(secretName(openShiftName)).get();
+        DeploymentConfig dc = resourceCache.get(resourceCache.deploymentConfigs, namespace, openShiftName,
+                () -> client.deploymentConfigs().inNamespace(namespace).withName(openShiftName).get());
+        String conflict = getRedeployConflict(dc, secret, work.getPublishConfiguration(), openShiftName,
+                vdbContents.length);
+        if (conflict != null) {
+            info(openShiftName, "Publishing - Building, as the " + conflict);
+            return false;
+        }
+        List<Pod> pods = client.pods().inNamespace(namespace).withLabel("deploymentConfig", openShiftName).list().getItems();
+        List<String> podIps = new ArrayList<>();
+        for (Pod pod : pods) {
+            if ("Running".equals(pod.getStatus().getPhase()) && pod.getStatus().getPodIP() != null) {
+                podIps.add(pod.getStatus().getPodIP());
+            }
+        }
+        if (podIps.isEmpty()) {
+            return false;
+        }
+        try {
+            createVdbConfigMap(client, namespace, openShiftName, work.getPublishConfiguration().getVDB().getName(), vdbContents);
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Content-Type", "application/xml");
+            headers.put(VDB_RELOAD_TOKEN_HEADER, getReloadToken(secret));
+            for (String podIp : podIps) {
+                info(openShiftName, "Publishing - Reloading the vdb of pod " + podIp);
+                SyndesisHttpUtil.executePOST("http://" + podIp + ":" + MANAGEMENT_PORT + VDB_RELOAD_PATH, vdbContents, headers).close();
+            }
+            // record the revision on the build of the running image
+            client.builds().inNamespace(namespace).withName(latestBuild.getMetadata().getName()).edit()
+                    .editMetadata().addToLabels(DEPLOYMENT_VERSION_LABEL, String.valueOf(work.getDeploymentVersion()))
+                    .endMetadata().done();
+        } catch (RuntimeException | IOException e) {
+            error(openShiftName, "Publishing - Could not redeploy the vdb, building instead", e);
+            return false;
+        }
+        work.setName(latestBuild.getMetadata().getName());
+        work.setDeploymentName(dc.getMetadata().getName());
+        return true;
+    }
+
+    private String vdbConfigMapName(String openShiftName) {
+        return openShiftName + "-vdb";
+    }
+
+    /**
+     * Save the vdb in a config map, which is mounted in the pod so that the latest vdb
+     * is deployed when a pod is started without a new image.  Only used by a redeploy,
+     * as the image of a build already has the vdb.
+     */
+    private void createVdbConfigMap(OpenShiftClient client, String namespace, String openShiftName, String vdbName,
+            byte[] vdbContents) {
+        ConfigMap item = new ConfigMapBuilder().withNewMetadata().withName(vdbConfigMapName(openShiftName))
+                .addToLabels("application", openShiftName).endMetadata()
+                .addToData(vdbName + "-vdb.xml", new String(vdbContents, StandardCharsets.UTF_8)).build();
+        client.configMaps().inNamespace(namespace).withName(vdbConfigMapName(openShiftName)).createOrReplace(item);
+    }
+
     private BuildConfig createBuildConfig(OpenShiftClient client, String namespace, String openShiftName, ImageStream is,
-            PublishConfiguration pc) {
+            PublishConfiguration pc, String fingerprint, boolean reuseDependencies) {
         String imageStreamName = is.getMetadata().getName()+":latest";
+        List<EnvVar> envs = pc.getUserEnvVars();
+        // an incremental build restores the local repository of the previous build, so unchanged
+        // dependencies are not downloaded again.  It's not run offline, as the previous image
+        // may have been pruned, in which case the build falls back to a clean repository.
         BuildConfig bc = client.buildConfigs().inNamespace(namespace).createOrReplaceWithNew()
             .withNewMetadata().withName(getBuildConfigName(openShiftName))
                 .addToLabels("application", openShiftName)
                 .addToLabels(MANAGED_BY, SYSDESIS)
                 .addToLabels(DEPLOYMENT_VERSION_LABEL, String.valueOf(pc.getPublishedRevision()))
+                .addToLabels(DEPENDENCY_FINGERPRINT_LABEL, fingerprint)
                 .endMetadata()
             .withNewSpec()
                 .withRunPolicy("SerialLatestOnly")
@@ -802,8 +1159,8 @@ public class TeiidOpenShiftClient implements StringConstants {
                 .withName(pc.getBuildImageStream())
                     .withNamespace(namespace)
                 .endFrom()
-                .withIncremental(false)
-                .withEnv(pc.getUserEnvVars())
+                .withIncremental(reuseDependencies)
+                .withEnv(envs)
                 .endSourceStrategy()
                 .endStrategy()
                 .withNewOutput()
@@ -864,7 +1221,7 @@ public class TeiidOpenShiftClient implements StringConstants {
                     .addAllToEnv(config.getPublishConfiguration().getEnvironmentVariables())
                     .withNewReadinessProbe()
                       .withNewHttpGet()
-                      .withNewPort(8080)
+                      .withNewPort(MANAGEMENT_PORT)
                       .withPath("/actuator/health")
                       .endHttpGet()
                       .withInitialDelaySeconds(30)
@@ -875,7 +1232,7 @@ public class TeiidOpenShiftClient implements StringConstants {
                     .endReadinessProbe()
                     .withNewLivenessProbe()
                       .withNewHttpGet()
-                      .withNewPort(8080)
+                      .withNewPort(MANAGEMENT_PORT)
                       .withPath("/actuator/health")
                       .endHttpGet()
                       .withInitialDelaySeconds(30)
@@ -891,7 +1248,17 @@ public class TeiidOpenShiftClient implements StringConstants {
                         // .addToLimits("ephemeral-storage", new Quantity(config.getPublishConfiguration().getContainerDiskSize()))
                     .endResources()
                     .addAllToPorts(getDeploymentPorts(config.getPublishConfiguration()))
+                    .addNewVolumeMount()
+                      .withName(VDB_VOLUME)
+                      .withMountPath(VDB_MOUNT_PATH)
+                      .withReadOnly(true)
+                    .endVolumeMount()
                   .endContainer()
+                  .addNewVolume()
+                    .withName(VDB_VOLUME)
+                    // only exists after a redeploy
+                    .withNewConfigMap().withName(vdbConfigMapName(config.getOpenShiftName())).withOptional(true).endConfigMap()
+                  .endVolume()
                 .endSpec()
               .endTemplate()
             .endSpec()
@@ -919,11 +1286,12 @@ public class TeiidOpenShiftClient implements StringConstants {
         return p;
     }
 
-    private Service createService(OpenShiftClient client, String namespace, String openShiftName, String type, int srcPort,
+    protected Service createService(OpenShiftClient client, String namespace, String openShiftName, String type, int srcPort,
             int exposedPort) {
         String serviceName = openShiftName+"-"+type;
         debug(openShiftName, "Creating the Service of Type " + type + " for VDB "+openShiftName);
-        Service service = client.services().inNamespace(namespace).withName(serviceName).get();
+        Service service = resourceCache.get(resourceCache.services, namespace, serviceName,
+                () -> client.services().inNamespace(namespace).withName(serviceName).get());
         if (service == null) {
             client.services().inNamespace(namespace).createNew()
               .withNewMetadata()
@@ -948,10 +1316,11 @@ public class TeiidOpenShiftClient implements StringConstants {
         return service;
     }
 
-    private Service createODataService(OpenShiftClient client, String namespace, String openShiftName, String type, int port) {
+    protected Service createODataService(OpenShiftClient client, String namespace, String openShiftName, String type, int port) {
         String serviceName = openShiftName+"-"+type;
         debug(openShiftName, "Creating the Service of Type " + type + " for VDB "+openShiftName);
-        Service service = client.services().inNamespace(namespace).withName(serviceName).get();
+        Service service = resourceCache.get(resourceCache.services, namespace, serviceName,
+                () -> client.services().inNamespace(namespace).withName(serviceName).get());
         if (service == null) {
             TreeMap<String, String> labels = new TreeMap<String, String>();
             labels.put("application", openShiftName);
@@ -1004,9 +1373,10 @@ public class TeiidOpenShiftClient implements StringConstants {
         return secret;
     }
 
-    private Route createRoute(OpenShiftClient client, String namespace, String openShiftName, String type) {
+    protected Route createRoute(OpenShiftClient client, String namespace, String openShiftName, String type) {
         String routeName = openShiftName+"-"+type;
-        Route route = client.routes().inNamespace(namespace).withName(routeName).get();
+        Route route = resourceCache.get(resourceCache.routes, namespace, routeName,
+                () -> client.routes().inNamespace(namespace).withName(routeName).get());
         if (route == null) {
             //
             // Create edge termination SSL configuration
@@ -1033,35 +1403,148 @@ public class TeiidOpenShiftClient implements StringConstants {
         return route;
     }
 
-    private void waitUntilPodIsReady(String openShiftName, final OpenShiftClient client, String podName, int nAwaitTimeout) {
-        final CountDownLatch readyLatch = new CountDownLatch(1);
-        try (Watch watch = client.pods().withName(podName).watch(new Watcher<Pod>() {
-            @Override
-            public void eventReceived(Action action, Pod aPod) {
-                if(KubernetesHelper.isPodReady(aPod)) {
-                    readyLatch.countDown();
+    /**
+     * Resume configuring the work with the continuation once the pod is ready, or once the timeout
+     * has passed, without blocking the calling thread.
+     */
+    void whenPodIsReady(BuildStatus work, final OpenShiftClient client, String podName, int nAwaitTimeout,
+            Runnable continuation) {
+        String openShiftName = work.getOpenShiftName();
+        PodReadiness readiness = new PodReadiness(work, continuation);
+        readiness.timeout = monitorExecutor.schedule(readiness::proceed, nAwaitTimeout, TimeUnit.SECONDS);
+        try {
+            Watch watch = client.pods().withName(podName).watch(readiness);
+            readiness.setWatch(watch);
+            // the pod may have become ready before the watch started
+            Pod pod = client.pods().withName(podName).get();
+            if (pod != null && KubernetesHelper.isPodReady(pod)) {
+                readiness.proceed();
+            }
+        } catch (KubernetesClientException e) {
+            error(openShiftName, "Publishing - Could not watch pod", e);
+            readiness.proceed();
+        }
+    }
+
+    private class PodReadiness implements Watcher<Pod> {
+        private final BuildStatus work;
+        private final Runnable continuation;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile Watch watch;
+        private volatile ScheduledFuture<?> timeout;
+
+        PodReadiness(BuildStatus work, Runnable continuation) {
+            this.work = work;
+            this.continuation = continuation;
+        }
+
+        void setWatch(Watch watch) {
+            this.watch = watch;
+            if (done.get()) {
+                closeWatch();
+            }
+        }
+
+        void proceed() {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            ScheduledFuture<?> scheduled = timeout;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            closeWatch();
+            //subject to the same limits as the rest of the configuration
+            publishScheduler.resume(work, continuation);
+        }
+
+        private void closeWatch() {
+            Watch current = watch;
+            if (current != null) {
+                watch = null;
+                try {
+                    current.close();
+                } catch (KubernetesClientException e) {
+                    LOGGER.debug("Could not close pod watch: " + e.getMessage());
                 }
             }
-            @Override
-            public void onClose(KubernetesClientException e) {
-                // Ignore
+        }
+
+        @Override
+        public void eventReceived(Action action, Pod aPod) {
+            if (KubernetesHelper.isPodReady(aPod)) {
+                proceed();
             }
-        })) {
-            readyLatch.await(nAwaitTimeout, TimeUnit.SECONDS);
-        } catch (KubernetesClientException | InterruptedException e) {
-            error(openShiftName, "Publishing - Could not watch pod", e);
+        }
+
+        @Override
+        public void onClose(KubernetesClientException e) {
+            // Ignore, the timeout will proceed
         }
     }
 
-    private void createServices(final OpenShiftClient client, final String namespace,
-            final String openShiftName) {
-        createODataService(client, namespace, openShiftName, ProtocolType.ODATA.id(), 8080);
-        createService(client, namespace, openShiftName, ProtocolType.JDBC.id(), 31000, 31000);
-        createService(client, namespace, openShiftName, ProtocolType.PG.id(), 35432, 5432);
+    /**
+     * Expose the ready deployment, failing the work if anything could not be created
+     */
+    void exposeDeployment(OpenShiftClient client, BuildStatus work) {
+        info(work.getOpenShiftName(), "Publishing - Deployment completed");
+        List<String> errors = createServices(client, work.getNamespace(), work.getOpenShiftName(),
+                work.getDataVirtualizationName());
+        if (errors.isEmpty()) {
+            work.setStatus(Status.RUNNING);
+        } else {
+            work.setStatus(Status.FAILED);
+            work.setStatusMessage("Could not expose the deployment: " + String.join("; ", errors));
+        }
+    }
+
+    /**
+     * Create the services, the route and the syndesis connection of the deployed virtualization.
+     * The services are created concurrently, the route and the connection once the service
+     * they refer to exists.
+     * @return the errors, empty if everything was created
+     */
+    private List<String> createServices(final OpenShiftClient client, final String namespace,
+            final String openShiftName, final String virtualizationName) {
+        Queue<String> errors = new ConcurrentLinkedQueue<>();
+        CompletableFuture<Void> odata = resourceTask(openShiftName, "create the odata service", errors,
+                () -> createODataService(client, namespace, openShiftName, ProtocolType.ODATA.id(), 8080));
+        CompletableFuture<Void> jdbc = resourceTask(openShiftName, "create the jdbc service", errors,
+                () -> createService(client, namespace, openShiftName, ProtocolType.JDBC.id(), 31000, 31000));
+        CompletableFuture<Void> pg = resourceTask(openShiftName, "create the pg service", errors,
+                () -> createService(client, namespace, openShiftName, ProtocolType.PG.id(), 35432, 5432));
+        CompletableFuture<Void> route = odata;
         if (!this.config.isExposeVia3scale()) {
-            createRoute(client, namespace, openShiftName, ProtocolType.ODATA.id());
+            route = resourceTask(openShiftName, "create the odata route", errors,
+                    () -> createRoute(client, namespace, openShiftName, ProtocolType.ODATA.id()), odata);
         }
         // createRoute(client, namespace, vdbName, RouteType.JDBC.id());
+        CompletableFuture<Void> connection = resourceTask(openShiftName, "create the syndesis connection", errors,
+                () -> createSyndesisConnection(client, namespace, openShiftName, virtualizationName), jdbc);
+        CompletableFuture.allOf(pg, route, connection).join();
+        return new ArrayList<>(errors);
+    }
+
+    @FunctionalInterface
+    private interface ResourceOperation {
+        void run() throws Exception;
+    }
+
+    /**
+     * Run the operation on the resource threads once its dependencies are done.  A failure
+     * is logged and added to the errors rather than propagated, so that the other operations
+     * still run.
+     */
+    private CompletableFuture<Void> resourceTask(String openShiftName, String description, Queue<String> errors,
+            ResourceOperation operation, CompletableFuture<?>... dependencies) {
+        return CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+            try {
+                operation.run();
+            } catch (Exception e) {
+                error(openShiftName, "Could not " + description, e);
+                errors.add(description + ": " + e.getMessage());
+            }
+        }, resourceService);
     }
 
     private boolean isDeploymentInReadyState(DeploymentConfig dc) {
@@ -1099,7 +1582,7 @@ public class TeiidOpenShiftClient implements StringConstants {
         return null;
     }
 
-    private BuildStatus addToQueue(String openshiftName, PublishConfiguration publishConfig) {
+    BuildStatus addToQueue(String openshiftName, PublishConfiguration publishConfig) {
         BuildStatus work = new BuildStatus(openshiftName);
         work.setStatus(Status.SUBMITTED);
         work.setNamespace(ApplicationProperties.getNamespace());
@@ -1108,13 +1591,13 @@ public class TeiidOpenShiftClient implements StringConstants {
         work.setPublishConfiguration(publishConfig);
         work.setDataVirtualizationName(publishConfig.getDataVirtualizationName());
         work.setDeploymentVersion(publishConfig.getPublishedRevision());
-        this.workExecutor.submit(new BuildStatusRunner(work));
+        monitor(work);
         return work;
     }
 
     protected void configureBuild(BuildStatus work) {
         work.setStatus(Status.CONFIGURING);
-        configureService.execute(new Runnable() {
+        publishScheduler.submit(work, new Runnable() {
             @Override
             public void run() {
                 info(work.getOpenShiftName(), "Publishing  - Configuring ...");
@@ -1124,50 +1607,78 @@ public class TeiidOpenShiftClient implements StringConstants {
                 VDBMetaData vdb = publishConfig.getVDB();
 
                 String openShiftName = work.getOpenShiftName();
+                boolean awaitingPod = false;
                 try {
                     OpenShiftClient client = openshiftClient();
-                    info(openShiftName, "Publishing - Checking for base image");
-
-                    // create build contents as tar file
-                    info(openShiftName, "Publishing - Creating zip archive");
-                    GenericArchive archive = ShrinkWrap.create(GenericArchive.class, "contents.tar");
                     String pomFile = generatePomXml(vdb, publishConfig.isEnableOData());
 
                     debug(openShiftName, "Publishing - Generated pom file: " + NEW_LINE + pomFile);
-                    archive.add(new StringAsset(pomFile), "pom.xml");
 
                     normalizeDataSourceNames(vdb);
 
-                    AccessibleByteArrayOutputStream vdbContents = DefaultMetadataInstance.toBytes(vdb);
-                    archive.add(new ByteArrayAsset(new ByteArrayInputStream(vdbContents.getBuffer(), 0, vdbContents.getCount())), "/src/main/resources/" + vdb.getName() + "-vdb.xml");
+                    // needed before deciding if the running deployment can be reused
+                    info(openShiftName, "Publishing - Fetching environment variables for vdb data sources");
+                    publishConfig.addEnvironmentVariables(
+                            getEnvironmentVariablesForVDBDataSources(vdb, publishConfig, openShiftName));
+                    publishConfig.addSecretVariables(getSecretVariablesForVDBDataSources(vdb, publishConfig));
 
-                    InputStream configIs = this.getClass().getClassLoader().getResourceAsStream("s2i/application.properties");
-                    archive.add(new ByteArrayAsset(ObjectConverterUtil.convertToByteArray(configIs)),
-                                "/src/main/resources/application.properties");
+                    String fingerprint = getDependencyFingerprint(pomFile, publishConfig);
+                    Build latestBuild = findLatestCompletedBuild(client, namespace, openShiftName);
+                    boolean reuseDependencies = hasDependencyFingerprint(latestBuild, fingerprint);
+                    info(openShiftName, "Publishing - Dependency fingerprint " + fingerprint
+                            + (reuseDependencies ? " is unchanged" : " has changed"));
+
+                    if (reuseDependencies) {
+                        AccessibleByteArrayOutputStream vdbContents = DefaultMetadataInstance.toBytes(vdb);
+                        if (redeployVdb(client, work, latestBuild,
+                                Arrays.copyOf(vdbContents.getBuffer(), vdbContents.getCount()))) {
+                            work.setStatusMessage("VDB redeployed without a build");
+                            work.setStatus(Status.RUNNING);
+                            info(openShiftName, "Publishing - Redeployed the vdb of the running virtualization");
+                            return;
+                        }
+                    }
 
+                    // everything that may fail is generated before the upload starts
+                    info(openShiftName, "Publishing - Generating build contents");
+                    Map<String, String> dataSources = new TreeMap<>();
                     for (Model model : vdb.getModels()) {
                         if (model.isSource()) {
-                            buildDataSourceBuilders(model, archive);
+                            dataSources.putAll(buildDataSourceBuilders(model));
                         }
                     }
-
-                    InputStream appIs = this.getClass().getClassLoader().getResourceAsStream("s2i/Application.java");
-                    archive.add(new ByteArrayAsset(ObjectConverterUtil.convertToByteArray(appIs)),
-                                "/src/main/java/io/integration/Application.java");
-
-                    info(openShiftName, "Publishing - Converting archive to TarExport");
-                    InputStream buildContents = archive.as(TarExporter.class).exportAsInputStream();
-                    info(openShiftName, "Publishing - Completed creating build contents construction");
+                    long vdbSize = getVdbXmlSize(vdb);
 
                     info(openShiftName, "Publishing - Creating image stream");
                     // use the contents to invoke a binary build
                     ImageStream is = createImageStream(client, namespace, openShiftName);
 
                     info(openShiftName, "Publishing - Creating build config");
-                    BuildConfig buildConfig = createBuildConfig(client, namespace, openShiftName, is, publishConfig);
+                    BuildConfig buildConfig = createBuildConfig(client, namespace, openShiftName, is, publishConfig,
+                            fingerprint, reuseDependencies);
 
                     info(openShiftName, "Publishing - Creating build");
-                    Build build = createBuild(client, namespace, buildConfig, buildContents);
+                    // the tar is written while it is being uploaded
+                    PipedInputStream buildContents = new PipedInputStream(BUILD_CONTENTS_BUFFER_SIZE);
+                    PipedOutputStream pipe = new PipedOutputStream(buildContents);
+                    Future<Void> writer = archiveService.submit(() -> {
+                        try (TarOutputStream tar = new TarOutputStream(pipe)) {
+                            writeBuildContents(tar, pomFile, vdb, vdbSize, dataSources);
+                        }
+                        return null;
+                    });
+                    Build build = null;
+                    try {
+                        build = createBuild(client, namespace, buildConfig, buildContents);
+                    } finally {
+                        // unblocks the writer if the upload failed
+                        buildContents.close();
+                    }
+                    try {
+                        writer.get();
+                    } catch (ExecutionException e) {
+                        throw handleError(e.getCause());
+                    }
 
                     String buildName = build.getMetadata().getName();
                     info(openShiftName, "Publishing - Build created: " + buildName);
@@ -1175,37 +1686,63 @@ public class TeiidOpenShiftClient implements StringConstants {
                     PodOperationsImpl publishPod = (PodOperationsImpl)client.pods().withName(buildName + "-build");
 
                     info(openShiftName, "Publishing - Awaiting pod readiness ...");
-                    waitUntilPodIsReady(openShiftName, client, buildName + "-build", 20);
-
-                    info(openShiftName, "Publishing - Fetching environment variables for vdb data sources");
-
-                    publishConfig.addEnvironmentVariables(
-                            getEnvironmentVariablesForVDBDataSources(vdb, publishConfig, openShiftName));
-
-                    publishConfig.addSecretVariables(getSecretVariablesForVDBDataSources(vdb, publishConfig));
-
                     work.setName(buildName);
-                    work.setStatusMessage("Build Running");
-                    work.setPublishPodName(publishPod.getName());
+                    work.setStatusMessage("Awaiting build pod readiness");
                     work.setLastUpdated();
-                    work.setStatus(Status.BUILDING);
-
-                    info(openShiftName, "Publishing  - Configuration completed. Building ... Pod Name: " + work.getPublishPodName());
-
+                    whenPodIsReady(work, client, publishPod.getName(), 20,
+                            () -> completeConfiguration(work, publishPod.getName()));
+                    awaitingPod = true;
                 } catch (Exception ex) {
                     work.setStatus(Status.FAILED);
                     work.setStatusMessage(ex.getLocalizedMessage());
                     error(work.getOpenShiftName(), "Publishing - Build failed", ex);
                 } finally {
-                    //
-                    // Building is a long running operation so close the log file
-                    //
-                    closeLog(openShiftName);
+                    if (!awaitingPod) {
+                        closeLog(openShiftName);
+                        triggerCheck(openShiftName);
+                    }
                 }
             }
         });
     }
 
+    /**
+     * The remaining configuration once the build pod is ready
+     */
+    void completeConfiguration(BuildStatus work, String publishPodName) {
+        String openShiftName = work.getOpenShiftName();
+        if (getVirtualizationStatusFromQueue(openShiftName) != work) {
+            // replaced by a newer publish or delete
+            closeLog(openShiftName);
+            return;
+        }
+        PublishConfiguration publishConfig = work.getPublishConfiguration();
+        try {
+            // allows for later vdb only changes to be redeployed in place
+            publishConfig.addSecretVariables(Collections.singletonMap(VDB_RELOAD_TOKEN_KEY, Base64.getEncoder()
+                    .encodeToString(UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8))));
+            publishConfig.addEnvironmentVariables(Collections.singletonList(
+                    envFromSecret(secretName(openShiftName), VDB_RELOAD_TOKEN_KEY)));
+
+            work.setStatusMessage("Build Running");
+            work.setPublishPodName(publishPodName);
+            work.setLastUpdated();
+            work.setStatus(Status.BUILDING);
+
+            info(openShiftName, "Publishing  - Configuration completed. Building ... Pod Name: " + work.getPublishPodName());
+        } catch (Exception ex) {
+            work.setStatus(Status.FAILED);
+            work.setStatusMessage(ex.getLocalizedMessage());
+            error(openShiftName, "Publishing - Build failed", ex);
+        } finally {
+            //
+            // Building is a long running operation so close the log file
+            //
+            closeLog(openShiftName);
+            triggerCheck(openShiftName);
+        }
+    }
+
     protected void normalizeDataSourceNames(VDBMetaData vdb) {
         for (ModelMetaData model : vdb.getModelMetaDatas().values()) {
             for (SourceMappingMetadata source : model.getSources().values()) {
@@ -1216,50 +1753,97 @@ public class TeiidOpenShiftClient implements StringConstants {
         }
     }
 
-    protected void buildDataSourceBuilders(Model model, GenericArchive archive) throws KException {
+    /**
+     * Write the s2i project for the vdb.  Each entry is written as it is generated,
+     * so that the archive is not held in memory.
+     */
+    void writeBuildContents(TarOutputStream tar, String pomFile, VDBMetaData vdb, long vdbSize,
+            Map<String, String> dataSources) throws IOException, XMLStreamException {
+        writeEntry(tar, "pom.xml", pomFile.getBytes(StandardCharsets.UTF_8));
+
+        tar.putNextEntry("src/main/resources/" + vdb.getName() + "-vdb.xml", vdbSize);
+        VDBMetadataParser.marshell(vdb, new FilterOutputStream(tar) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+            @Override
+            public void close() throws IOException {
+                //the tar remains open for the next entry
+                out.flush();
+            }
+        });
+        tar.closeEntry();
+
+        try (InputStream configIs = this.getClass().getClassLoader().getResourceAsStream("s2i/application.properties")) {
+            writeEntry(tar, "src/main/resources/application.properties", ObjectConverterUtil.convertToByteArray(configIs));
+        }
+        for (Map.Entry<String, String> entry : dataSources.entrySet()) {
+            writeEntry(tar, entry.getKey(), entry.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+        try (InputStream appIs = this.getClass().getClassLoader().getResourceAsStream("s2i/Application.java")) {
+            writeEntry(tar, "src/main/java/io/integration/Application.java", ObjectConverterUtil.convertToByteArray(appIs));
+        }
+        tar.finish();
+    }
+
+    private static void writeEntry(TarOutputStream tar, String name, byte[] contents) throws IOException {
+        tar.putNextEntry(name, contents.length);
+        tar.write(contents);
+        tar.closeEntry();
+    }
+
+    /**
+     * @return the size of the vdb xml, without holding the xml in memory
+     */
+    static long getVdbXmlSize(VDBMetaData vdb) throws KException {
+        long[] size = new long[1];
+        try {
+            VDBMetadataParser.marshell(vdb, new OutputStream() {
+                @Override
+                public void write(int b) {
+                    size[0]++;
+                }
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    size[0] += len;
+                }
+            });
+        } catch (XMLStreamException | IOException e) {
+            throw handleError(e);
+        }
+        return size[0];
+    }
+
+    /**
+     * @return the generated data source classes by path in the build contents
+     */
+    protected Map<String, String> buildDataSourceBuilders(Model model) throws KException {
+        Map<String, String> result = new TreeMap<>();
         for (String name : model.getSourceNames()) {
             try {
-                String str = null;
                 String replacement = model.getSourceConnectionJndiName(name);
                 String translatorName = model.getSourceTranslatorName(name);
+                String resource = null;
                 if (translatorName.equals("salesforce")) {
-                    InputStream is = this.getClass().getClassLoader().getResourceAsStream("s2i/Salesforce.mustache");
-                    str = inputStreamToString(is);
-                    str = str.replace("{{packageName}}", "io.integration");
-                    str = str.replace("{{dsName}}", replacement);
-
+                    resource = "s2i/Salesforce.mustache";
                 } else if (translatorName.equals("mongodb")) {
-                    InputStream is = this.getClass().getClassLoader().getResourceAsStream("s2i/MongoDB.mustache");
-                    str = inputStreamToString(is);
-                    str = str.replace("{{packageName}}", "io.integration");
-                    str = str.replace("{{dsName}}", replacement);
-
+                    resource = "s2i/MongoDB.mustache";
                 } else {
-                    InputStream is = this.getClass().getClassLoader().getResourceAsStream("s2i/Jdbc.mustache");
-                    str = inputStreamToString(is);
-                    str = str.replace("{{packageName}}", "io.integration");
-                    str = str.replace("{{dsName}}", replacement);
+                    resource = "s2i/Jdbc.mustache";
                 }
-                archive.add(new ByteArrayAsset(ObjectConverterUtil
-                        .convertToByteArray(new ByteArrayInputStream(str.getBytes("UTF-8")))),
-                        "/src/main/java/io/integration/DataSources" + replacement + ".java");
+                Map<String, String> values = new HashMap<>();
+                values.put("packageName", "io.integration");
+                values.put("dsName", replacement);
+                String str = CompiledTemplate.forResource(resource, CompiledTemplate.MUSTACHE_OPEN,
+                        CompiledTemplate.MUSTACHE_CLOSE).render(values);
+                result.put("src/main/java/io/integration/DataSources" + replacement + ".java", str);
 
             } catch (IOException e) {
                 throw handleError(e);
             }
         }
-    }
-
-    private static String inputStreamToString(InputStream inputStream) throws IOException {
-        StringBuilder textBuilder = new StringBuilder();
-        try (Reader reader = new BufferedReader(new InputStreamReader
-          (inputStream, Charset.forName(StandardCharsets.UTF_8.name())))) {
-            int c = 0;
-            while ((c = reader.read()) != -1) {
-                textBuilder.append((char) c);
-            }
-        }
-        return textBuilder.toString();
+        return result;
     }
 
     /**
@@ -1373,7 +1957,8 @@ public class TeiidOpenShiftClient implements StringConstants {
         }
         try {
             OpenShiftClient client = openshiftClient();
-            status = getVDBService(openShiftName, ApplicationProperties.getNamespace(), client);
+            String namespace = ApplicationProperties.getNamespace();
+            status = getVDBService(openShiftName, namespace, loadStatusResources(client, namespace, openShiftName));
         } catch (KubernetesClientException e) {
             LOGGER.debug("Could not get build status for VDB: "  +openShiftName +" error:"+ e.getMessage());
             status = new BuildStatus(openShiftName);
@@ -1385,6 +1970,167 @@ public class TeiidOpenShiftClient implements StringConstants {
         return status;
     }
 
+    /**
+     * Get the status of each of the virtualizations.  Rather than looking up each virtualization,
+     * the resources of all virtualizations are listed once and cached briefly, so that repeated
+     * requests for the list are served from memory.
+     * @return the status by virtualization name
+     */
+    public Map<String, BuildStatus> getVirtualizationStatuses(Collection<DataVirtualization> virtualizations) throws KException {
+        Map<String, BuildStatus> result = new HashMap<>();
+        StatusResources resources = null;
+        for (DataVirtualization virtualization : virtualizations) {
+            String openShiftName = getOpenShiftName(virtualization.getName());
+            BuildStatus status = getVirtualizationStatusFromQueue(openShiftName);
+            if (status == null) {
+                try {
+                    if (resources == null) {
+                        resources = getStatusResources();
+                    }
+                    status = getFinishedStatus(openShiftName, resources);
+                    if (status == null) {
+                        status = getVDBService(openShiftName, resources.namespace, resources);
+                    }
+                } catch (KubernetesClientException e) {
+                    LOGGER.debug("Could not get build status for VDB: "  +openShiftName +" error:"+ e.getMessage());
+                    status = new BuildStatus(openShiftName);
+                }
+                status.setDataVirtualizationName(virtualization.getName());
+                if (status.getStatus() == BuildStatus.Status.RUNNING) {
+                    status.setUsedBy(findIntegrationUsedIn(virtualization));
+                }
+            }
+            result.put(virtualization.getName(), status);
+        }
+        return result;
+    }
+
+    /**
+     * Get the status of finished work if the resources were loaded before it finished
+     * and so may not reflect it yet
+     */
+    private BuildStatus getFinishedStatus(String openShiftName, StatusResources resources) {
+        BuildStatus finished = finishedJobs.get(openShiftName);
+        if (finished != null && resources.loaded > finished.getLastUpdated()) {
+            finishedJobs.remove(openShiftName, finished);
+            return null;
+        }
+        return finished;
+    }
+
+    /**
+     * The builds, deployment configs, routes and replication controllers
+     * labeled with an application, grouped by the application
+     */
+    static class StatusResources {
+        final String namespace;
+        /**
+         * When loading started, so that nothing changed later is reflected
+         */
+        final long loaded;
+        final Map<String, List<Build>> builds;
+        final Map<String, List<DeploymentConfig>> deploymentConfigs;
+        final Map<String, List<Route>> routes;
+        final Map<String, List<ReplicationController>> replicationControllers;
+
+        StatusResources(String namespace, List<Build> builds, List<DeploymentConfig> deploymentConfigs,
+                List<Route> routes, List<ReplicationController> replicationControllers) {
+            this(namespace, System.currentTimeMillis(), builds, deploymentConfigs, routes, replicationControllers);
+        }
+
+        StatusResources(String namespace, long loaded, List<Build> builds, List<DeploymentConfig> deploymentConfigs,
+                List<Route> routes, List<ReplicationController> replicationControllers) {
+            this.namespace = namespace;
+            this.loaded = loaded;
+            this.builds = groupByApplication(builds);
+            this.deploymentConfigs = groupByApplication(deploymentConfigs);
+            this.routes = groupByApplication(routes);
+            this.replicationControllers = groupByApplication(replicationControllers);
+        }
+
+        private static <T extends HasMetadata> Map<String, List<T>> groupByApplication(List<T> items) {
+            Map<String, List<T>> result = new HashMap<>();
+            for (T item : items) {
+                Map<String, String> labels = item.getMetadata().getLabels();
+                String application = labels == null ? null : labels.get(APPLICATION_LABEL);
+                if (application != null) {
+                    result.computeIfAbsent(application, k -> new ArrayList<>()).add(item);
+                }
+            }
+            return result;
+        }
+
+        <T> List<T> get(Map<String, List<T>> items, String openShiftName) {
+            List<T> result = items.get(openShiftName);
+            return result == null ? Collections.emptyList() : result;
+        }
+    }
+
+    /**
+     * Load the resources of the given application, or of all applications when null,
+     * from the resource cache or with a single list call per kind of resource
+     */
+    protected StatusResources loadStatusResources(OpenShiftClient client, String namespace, String openShiftName) {
+        startWatches(namespace);
+        long loaded = System.currentTimeMillis();
+        //a null label value selects any application
+        List<Build> builds = resourceCache.list(resourceCache.builds, namespace, openShiftName,
+                () -> client.builds().inNamespace(namespace).withLabel(APPLICATION_LABEL, openShiftName).list().getItems());
+        List<DeploymentConfig> dcs = resourceCache.list(resourceCache.deploymentConfigs, namespace, openShiftName,
+                () -> client.deploymentConfigs().inNamespace(namespace).withLabel(APPLICATION_LABEL, openShiftName).list().getItems());
+        List<Route> routes = resourceCache.list(resourceCache.routes, namespace, openShiftName,
+                () -> client.routes().inNamespace(namespace).withLabel(APPLICATION_LABEL, openShiftName).list().getItems());
+        List<ReplicationController> rcs = resourceCache.list(resourceCache.replicationControllers, namespace, openShiftName,
+                () -> client.replicationControllers().inNamespace(namespace).withLabel(APPLICATION_LABEL, openShiftName).list().getItems());
+        return new StatusResources(namespace, loaded, builds, dcs, routes, rcs);
+    }
+
+    /**
+     * Get the cached resources of all applications.  Once they are older than the refresh interval
+     * the stale resources are still returned while they are refreshed in the background.
+     */
+    private StatusResources getStatusResources() {
+        if (resourceCache.isSynced()) {
+            //served from memory
+            return loadStatusResources(openshiftClient(), ApplicationProperties.getNamespace(), null);
+        }
+        StatusResources resources = this.statusResources;
+        long age = resources == null ? Long.MAX_VALUE : System.currentTimeMillis() - resources.loaded;
+        if (age > statusMaxAgeMillis) {
+            resources = loadStatusResources(openshiftClient(), ApplicationProperties.getNamespace(), null);
+            this.statusResources = resources;
+        } else if (age > statusRefreshMillis) {
+            refreshStatusResources();
+        }
+        return resources;
+    }
+
+    /**
+     * Refresh the cached resources in the background, if they have been loaded
+     */
+    private void refreshStatusResources() {
+        if (this.statusResources == null || !statusRefreshing.compareAndSet(false, true)) {
+            return;
+        }
+        monitorExecutor.execute(() -> {
+            try {
+                this.statusResources = loadStatusResources(openshiftClient(), ApplicationProperties.getNamespace(), null);
+            } catch (KubernetesClientException e) {
+                LOGGER.debug("Could not refresh the virtualization resources: " + e.getMessage());
+            } finally {
+                statusRefreshing.set(false);
+            }
+        });
+    }
+
+    public PublishQueueStatistics getPublishQueueStatistics() {
+        return publishScheduler.getStatistics();
+    }
+
+    public ResourceCacheStatistics getResourceCacheStatistics() {
+        return resourceCache.getStatistics();
+    }
+
     public String getVirtualizationLog(String virtualization) {
         String openShiftName = getOpenShiftName(virtualization);
         String logPath = getLogPath(openShiftName);
@@ -1400,13 +2146,13 @@ public class TeiidOpenShiftClient implements StringConstants {
         }
     }
 
-    private BuildStatus getVDBService(String openShiftName, String namespace, final OpenShiftClient client) {
+    private BuildStatus getVDBService(String openShiftName, String namespace, final StatusResources resources) {
         BuildStatus status = new BuildStatus(openShiftName);
         status.setNamespace(namespace);
 
-        BuildList buildList = client.builds().inNamespace(namespace).withLabel("application", openShiftName).list();
-        if ((buildList !=null) && !buildList.getItems().isEmpty()) {
-            Build build = buildList.getItems().get(0);
+        List<Build> builds = resources.get(resources.builds, openShiftName);
+        if (!builds.isEmpty()) {
+            Build build = builds.get(0);
             status.setName(build.getMetadata().getName());
             String deploymentVersion = build.getMetadata().getLabels().get(DEPLOYMENT_VERSION_LABEL);
             if (deploymentVersion != null) {
@@ -1423,7 +2169,12 @@ public class TeiidOpenShiftClient implements StringConstants {
                 status.setStatus(Status.FAILED);
                 status.setStatusMessage(build.getStatus().getMessage());
             } else if (Builds.isCompleted(build.getStatus().getPhase())) {
-                DeploymentConfig dc = client.deploymentConfigs().inNamespace(namespace).withName(openShiftName).get();
+                DeploymentConfig dc = null;
+                for (DeploymentConfig candidate : resources.get(resources.deploymentConfigs, openShiftName)) {
+                    if (openShiftName.equals(candidate.getMetadata().getName())) {
+                        dc = candidate;
+                    }
+                }
                 if (dc != null) {
                     status.setStatus(Status.DEPLOYING);
                     status.setDeploymentName(dc.getMetadata().getName());
@@ -1435,16 +2186,13 @@ public class TeiidOpenShiftClient implements StringConstants {
                         // for this virtualization
                         //
                         ProtocolType[] types = { ProtocolType.ODATA, ProtocolType.JDBC, ProtocolType.PG };
+                        List<Route> routes = resources.get(resources.routes, openShiftName);
                         for (ProtocolType type : types) {
-                            try {
-                                RouteStatus route = getRoute(openShiftName, type);
-                                if (route == null) {
-                                    continue;
-                                }
-                                status.addRoute(route);
-                            } catch(KubernetesClientException e) {
-                                // ignore..
+                            RouteStatus route = getRoute(openShiftName, type, routes);
+                            if (route == null) {
+                                continue;
                             }
+                            status.addRoute(route);
                         }
                     }
 
@@ -1475,8 +2223,7 @@ public class TeiidOpenShiftClient implements StringConstants {
             }
         } else {
             // special case when there is dangling replication controller after delete is found
-            List<ReplicationController> rcs = client.replicationControllers().inNamespace(namespace)
-                    .withLabel("application", openShiftName).list().getItems();
+            List<ReplicationController> rcs = resources.get(resources.replicationControllers, openShiftName);
             if (!rcs.isEmpty()) {
                 ReplicationController rc = rcs.get(0);
                 if (rc.getStatus().getReplicas() == 0) {
@@ -1521,6 +2268,7 @@ public class TeiidOpenShiftClient implements StringConstants {
                 final OpenShiftClient client = openshiftClient();
                 deleteVDBServiceResources(openShiftName, inProgressBuildName, status, client);
                 debug(openShiftName, "finished deleteing " + openShiftName + " service");
+                triggerCheck(openShiftName);
                 return true;
             }
         });
@@ -1528,133 +2276,75 @@ public class TeiidOpenShiftClient implements StringConstants {
         runningBuild.setStatusMessage("delete submitted");
         // since delete is async process too, monitor it in the monitor thread.
         if (queue) {
-            workExecutor.submit(new BuildStatusRunner(runningBuild));
+            monitor(runningBuild);
         }
 
         return runningBuild;
     }
 
     private BuildStatus getVirtualizationStatusFromQueue(String openshiftName) {
-        BuildStatus work = this.activeJobs.get(openshiftName);
-        if (work != null) {
-            return work;
-        }
-        for(Runnable r : workExecutor.getQueue()) {
-            if (r instanceof BuildStatusRunner) {
-                BuildStatusRunner status = (BuildStatusRunner)r;
-                if (status.work.getOpenShiftName().equals(openshiftName)) {
-                    return status.work;
-                }
-            }
+        BuildStatusRunner runner = this.activeJobs.get(openshiftName);
+        if (runner != null) {
+            return runner.work;
         }
         return null;
     }
 
     private void deleteVDBServiceResources(String openshiftName, String inProgressBuildName, BuildStatus status, OpenShiftClient client) {
         final String namespace = ApplicationProperties.getNamespace();
-
-        try {
-            // delete routes first
-            client.routes().inNamespace(namespace).withName(openshiftName + HYPHEN + ProtocolType.ODATA.id()).delete();
-            // delete services next
-            client.services().inNamespace(namespace).withName(openshiftName + HYPHEN + ProtocolType.JDBC.id()).delete();
-            client.services().inNamespace(namespace).withName(openshiftName + HYPHEN + ProtocolType.ODATA.id()).delete();
-            client.services().inNamespace(namespace).withName(openshiftName + HYPHEN + ProtocolType.PG.id()).delete();
-        } catch (KubernetesClientException e ) {
-            error(openshiftName, e.getMessage());
-            error(openshiftName, "requeueing the delete request");
-            status.setStatus(Status.DELETE_REQUEUE);
-        }
-
-        try {
-            // delete builds
-            client.builds().inNamespace(namespace).withLabel("application", openshiftName).delete();
-        } catch (KubernetesClientException e ) {
-            error(openshiftName, e.getMessage());
-            error(openshiftName, "requeueing the delete request");
-            status.setStatus(Status.DELETE_REQUEUE);
-        }
-        try {
-            // delete pods
-            client.pods().inNamespace(namespace).withLabel("application", openshiftName).delete();
-        } catch (KubernetesClientException e ) {
-            error(openshiftName, e.getMessage());
-            error(openshiftName, "requeueing the delete request");
-            status.setStatus(Status.DELETE_REQUEUE);
-        }
-        try {
-            // delete image streams
-            client.imageStreams().inNamespace(namespace).withLabel("application", openshiftName).delete();
-        } catch (KubernetesClientException e ) {
-            error(openshiftName, e.getMessage());
-            error(openshiftName, "requeueing the delete request");
-            status.setStatus(Status.DELETE_REQUEUE);
-        }
-        try {
-            // delete replication controller
-            client.replicationControllers().inNamespace(namespace).withLabel("application", openshiftName).delete();
-        } catch (KubernetesClientException e ) {
-            error(openshiftName, e.getMessage());
-            error(openshiftName, "requeueing the delete request");
-            status.setStatus(Status.DELETE_REQUEUE);
-        }
-        try {
-            // deployment configs
-            client.deploymentConfigs().inNamespace(namespace).withName(openshiftName).delete();
-        } catch (KubernetesClientException e ) {
-            error(openshiftName, e.getMessage());
-            error(openshiftName, "requeueing the delete request");
-            status.setStatus(Status.DELETE_REQUEUE);
+        // the cache may not yet have the delete events
+        resourceCache.evict(openshiftName);
+
+        Queue<String> errors = new ConcurrentLinkedQueue<>();
+        // routes before the services they expose
+        CompletableFuture<Void> routes = resourceTask(openshiftName, "delete the routes", errors,
+                () -> client.routes().inNamespace(namespace).withName(openshiftName + HYPHEN + ProtocolType.ODATA.id()).delete());
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (ProtocolType type : new ProtocolType[] {ProtocolType.JDBC, ProtocolType.ODATA, ProtocolType.PG}) {
+            tasks.add(resourceTask(openshiftName, "delete the " + type.id() + " service", errors,
+                    () -> client.services().inNamespace(namespace).withName(openshiftName + HYPHEN + type.id()).delete(), routes));
+        }
+
+        // builds and their configuration before the image streams they push to
+        CompletableFuture<Void> builds = resourceTask(openshiftName, "delete the builds", errors,
+                () -> client.builds().inNamespace(namespace).withLabel("application", openshiftName).delete());
+        CompletableFuture<Void> buildConfigs = resourceTask(openshiftName, "delete the build configuration", errors,
+                () -> client.buildConfigs().inNamespace(namespace).withLabel("application", openshiftName).delete());
+        tasks.add(resourceTask(openshiftName, "delete the image streams", errors,
+                () -> client.imageStreams().inNamespace(namespace).withLabel("application", openshiftName).delete(),
+                builds, buildConfigs));
+
+        // the deployment config before its replication controllers, which are removed before their pods
+        CompletableFuture<Void> dc = resourceTask(openshiftName, "delete the deployment config", errors,
+                () -> client.deploymentConfigs().inNamespace(namespace).withName(openshiftName).delete());
+        CompletableFuture<Void> rcs = resourceTask(openshiftName, "delete the replication controllers", errors,
+                () -> client.replicationControllers().inNamespace(namespace).withLabel("application", openshiftName).delete(), dc);
+        tasks.add(resourceTask(openshiftName, "delete the pods", errors,
+                () -> client.pods().inNamespace(namespace).withLabel("application", openshiftName).delete(), rcs));
+
+        tasks.add(resourceTask(openshiftName, "delete the secret", errors,
+                () -> client.secrets().inNamespace(namespace).withName(secretName(openshiftName)).delete()));
+        tasks.add(resourceTask(openshiftName, "delete the vdb config map", errors,
+                () -> client.configMaps().inNamespace(namespace).withName(vdbConfigMapName(openshiftName)).delete()));
+
+        CompletableFuture<Void> deleted = CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[tasks.size()]));
+        // checking a second time, as they were found to not always be deleted completely
+        CompletableFuture.allOf(
+                resourceTask(openshiftName, "delete the remaining replication controllers", errors,
+                        () -> client.replicationControllers().inNamespace(namespace).withLabel("application", openshiftName).delete(), deleted),
+                resourceTask(openshiftName, "delete the remaining image streams", errors,
+                        () -> client.imageStreams().inNamespace(namespace).withLabel("application", openshiftName).delete(), deleted)).join();
+        if (!errors.isEmpty()) {
+            error(openshiftName, "Delete completed with errors: " + String.join("; ", errors));
+            status.setStatusMessage("delete completed with errors: " + String.join("; ", errors));
         }
-        try {
-            // secrets
-            client.secrets().inNamespace(namespace).withName(secretName(openshiftName)).delete();
-        } catch (KubernetesClientException e ) {
-            error(openshiftName, e.getMessage());
-            error(openshiftName, "requeueing the delete request");
-            status.setStatus(Status.DELETE_REQUEUE);
-        }
-        try {
-            // delete build configuration
-            client.buildConfigs().inNamespace(namespace).withLabel("application", openshiftName).delete();
-        } catch (KubernetesClientException e ) {
-            error(openshiftName, e.getMessage());
-            error(openshiftName, "requeueing the delete request");
-            status.setStatus(Status.DELETE_REQUEUE);
-        }
-        try {
-            // checking 2nd time as, I found this not being deleted completely
-            // delete replication controller
-            client.replicationControllers().inNamespace(namespace).withLabel("application", openshiftName).delete();
-        } catch (KubernetesClientException e ) {
-            error(openshiftName, e.getMessage());
-            error(openshiftName, "requeueing the delete request");
-            status.setStatus(Status.DELETE_REQUEUE);
-        }
-
-        try {
-            // delete image streams
-            client.imageStreams().inNamespace(namespace).withLabel("application", openshiftName).delete();
-        } catch (KubernetesClientException e ) {
-            error(openshiftName, e.getMessage());
-            error(openshiftName, "requeueing the delete request");
-            status.setStatus(Status.DELETE_REQUEUE);
-        }
-
         status.setStatus(Status.DELETE_DONE);
     }
 
-    private RouteStatus getRoute(String openShiftName, ProtocolType protocolType) {
-        String namespace = ApplicationProperties.getNamespace();
-        OpenShiftClient client = openshiftClient();
+    private RouteStatus getRoute(String openShiftName, ProtocolType protocolType, List<Route> routes) {
         RouteStatus theRoute = null;
         debug(openShiftName, "Getting route of type " + protocolType.id() + " for Service");
-        RouteList routes = client.routes().inNamespace(namespace).list();
-        if (routes == null || routes.getItems().isEmpty()) {
-            return theRoute;
-        }
-
-        for (Route route : routes.getItems()) {
+        for (Route route : routes) {
             ObjectMeta metadata = route.getMetadata();
             String name = metadata.getName();
             if (! name.endsWith(HYPHEN + protocolType.id())) {
@@ -1665,7 +2355,7 @@ public class TeiidOpenShiftClient implements StringConstants {
             String target = spec.getTo().getName();
 
             Map<String, String> annotations = metadata.getAnnotations();
-            String description = annotations.get(DESCRIPTION_ANNOTATION_LABEL);
+            String description = annotations == null ? null : annotations.get(DESCRIPTION_ANNOTATION_LABEL);
             if (description == null || ! SERVICE_DESCRIPTION.equals(description)) {
                 continue;
             }
@@ -1695,9 +2385,8 @@ public class TeiidOpenShiftClient implements StringConstants {
      */
     protected String generatePomXml(VDBMetaData vdb, boolean enableOdata) throws KException {
         try {
-            StringBuilder builder = new StringBuilder();
-            InputStream is = this.getClass().getClassLoader().getResourceAsStream("s2i/template-pom.xml");
-            builder.append(new String(ObjectConverterUtil.convertToByteArray(is)));
+            CompiledTemplate template = CompiledTemplate.forResource("s2i/template-pom.xml",
+                    CompiledTemplate.COMMENT_OPEN, CompiledTemplate.COMMENT_CLOSE);
 
             StringBuilder vdbSourceNames = new StringBuilder();
             StringBuilder vdbDependencies = new StringBuilder();
@@ -1749,12 +2438,12 @@ public class TeiidOpenShiftClient implements StringConstants {
                         + "</dependency> ");
             }
 
-            String pomXML = builder.toString();
-            pomXML = pomXML.replace("<!--vdb-name-->", vdbName);
-            pomXML = pomXML.replace("<!--vdb-source-names-->", vdbSourceNames.toString());
-            pomXML = pomXML.replace("<!--vdb-dependencies-->", vdbDependencies.toString());
-            pomXML = pomXML.replace("<!--internal-repos-->", mavenRepositories.toString());
-            return pomXML;
+            Map<String, String> values = new HashMap<>();
+            values.put("vdb-name", vdbName);
+            values.put("vdb-source-names", vdbSourceNames.toString());
+            values.put("vdb-dependencies", vdbDependencies.toString());
+            values.put("internal-repos", mavenRepositories.toString());
+            return template.render(values);
         } catch (IOException e) {
             throw handleError(e);
         }
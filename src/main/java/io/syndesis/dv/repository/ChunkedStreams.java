@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Streams over a large value held as a sequence of numbered rows, so that
+ * at most one chunk is held in memory at a time.
+ */
+final class ChunkedStreams {
+
+    /**
+     * Receives each full chunk, numbered from 0
+     */
+    @FunctionalInterface
+    interface ChunkWriter {
+        void write(int seq, byte[] chunk);
+    }
+
+    static final int CHUNK_SIZE = 1 << 18;
+
+    private ChunkedStreams() {
+    }
+
+    static class ChunkOutputStream extends OutputStream {
+        private final ChunkWriter writer;
+        private final byte[] buffer;
+        private int count;
+        private int seq;
+        private boolean closed;
+
+        ChunkOutputStream(ChunkWriter writer, int chunkSize) {
+            this.writer = writer;
+            this.buffer = new byte[chunkSize];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            checkClosed();
+            if (count == buffer.length) {
+                writeChunk();
+            }
+            buffer[count++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkClosed();
+            while (len > 0) {
+                if (count == buffer.length) {
+                    writeChunk();
+                }
+                int toCopy = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, toCopy);
+                count += toCopy;
+                off += toCopy;
+                len -= toCopy;
+            }
+        }
+
+        private void checkClosed() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed"); //$NON-NLS-1$
+            }
+        }
+
+        private void writeChunk() {
+            //the writer is expected to consume the chunk before returning, so a full buffer is passed as is
+            writer.write(seq++, count == buffer.length ? buffer : Arrays.copyOf(buffer, count));
+            count = 0;
+        }
+
+        /**
+         * Writes the final, possibly partial, chunk.  An empty value is
+         * still written as a single empty chunk.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (count > 0 || seq == 0) {
+                writeChunk();
+            }
+        }
+    }
+
+    static class ChunkInputStream extends InputStream {
+        private final IntFunction<byte[]> reader;
+        private byte[] chunk;
+        private int pos;
+        private int seq;
+
+        /**
+         * @param reader returns the chunk with the given number, or null if there are no more
+         * @param first the already read first chunk
+         */
+        ChunkInputStream(IntFunction<byte[]> reader, byte[] first) {
+            this.reader = reader;
+            this.chunk = first;
+            this.seq = 1;
+        }
+
+        private boolean ensureAvailable() {
+            while (chunk != null && pos == chunk.length) {
+                chunk = reader.apply(seq++);
+                pos = 0;
+            }
+            return chunk != null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            return chunk[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureAvailable()) {
+                return -1;
+            }
+            int toCopy = Math.min(len, chunk.length - pos);
+            System.arraycopy(chunk, pos, b, off, toCopy);
+            pos += toCopy;
+            return toCopy;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return chunk == null ? 0 : chunk.length - pos;
+        }
+
+        @Override
+        public void close() {
+            chunk = null;
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A compact, versioned binary encoding for large text and list values.
+ * <br>
+ * Each value starts with a format version byte and a compression byte.
+ * Compressed values then hold the varint length of the uncompressed
+ * payload followed by the deflated payload.  Values are only stored
+ * compressed when they are large enough and compression actually helps.
+ * <br>
+ * A string payload is its UTF-8 bytes.  A list payload is the varint
+ * count followed by the varint length and UTF-8 bytes of each entry.
+ */
+public final class CompactEncoding {
+
+    static final byte FORMAT_VERSION = 1;
+
+    static final byte UNCOMPRESSED = 0;
+    static final byte DEFLATED = 1;
+
+    /**
+     * payloads smaller than this are not worth compressing
+     */
+    static final int COMPRESSION_THRESHOLD = 256;
+
+    private static final int HEADER_LENGTH = 2;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private CompactEncoding() {
+    }
+
+    public static byte[] encodeString(String value) {
+        if (value == null) {
+            return null;
+        }
+        return encode(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decodeString(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        return new String(decode(value), StandardCharsets.UTF_8);
+    }
+
+    public static byte[] encodeList(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        byte[][] entries = new byte[values.size()][];
+        int length = varIntLength(entries.length);
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = values.get(i).getBytes(StandardCharsets.UTF_8);
+            length += varIntLength(entries[i].length) + entries[i].length;
+        }
+        byte[] payload = new byte[length];
+        int pos = writeVarInt(payload, 0, entries.length);
+        for (byte[] entry : entries) {
+            pos = writeVarInt(payload, pos, entry.length);
+            System.arraycopy(entry, 0, payload, pos, entry.length);
+            pos += entry.length;
+        }
+        return encode(payload);
+    }
+
+    public static List<String> decodeList(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] payload = decode(value);
+        int[] pos = new int[1];
+        int count = readVarInt(payload, pos);
+        List<String> result = new ArrayList<>(Math.max(count, 1));
+        for (int i = 0; i < count; i++) {
+            int length = readVarInt(payload, pos);
+            result.add(new String(payload, pos[0], length, StandardCharsets.UTF_8));
+            pos[0] += length;
+        }
+        return result;
+    }
+
+    static byte[] encode(byte[] payload) {
+        if (payload.length >= COMPRESSION_THRESHOLD) {
+            byte[] compressed = deflate(payload);
+            if (compressed != null) {
+                return compressed;
+            }
+        }
+        byte[] result = new byte[HEADER_LENGTH + payload.length];
+        result[0] = FORMAT_VERSION;
+        result[1] = UNCOMPRESSED;
+        System.arraycopy(payload, 0, result, HEADER_LENGTH, payload.length);
+        return result;
+    }
+
+    /**
+     * @return the compressed form, or null if it would not be smaller
+     */
+    private static byte[] deflate(byte[] payload) {
+        int prefix = HEADER_LENGTH + varIntLength(payload.length);
+        //only accept output that is smaller than storing the value as is
+        byte[] buffer = new byte[payload.length];
+        buffer[0] = FORMAT_VERSION;
+        buffer[1] = DEFLATED;
+        writeVarInt(buffer, HEADER_LENGTH, payload.length);
+        Deflater deflater = DEFLATER.get();
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            int length = prefix;
+            while (!deflater.finished() && length < buffer.length) {
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            if (!deflater.finished()) {
+                return null;
+            }
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    static byte[] decode(byte[] value) {
+        if (value.length < HEADER_LENGTH || value[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported encoding format"); //$NON-NLS-1$
+        }
+        if (value[1] == UNCOMPRESSED) {
+            return Arrays.copyOfRange(value, HEADER_LENGTH, value.length);
+        }
+        if (value[1] != DEFLATED) {
+            throw new IllegalArgumentException("Unsupported compression " + value[1]); //$NON-NLS-1$
+        }
+        int[] pos = new int[] {HEADER_LENGTH};
+        byte[] result = new byte[readVarInt(value, pos)];
+        Inflater inflater = INFLATER.get();
+        try {
+            inflater.setInput(value, pos[0], value.length - pos[0]);
+            int length = 0;
+            while (length < result.length) {
+                int read = inflater.inflate(result, length, result.length - length);
+                if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != result.length) {
+                throw new IllegalArgumentException("Truncated value"); //$NON-NLS-1$
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException(e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    static int varIntLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    static int writeVarInt(byte[] buffer, int pos, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer[pos++] = (byte)((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte)value;
+        return pos;
+    }
+
+    static int readVarInt(byte[] buffer, int[] pos) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer[pos[0]++];
+            result |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed length"); //$NON-NLS-1$
+    }
+
+}
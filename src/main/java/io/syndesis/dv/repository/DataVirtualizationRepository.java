@@ -36,6 +36,9 @@ public interface DataVirtualizationRepository extends JpaRepository<DataVirtuali
     @Query(value = "SELECT count(*) FROM data_virtualization where upper_name = :name", nativeQuery = true)
     public long countByUpperName(@Param("name") String name);
 
+    @Query(value = "SELECT count(*) FROM data_virtualization where type = 'v' and source_id = :sourceId", nativeQuery = true)
+    public long countBySourceId(@Param("sourceId") String sourceId);
+
     @Query(value = "from DataVirtualization where source_id = :sourceId")
     public DataVirtualization findBySourceId(@Param("sourceId") String sourceId);
 
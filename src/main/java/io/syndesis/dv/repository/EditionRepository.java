@@ -38,10 +38,30 @@ public interface EditionRepository extends JpaRepository<Edition, String> {
     List<Edition> findAllByDataVirtualizationName(String virtualization);
 
     @Modifying
-    @Query(value = "update edition set dv_export = :byteArray where id = :id", nativeQuery = true)
-    void saveExport(@Param("id") String id, @Param("byteArray") byte[] byteArray);
+    @Query(value = "insert into export_blob_chunk (blob_id, seq, data) values (:id, :seq, :data)", nativeQuery = true)
+    void saveBlobChunk(@Param("id") String id, @Param("seq") int seq, @Param("data") byte[] data);
 
-    @Query(value = "select dv_export from edition where id = :id", nativeQuery = true)
-    byte[] findExport(@Param("id") String id);
+    @Query(value = "select data from export_blob_chunk where blob_id = :id and seq = :seq", nativeQuery = true)
+    byte[] findBlobChunk(@Param("id") String id, @Param("seq") int seq);
+
+    @Modifying
+    @Query(value = "delete from export_blob_chunk where blob_id = :id", nativeQuery = true)
+    void deleteBlobChunks(@Param("id") String id);
+
+    @Query(value = "select min(id) from export_blob where hash = :hash", nativeQuery = true)
+    String findBlobIdByHash(@Param("hash") String hash);
+
+    @Modifying
+    @Query(value = "insert into export_blob (id, hash, blob_size) values (:id, :hash, :size)", nativeQuery = true)
+    void saveBlob(@Param("id") String id, @Param("hash") String hash, @Param("size") long size);
+
+    @Modifying
+    @Query(value = "delete from export_blob where not exists (select 1 from edition where edition.export_blob_id = export_blob.id)", nativeQuery = true)
+    int deleteUnreferencedBlobs();
+
+    @Modifying
+    @Query(value = "delete from export_blob_chunk where not exists "
+            + "(select 1 from export_blob where export_blob.id = export_blob_chunk.blob_id)", nativeQuery = true)
+    int deleteUnreferencedBlobChunks();
 
 }
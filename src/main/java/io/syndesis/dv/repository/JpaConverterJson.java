@@ -1,56 +0,0 @@
-/*
- * Copyright (C) 2013 Red Hat, Inc.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package io.syndesis.dv.repository;
-
-import java.io.IOException;
-
-import javax.persistence.AttributeConverter;
-import javax.persistence.Converter;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-/**
- *
- * @see "https://stackoverflow.com/questions/25738569/how-to-map-a-map-json-column-to-java-object-with-jpa"
- */
-@Converter(autoApply = true)
-public abstract class JpaConverterJson<T> implements AttributeConverter<T, String> {
-
-    private static final ObjectMapper objectMapper = new ObjectMapper();
-
-    @Override
-    public String convertToDatabaseColumn(Object meta) {
-        try {
-            return objectMapper.writeValueAsString(meta);
-        } catch (JsonProcessingException ex) {
-            throw new RuntimeException(ex);
-        }
-    }
-
-    @Override
-    public T convertToEntityAttribute(String dbData) {
-        try {
-            return objectMapper.readValue(dbData, targetClass());
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
-        }
-    }
-
-    public abstract Class<T> targetClass();
-
-}
\ No newline at end of file
@@ -16,23 +16,45 @@
 
 package io.syndesis.dv.repository;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.util.Pair;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.TransactionTimedOutException;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.teiid.core.util.ObjectConverterUtil;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import io.syndesis.dv.RepositoryManager;
 import io.syndesis.dv.model.DataVirtualization;
 import io.syndesis.dv.model.Edition;
 import io.syndesis.dv.model.SourceSchema;
 import io.syndesis.dv.model.ViewDefinition;
+import io.syndesis.dv.model.ViewDefinitionSummary;
+import io.syndesis.dv.model.ViewDependency;
+import io.syndesis.dv.utils.HashingOutputStream;
 import io.syndesis.dv.utils.KLog;
 
 @Component
@@ -45,6 +67,28 @@ public class RepositoryManagerImpl implements RepositoryManager {
 
     protected static final KLog LOGGER = KLog.getLogger();
 
+    private static final String DATA_VIRTUALIZATION_KEY_PREFIX = "v:"; //$NON-NLS-1$
+    private static final String SCHEMA_KEY_PREFIX = "s:"; //$NON-NLS-1$
+    private static final long DDL_CACHE_MAX_CHARS = 32 * 1024 * 1024;
+
+    /**
+     * A source schema ddl along with the entity version it was read at
+     */
+    private static class VersionedDdl {
+        final Long version;
+        final String ddl;
+
+        VersionedDdl(Long version, String ddl) {
+            this.version = version;
+            this.ddl = ddl;
+        }
+    }
+
+    /**
+     * Key for the per transaction entity lookups
+     */
+    private final Object transactionCacheKey = new Object();
+
     @Autowired
     private DataVirtualizationRepository dataVirtualizationRepository;
     @Autowired
@@ -54,7 +98,20 @@ public class RepositoryManagerImpl implements RepositoryManager {
     @Autowired
     private EditionRepository editionRepository;
     @Autowired
+    private ViewDependencyRepository viewDependencyRepository;
+    @Autowired
     private PlatformTransactionManager platformTransactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * source schema ddl keyed by source id, bounded by the total length of the ddl.  Entries are
+     * only used if the version still matches the database, so updates from other pods are seen.
+     */
+    private Cache<String, VersionedDdl> ddlCache = CacheBuilder.newBuilder()
+            .maximumWeight(DDL_CACHE_MAX_CHARS)
+            .<String, VersionedDdl>weigher((id, cached) -> cached.ddl == null ? 1 : Math.max(1, cached.ddl.length()))
+            .build();
 
     @Override
     public <T> T runInTransaction(boolean rollbackOnly, Callable<T> callable) throws Exception {
@@ -88,13 +145,111 @@ public class RepositoryManagerImpl implements RepositoryManager {
         }
     }
 
+    /**
+     * Lookup an entity by a unique key, reusing the result of a previous lookup in the
+     * same transaction if the entity is still managed.  Not found results are not remembered.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T findInTransaction(String key, Supplier<T> finder) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return finder.get();
+        }
+        Map<String, Object> lookups = (Map<String, Object>)TransactionSynchronizationManager.getResource(transactionCacheKey);
+        if (lookups == null) {
+            lookups = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(transactionCacheKey, lookups);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(transactionCacheKey);
+                }
+            });
+        }
+        T result = getFromTransaction(key);
+        if (result != null) {
+            return result;
+        }
+        result = finder.get();
+        if (result != null) {
+            lookups.put(key, result);
+        } else {
+            lookups.remove(key);
+        }
+        return result;
+    }
+
+    /**
+     * Forget the per transaction lookups, needed after deletes
+     */
+    private void clearTransactionCache() {
+        Object lookups = TransactionSynchronizationManager.getResource(transactionCacheKey);
+        if (lookups != null) {
+            ((Map<?, ?>)lookups).clear();
+        }
+    }
+
     @Override
     public io.syndesis.dv.model.SourceSchema findSchemaBySourceId(String id) {
-        return this.schemaRepository.findBySourceId(id);
+        //the entity may be modified
+        ddlCache.invalidate(id);
+        return findInTransaction(SCHEMA_KEY_PREFIX + id, () -> this.schemaRepository.findBySourceId(id));
+    }
+
+    /**
+     * Get the entity remembered by {@link #findInTransaction(String, Supplier)} without
+     * performing a lookup
+     * @return the entity or null if it was not already loaded in this transaction
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getFromTransaction(String key) {
+        Map<String, Object> lookups = (Map<String, Object>)TransactionSynchronizationManager.getResource(transactionCacheKey);
+        if (lookups == null) {
+            return null;
+        }
+        T result = (T)lookups.get(key);
+        if (result != null && entityManager.contains(result)) {
+            return result;
+        }
+        return null;
+    }
+
+    @Override
+    public String findSchemaDdlBySourceId(String id) {
+        //reuse the entity if it's already loaded
+        SourceSchema loaded = getFromTransaction(SCHEMA_KEY_PREFIX + id);
+        if (loaded != null) {
+            return loaded.getDdl();
+        }
+        VersionedDdl cached = ddlCache.getIfPresent(id);
+        if (cached != null) {
+            Long version = this.schemaRepository.findVersionBySourceId(id);
+            if (version == null) {
+                ddlCache.invalidate(id);
+                return null;
+            }
+            if (version.equals(cached.version)) {
+                return cached.ddl;
+            }
+        }
+        List<Object[]> result = this.schemaRepository.findVersionAndDdlBySourceId(id);
+        if (result.isEmpty()) {
+            ddlCache.invalidate(id);
+            return null;
+        }
+        cached = new VersionedDdl((Long)result.get(0)[0], (String)result.get(0)[1]);
+        ddlCache.put(id, cached);
+        return cached.ddl;
+    }
+
+    @Override
+    public String findSchemaNameBySourceId(String id) {
+        return this.schemaRepository.findNameBySourceId(id);
     }
 
     @Override
     public boolean deleteSchemaBySourceId(String sourceid) {
+        ddlCache.invalidate(sourceid);
+        clearTransactionCache();
         try {
             if (this.schemaRepository.deleteBySourceId(sourceid) == 0) {
                 return false;
@@ -107,6 +262,7 @@ public class RepositoryManagerImpl implements RepositoryManager {
 
     @Override
     public SourceSchema createSchema(String sourceId, String name, String contents) {
+        ddlCache.invalidate(sourceId);
         SourceSchema schema = new SourceSchema();
         schema.setSourceId(sourceId);
         schema.setName(name);
@@ -132,7 +288,8 @@ public class RepositoryManagerImpl implements RepositoryManager {
 
     @Override
     public DataVirtualization findDataVirtualization(String virtualizationName) {
-        return this.dataVirtualizationRepository.findByName(virtualizationName);
+        return findInTransaction(DATA_VIRTUALIZATION_KEY_PREFIX + virtualizationName,
+                () -> this.dataVirtualizationRepository.findByName(virtualizationName));
     }
 
     @Override
@@ -140,6 +297,11 @@ public class RepositoryManagerImpl implements RepositoryManager {
         return this.dataVirtualizationRepository.findBySourceId(sourceId);
     }
 
+    @Override
+    public boolean isDataVirtualizationSource(String sourceId) {
+        return this.dataVirtualizationRepository.countBySourceId(sourceId) > 0;
+    }
+
     @Override
     public DataVirtualization findDataVirtualizationByNameIgnoreCase(
             String virtualizationName) {
@@ -158,12 +320,15 @@ public class RepositoryManagerImpl implements RepositoryManager {
 
     @Override
     public boolean deleteDataVirtualization(String serviceName) {
-        io.syndesis.dv.model.DataVirtualization dv = this.dataVirtualizationRepository.findByName(serviceName);
+        io.syndesis.dv.model.DataVirtualization dv = findDataVirtualization(serviceName);
         if (dv == null) {
             return false;
         }
+        clearTransactionCache();
         this.dataVirtualizationRepository.delete(dv);
         this.dataVirtualizationRepository.flush();
+        //the editions are removed by cascade, which may leave exports no longer referenced
+        deleteUnreferencedExports();
         return true;
     }
 
@@ -188,6 +353,31 @@ public class RepositoryManagerImpl implements RepositoryManager {
         return this.viewDefinitionRepository.findAllByDataVirtualizationName(dvName);
     }
 
+    @Override
+    public List<ViewDefinitionSummary> findViewDefinitionSummaries(String dvName) {
+        return this.viewDefinitionRepository.findAllSummariesByDataVirtualizationName(dvName);
+    }
+
+    @Override
+    public List<ViewDefinitionSummary> findViewDefinitionSummaries(Collection<String> dvNames) {
+        if (dvNames.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return this.viewDefinitionRepository.findAllSummariesByDataVirtualizationNames(dvNames);
+    }
+
+    @Override
+    public Map<String, Long> findViewDefinitionCounts(Collection<String> dvNames) {
+        Map<String, Long> result = new HashMap<>();
+        if (dvNames.isEmpty()) {
+            return result;
+        }
+        for (Object[] row : this.viewDefinitionRepository.countByDataVirtualizationNames(dvNames)) {
+            result.put((String)row[0], ((Number)row[1]).longValue());
+        }
+        return result;
+    }
+
     @Override
     public boolean deleteViewDefinition(String id) {
         try {
@@ -234,16 +424,116 @@ public class RepositoryManagerImpl implements RepositoryManager {
 
     @Override
     public void saveEditionExport(Edition edition, byte[] byteArray) {
-        this.editionRepository.saveExport(edition.getId(), byteArray);
+        try (OutputStream os = openEditionExportOutput(edition)) {
+            os.write(byteArray);
+        } catch (IOException e) {
+            //not expected as the chunks are written directly
+            throw new IllegalStateException(e);
+        }
     }
 
     @Override
     public byte[] findEditionExport(Edition edition) {
-        return this.editionRepository.findExport(edition.getId());
+        InputStream is = openEditionExportInput(edition);
+        if (is == null) {
+            return null;
+        }
+        try {
+            return ObjectConverterUtil.convertToByteArray(is);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public OutputStream openEditionExportOutput(Edition edition) {
+        //chunks are written under a new blob id, the blob is only kept if the content hash is new
+        String blobId = UUID.randomUUID().toString();
+        ChunkedStreams.ChunkOutputStream chunks = new ChunkedStreams.ChunkOutputStream(
+                (seq, chunk) -> this.editionRepository.saveBlobChunk(blobId, seq, chunk), ChunkedStreams.CHUNK_SIZE);
+        return new HashingOutputStream(chunks, true) {
+            @Override
+            public void close() throws IOException {
+                if (getHash() != null) {
+                    return;
+                }
+                super.close();
+                saveEditionExportBlob(edition, blobId, getHash(), getSize());
+            }
+        };
+    }
+
+    /**
+     * Keep the written chunks as a new blob, unless that content is already stored,
+     * and point the edition at it.
+     * <br>
+     * Concurrent writers of the same content won't see each other's uncommitted blob, so
+     * they may both keep theirs.  That only costs space, while sharing a key would fail
+     * one of the transactions.
+     */
+    private void saveEditionExportBlob(Edition edition, String blobId, String hash, long size) {
+        String existing = this.editionRepository.findBlobIdByHash(hash);
+        if (existing == null) {
+            this.editionRepository.saveBlob(blobId, hash, size);
+        } else {
+            this.editionRepository.deleteBlobChunks(blobId);
+            blobId = existing;
+        }
+        String previous = edition.getExportBlobId();
+        edition.setExportBlobId(blobId);
+        this.editionRepository.save(edition);
+        if (previous != null && !previous.equals(blobId)) {
+            this.editionRepository.flush();
+            deleteUnreferencedExports();
+        }
+    }
+
+    private void deleteUnreferencedExports() {
+        int count = this.editionRepository.deleteUnreferencedBlobs();
+        if (count > 0) {
+            this.editionRepository.deleteUnreferencedBlobChunks();
+        }
+    }
+
+    @Override
+    public InputStream openEditionExportInput(Edition edition) {
+        String blobId = edition.getExportBlobId();
+        if (blobId == null) {
+            return null;
+        }
+        byte[] first = this.editionRepository.findBlobChunk(blobId, 0);
+        if (first == null) {
+            return null;
+        }
+        return new ChunkedStreams.ChunkInputStream(seq -> this.editionRepository.findBlobChunk(blobId, seq), first);
     }
 
     @Override
     public Long deleteViewDefinitions(String virtualization) {
         return this.viewDefinitionRepository.deleteByDataVirtualizationName(virtualization);
     }
+
+    @Override
+    public void saveViewDependencies(ViewDefinition viewDefinition) {
+        this.viewDependencyRepository.deleteByViewDefinitionId(viewDefinition.getId());
+        List<ViewDependency> dependencies = new ArrayList<>();
+        for (String path : viewDefinition.getSourcePaths()) {
+            Pair<String, String> sourceTable = ViewDependency.parseSourcePath(path);
+            if (sourceTable == null) {
+                continue;
+            }
+            dependencies.add(new ViewDependency(viewDefinition, sourceTable.getFirst(), sourceTable.getSecond()));
+        }
+        this.viewDependencyRepository.saveAll(dependencies);
+    }
+
+    @Override
+    public List<String> findDataVirtualizationNamesBySource(String sourceName) {
+        return this.viewDependencyRepository.findDataVirtualizationNamesBySourceName(sourceName);
+    }
+
+    @Override
+    public List<ViewDefinition> findViewDefinitionsBySourceTable(String sourceName, String tableName) {
+        return this.viewDependencyRepository.findViewDefinitionsBySourceTable(sourceName, tableName);
+    }
 }
@@ -16,6 +16,8 @@
 
 package io.syndesis.dv.repository;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -29,6 +31,15 @@ public interface SourceSchemaRepository extends JpaRepository<SourceSchema, Stri
 
     public SourceSchema findBySourceId(String id);
 
+    @Query("select s.version from SourceSchema s where s.sourceId=:sourceId")
+    public Long findVersionBySourceId(@Param("sourceId") String sourceId);
+
+    @Query("select s.name from SourceSchema s where s.sourceId=:sourceId")
+    public String findNameBySourceId(@Param("sourceId") String sourceId);
+
+    @Query("select s.version, s.ddl from SourceSchema s where s.sourceId=:sourceId")
+    public List<Object[]> findVersionAndDdlBySourceId(@Param("sourceId") String sourceId);
+
     @Modifying
     @Query("delete from SourceSchema s where s.sourceId=:sourceId")
     public int deleteBySourceId(@Param("sourceId") String sourceid);
@@ -16,6 +16,7 @@
 
 package io.syndesis.dv.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -24,6 +25,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import io.syndesis.dv.model.ViewDefinition;
+import io.syndesis.dv.model.ViewDefinitionSummary;
 
 @Repository
 public interface ViewDefinitionRepository extends JpaRepository<ViewDefinition, String> {
@@ -33,6 +35,18 @@ public interface ViewDefinitionRepository extends JpaRepository<ViewDefinition,
 
     public List<ViewDefinition> findAllByDataVirtualizationName(String dvName);
 
+    @Query("select vd.id as id, vd.name as name, vd.description as description, vd.dataVirtualizationName as dataVirtualizationName, "
+            + "vd.parsable as parsable from ViewDefinition vd where vd.dataVirtualizationName = :dvName")
+    public List<ViewDefinitionSummary> findAllSummariesByDataVirtualizationName(@Param("dvName") String dvName);
+
+    @Query("select vd.id as id, vd.name as name, vd.description as description, vd.dataVirtualizationName as dataVirtualizationName, "
+            + "vd.parsable as parsable from ViewDefinition vd where vd.dataVirtualizationName in :dvNames")
+    public List<ViewDefinitionSummary> findAllSummariesByDataVirtualizationNames(@Param("dvNames") Collection<String> dvNames);
+
+    @Query("select vd.dataVirtualizationName, count(vd) from ViewDefinition vd where vd.dataVirtualizationName in :dvNames "
+            + "group by vd.dataVirtualizationName")
+    public List<Object[]> countByDataVirtualizationNames(@Param("dvNames") Collection<String> dvNames);
+
     @Query(value = "SELECT name FROM view_definition WHERE dv_name = ?1", nativeQuery = true)
     public List<String> findAllNamesByDataVirtualizationName(String dvName);
 
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.syndesis.dv.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import io.syndesis.dv.model.ViewDefinition;
+import io.syndesis.dv.model.ViewDependency;
+
+@Repository
+public interface ViewDependencyRepository extends JpaRepository<ViewDependency, String> {
+
+    @Modifying
+    @Query(value = "delete from view_dependency where view_id = :viewId", nativeQuery = true)
+    int deleteByViewDefinitionId(@Param("viewId") String viewId);
+
+    @Query(value = "SELECT DISTINCT dv_name FROM view_dependency WHERE source_name = :sourceName", nativeQuery = true)
+    List<String> findDataVirtualizationNamesBySourceName(@Param("sourceName") String sourceName);
+
+    @Query("from ViewDefinition vd where vd.id in (select d.viewDefinitionId from ViewDependency d where d.sourceName = :sourceName and d.tableName = :tableName)")
+    List<ViewDefinition> findViewDefinitionsBySourceTable(@Param("sourceName") String sourceName, @Param("tableName") String tableName);
+
+}
@@ -17,11 +17,30 @@ package io.syndesis.dv.server;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import io.syndesis.dv.openshift.PublishScheduler;
+
 @ConfigurationProperties("controllers")
 public class DvConfigurationProperties {
 
     private boolean exposeVia3scale;
 
+    /**
+     * The maximum number of publish configurations that run at the same time
+     */
+    private int publishConcurrency = 3;
+
+    /**
+     * The maximum number of publish configurations that run at the same time in a namespace, 0 for no limit
+     */
+    private int publishNamespaceLimit;
+
+    private PublishScheduler.Ordering publishOrdering = PublishScheduler.Ordering.FIFO;
+
+    /**
+     * How often the cached openshift resources are listed again, in case a watch event was missed
+     */
+    private long resourceResyncMillis = 300000;
+
     public void setExposeVia3scale(final boolean exposeVia3scale) {
         this.exposeVia3scale = exposeVia3scale;
     }
@@ -29,4 +48,36 @@ public class DvConfigurationProperties {
     public boolean isExposeVia3scale() {
         return exposeVia3scale;
     }
+
+    public int getPublishConcurrency() {
+        return publishConcurrency;
+    }
+
+    public void setPublishConcurrency(int publishConcurrency) {
+        this.publishConcurrency = publishConcurrency;
+    }
+
+    public int getPublishNamespaceLimit() {
+        return publishNamespaceLimit;
+    }
+
+    public void setPublishNamespaceLimit(int publishNamespaceLimit) {
+        this.publishNamespaceLimit = publishNamespaceLimit;
+    }
+
+    public PublishScheduler.Ordering getPublishOrdering() {
+        return publishOrdering;
+    }
+
+    public void setPublishOrdering(PublishScheduler.Ordering publishOrdering) {
+        this.publishOrdering = publishOrdering;
+    }
+
+    public long getResourceResyncMillis() {
+        return resourceResyncMillis;
+    }
+
+    public void setResourceResyncMillis(long resourceResyncMillis) {
+        this.resourceResyncMillis = resourceResyncMillis;
+    }
 }
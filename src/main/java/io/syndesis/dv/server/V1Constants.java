@@ -113,6 +113,16 @@ public interface V1Constants extends StringConstants {
      */
     String REFRESH_SCHEMA_SEGMENT = "refreshSchema"; //$NON-NLS-1$
 
+    /**
+     * The name of the URI path segment for paged schema browsing
+     */
+    String SCHEMA_NODES_SEGMENT = "schemaNodes"; //$NON-NLS-1$
+
+    /**
+     * The name of the URI path segment for metadata search
+     */
+    String SEARCH_SEGMENT = "search"; //$NON-NLS-1$
+
     /**
      * The name of the URI path segment for the collection of views of a vdb model
      */
@@ -154,6 +164,16 @@ public interface V1Constants extends StringConstants {
      */
     String PUBLISH = "publish"; //$NON-NLS-1$
 
+    /**
+     * Publish queue statistics
+     */
+    String PUBLISH_QUEUE = "publishQueue"; //$NON-NLS-1$
+
+    /**
+     * OpenShift resource cache statistics
+     */
+    String RESOURCE_CACHE = "resourceCache"; //$NON-NLS-1$
+
     String IMPORT = "import"; //$NON-NLS-1$
 
     /**
@@ -17,17 +17,19 @@ package io.syndesis.dv.server.endpoint;
 
 import static io.syndesis.dv.server.Messages.Error.DATASERVICE_SERVICE_SERVICE_NAME_ERROR;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -35,7 +37,6 @@ import java.util.zip.ZipOutputStream;
 import javax.xml.stream.XMLStreamException;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.InputStreamSource;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
@@ -62,6 +63,7 @@ import org.teiid.metadata.Schema;
 import org.teiid.metadata.Table;
 import org.teiid.util.FullyQualifiedName;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
@@ -82,6 +84,8 @@ import io.syndesis.dv.model.DataVirtualization;
 import io.syndesis.dv.model.Edition;
 import io.syndesis.dv.model.SourceSchema;
 import io.syndesis.dv.model.ViewDefinition;
+import io.syndesis.dv.model.ViewDefinitionSummary;
+import io.syndesis.dv.model.export.v1.BaseEntityAdapter;
 import io.syndesis.dv.model.export.v1.DataVirtualizationV1Adapter;
 import io.syndesis.dv.model.export.v1.SourceV1;
 import io.syndesis.dv.model.export.v1.ViewDefinitionV1Adapter;
@@ -89,11 +93,14 @@ import io.syndesis.dv.openshift.BuildStatus;
 import io.syndesis.dv.openshift.BuildStatus.RouteStatus;
 import io.syndesis.dv.openshift.ProtocolType;
 import io.syndesis.dv.openshift.PublishConfiguration;
+import io.syndesis.dv.openshift.PublishQueueStatistics;
+import io.syndesis.dv.openshift.ResourceCacheStatistics;
 import io.syndesis.dv.openshift.TeiidOpenShiftClient;
 import io.syndesis.dv.server.AuthHandlingFilter.OAuthCredentials;
 import io.syndesis.dv.server.DvService;
 import io.syndesis.dv.server.Messages;
 import io.syndesis.dv.server.V1Constants;
+import io.syndesis.dv.utils.HashingOutputStream;
 import io.syndesis.dv.utils.PathUtils;
 import io.syndesis.dv.utils.StringNameValidator;
 import io.syndesis.dv.utils.StringUtils;
@@ -111,6 +118,19 @@ public final class DataVirtualizationService extends DvService {
 
     private static final String DV_VDB_XML = "dv-vdb.xml"; //$NON-NLS-1$
 
+    /**
+     * Before the dos epoch, so the entries carry a constant time regardless of timezone
+     */
+    private static final long EXPORT_ENTRY_TIME = 0;
+
+    /**
+     * Mix-in to leave the timestamps out of the published export, as they change
+     * without the content changing
+     */
+    @JsonIgnoreProperties({"createdAt", "modifiedAt"}) //$NON-NLS-1$ //$NON-NLS-2$
+    private interface WithoutTimestamps {
+    }
+
     /**
      * To be a valid schema name we don't allow .
      * Since we'll add the dv- prefix, we don't char what it starts with,
@@ -129,6 +149,9 @@ public final class DataVirtualizationService extends DvService {
     @Autowired
     private EditorService utilService;
 
+    @Autowired
+    private MetadataSearchIndex searchIndex;
+
     /**
      * Get the virtualizations from the repository
      * @return a JSON document representing all the virtualizations
@@ -140,23 +163,37 @@ public final class DataVirtualizationService extends DvService {
     @ApiResponses(value = { @ApiResponse(code = 403, message = "An error has occurred.") })
     public List<RestDataVirtualization> getDataVirtualizations() throws Exception {
 
-        Iterable<? extends DataVirtualization> virtualizations = repositoryManager.runInTransaction(true, ()->{
-            return getWorkspaceManager().findDataVirtualizations();
+        Map<String, Long> viewCounts = new HashMap<>();
+        List<DataVirtualization> virtualizations = repositoryManager.runInTransaction(true, ()->{
+            List<DataVirtualization> result = new ArrayList<>();
+            getWorkspaceManager().findDataVirtualizations().forEach(result::add);
+            //a single count query rather than a names query per virtualization
+            viewCounts.putAll(getWorkspaceManager().findViewDefinitionCounts(
+                    result.stream().map(DataVirtualization::getName).collect(Collectors.toList())));
+            return result;
         });
 
-        final List<RestDataVirtualization> entities = new ArrayList<>();
+        //the statuses of all virtualizations in a single lookup
+        Map<String, BuildStatus> statuses = this.openshiftClient.getVirtualizationStatuses(virtualizations);
+        final List<RestDataVirtualization> entities = new ArrayList<>(virtualizations.size());
         for (final DataVirtualization virtualization : virtualizations) {
-            RestDataVirtualization entity = createRestDataVirtualization(virtualization);
+            RestDataVirtualization entity = createRestDataVirtualization(virtualization,
+                    !viewCounts.containsKey(virtualization.getName()), statuses.get(virtualization.getName()));
             entities.add(entity);
         }
         return entities;
     }
 
-    private RestDataVirtualization createRestDataVirtualization(final DataVirtualization virtualization) throws KException {
+    private RestDataVirtualization createRestDataVirtualization(final DataVirtualization virtualization, boolean empty) throws KException {
+        return createRestDataVirtualization(virtualization, empty,
+                this.openshiftClient.getVirtualizationStatus(virtualization.getName()));
+    }
+
+    private RestDataVirtualization createRestDataVirtualization(final DataVirtualization virtualization, boolean empty,
+            BuildStatus status) {
         RestDataVirtualization entity = new RestDataVirtualization(virtualization);
         entity.setServiceViewModel(virtualization.getName());
         // Set published status of virtualization
-        BuildStatus status = this.openshiftClient.getVirtualizationStatus(virtualization.getName());
         if (status != null) {
             entity.setPublishedState(status.getStatus().name());
             entity.setPublishPodName(status.getPublishPodName());
@@ -165,7 +202,7 @@ public final class DataVirtualizationService extends DvService {
             entity.setUsedBy(status.getUsedBy());
             entity.setPublishedRevision(status.getDeploymentVersion());
         }
-        entity.setEmpty(this.getWorkspaceManager().findViewDefinitionsNames(virtualization.getName()).isEmpty());
+        entity.setEmpty(empty);
         return entity;
     }
 
@@ -210,7 +247,8 @@ public final class DataVirtualizationService extends DvService {
             throw notFound( virtualization );
         }
 
-        RestDataVirtualization restDv = createRestDataVirtualization(dv);
+        RestDataVirtualization restDv = createRestDataVirtualization(dv,
+                getWorkspaceManager().findViewDefinitionsNames(dv.getName()).isEmpty());
         return restDv;
     }
 
@@ -279,6 +317,7 @@ public final class DataVirtualizationService extends DvService {
         //deleted/txn committed, update runtime
         //there is a small chance that a dv with the same name was recreated in the meantime,
         //but since this vdb is created on-demand we're good
+        searchIndex.markStale(virtualization);
         try {
             metadataService.removeVdb(DataVirtualization.getPreviewVdbName(virtualization));
         } catch (KException e) {
@@ -377,6 +416,7 @@ public final class DataVirtualizationService extends DvService {
             }
 
             for (ViewDefinition vd : getWorkspaceManager().saveAllViewDefinitions(toSave)) {
+                getWorkspaceManager().saveViewDependencies(vd);
                 result.addAttribute(vd.getName(), vd.getId());
             }
 
@@ -385,6 +425,8 @@ public final class DataVirtualizationService extends DvService {
             return result;
         });
 
+        searchIndex.markStale(virtualization);
+
         return kso;
     }
 
@@ -477,7 +519,7 @@ public final class DataVirtualizationService extends DvService {
                 throw notFound(virtualization);
             }
 
-            return createExportStream(dv, null);
+            return createExportStream(dv, null, getWorkspaceManager().findViewDefinitions(dv.getName()), null);
         });
 
 
@@ -488,20 +530,27 @@ public final class DataVirtualizationService extends DvService {
 
     /**
      * Create an export of the current workspace.  Optionally including the full vdb.
+     * <br>
+     * Views are ordered by name and entries use a fixed time so that unchanged
+     * content produces an identical export.  When hashing the timestamps are
+     * also omitted.
      * @param dv
      * @param theVdb
+     * @param views the already loaded views of the virtualization
+     * @param entryHashes if not null, receives the content hash of each entry by name
      * @return
      * @throws KException
      */
-    private StreamingResponseBody createExportStream(DataVirtualization dv, VDBMetaData theVdb)
-            throws KException {
+    private StreamingResponseBody createExportStream(DataVirtualization dv, VDBMetaData theVdb, List<? extends ViewDefinition> views,
+            Map<String, String> entryHashes) throws KException {
         DataVirtualizationV1Adapter adapter = new DataVirtualizationV1Adapter(dv);
 
-        List<? extends ViewDefinition> views = getWorkspaceManager().findViewDefinitions(dv.getName());
+        List<ViewDefinition> sortedViews = new ArrayList<>(views);
+        sortedViews.sort(Comparator.comparing(ViewDefinition::getName));
 
         Map<String, SourceV1> sources = new LinkedHashMap<>();
 
-        for (ViewDefinition view : views) {
+        for (ViewDefinition view : sortedViews) {
             adapter.getViews().add(new ViewDefinitionV1Adapter(view));
             for (String path : view.getSourcePaths()) {
                 String connection = PathUtils.getOptions(path).get(0).getSecond();
@@ -526,24 +575,37 @@ public final class DataVirtualizationService extends DvService {
             JsonFactory jsonFactory = new JsonFactory();
             jsonFactory.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
             ObjectMapper mapper = new ObjectMapper(jsonFactory);
+            if (entryHashes != null) {
+                mapper.addMixIn(BaseEntityAdapter.class, WithoutTimestamps.class);
+            }
 
-            zos.putNextEntry(new ZipEntry(DV_JSON));
-            mapper.writerWithDefaultPrettyPrinter().writeValue(zos, adapter);
+            zos.putNextEntry(newExportEntry(DV_JSON));
+            HashingOutputStream hos = new HashingOutputStream(zos, false);
+            mapper.writerWithDefaultPrettyPrinter().writeValue(hos, adapter);
+            hos.close();
             zos.closeEntry();
+            if (entryHashes != null) {
+                entryHashes.put(DV_JSON, hos.getHash());
+            }
 
-            zos.putNextEntry(new ZipEntry("dv-info.json")); //$NON-NLS-1$
+            zos.putNextEntry(newExportEntry("dv-info.json")); //$NON-NLS-1$
             zos.write("{\"version\":1}".getBytes("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
             zos.closeEntry();
 
             if (theVdb != null) {
-                zos.putNextEntry(new ZipEntry(DV_VDB_XML));
+                zos.putNextEntry(newExportEntry(DV_VDB_XML));
+                hos = new HashingOutputStream(zos, false);
                 try {
-                    VDBMetadataParser.marshell(theVdb, zos);
+                    //the marshal closes the stream, which leaves the zip open
+                    VDBMetadataParser.marshell(theVdb, hos);
                 } catch (XMLStreamException e) {
                     throw new IOException(e);
                 }
-                //the marshal closes automatically
-                //zos.closeEntry();
+                hos.close();
+                zos.closeEntry();
+                if (entryHashes != null) {
+                    entryHashes.put(DV_VDB_XML, hos.getHash());
+                }
             }
 
             zos.close();
@@ -552,6 +614,12 @@ public final class DataVirtualizationService extends DvService {
         return stream;
     }
 
+    private static ZipEntry newExportEntry(String name) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(EXPORT_ENTRY_TIME);
+        return entry;
+    }
+
     /**
      * Import a virtualization from a zip file
      * @param virtualization
@@ -604,8 +672,9 @@ public final class DataVirtualizationService extends DvService {
             entity.setDataVirtualizationName(virtualization);
         }
 
+        final String dvName = virtualization;
         try {
-            return repositoryManager.runInTransaction(false, () -> {
+            StatusObject result = repositoryManager.runInTransaction(false, () -> {
                 StatusObject status = new StatusObject("import result"); //$NON-NLS-1$
                 for (SourceV1 source : dv.getSources()) {
                     TeiidDataSource tds = metadataService.findTeiidDatasource(source.getName());
@@ -646,6 +715,8 @@ public final class DataVirtualizationService extends DvService {
                 }
                 return status;
             });
+            searchIndex.markStale(dvName);
+            return result;
         } catch (DataIntegrityViolationException e) {
             throw error(HttpStatus.CONFLICT, Messages.Error.DATASERVICE_SERVICE_CREATE_ALREADY_EXISTS);
         }
@@ -671,7 +742,7 @@ public final class DataVirtualizationService extends DvService {
         // find view editor states
         return repositoryManager.runInTransaction(true, ()->{
 
-            final List<? extends ViewDefinition> viewEditorStates = getWorkspaceManager().findViewDefinitions( virtualization );
+            final List<? extends ViewDefinitionSummary> viewEditorStates = getWorkspaceManager().findViewDefinitionSummaries( virtualization );
             LOGGER.debug( "getViewEditorStates:found %d ViewEditorStates", viewEditorStates.size() ); //$NON-NLS-1$
 
             //TODO: paging / sorting can be pushed into the repository
@@ -681,13 +752,13 @@ public final class DataVirtualizationService extends DvService {
     }
 
     private List<ViewListing> createViewList(final String virtualization,
-            final List<? extends ViewDefinition> viewEditorStates)
+            final List<? extends ViewDefinitionSummary> viewEditorStates)
             throws Exception {
         TeiidVdb vdb = null;
 
         ArrayList<ViewListing> result = new ArrayList<>();
 
-        for ( final ViewDefinition viewEditorState : viewEditorStates ) {
+        for ( final ViewDefinitionSummary viewEditorState : viewEditorStates ) {
             ViewListing listing = new ViewListing();
             listing.setId(viewEditorState.getId());
             listing.setName(viewEditorState.getName());
@@ -767,6 +838,7 @@ public final class DataVirtualizationService extends DvService {
                     + "\"memory\":    \"(optional) Amount memory to allocate in MB (default 1024)\"" + BR
                     + "\"disk-size\": \"(optional) Amount disk allocated in GB (default 20)\"" + BR
                     + "\"enable-odata\": \"(optional) Enable OData interface. true|false (default true)\"" + BR
+                    + "\"priority\":  \"(optional) Higher values are configured first when the publish queue is ordered by priority (default 0)\"" + BR
                     + CLOSE_BRACE
                     + CLOSE_PRE_TAG) @RequestBody(required = true) final PublishRequestPayload payload) throws Exception {
         //
@@ -815,10 +887,14 @@ public final class DataVirtualizationService extends DvService {
             //create a new published edition with the saved workspace state
             Edition edition = repositoryManager.createEdition(dataservice.getName());
 
-            StreamingResponseBody stream = createExportStream(dataservice, theVdb);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            stream.writeTo(baos);
-            repositoryManager.saveEditionExport(edition, baos.toByteArray());
+            //identical content is stored only once and shared between editions
+            Map<String, String> entryHashes = new HashMap<>();
+            StreamingResponseBody stream = createExportStream(dataservice, theVdb, editorStates, entryHashes);
+            try (OutputStream os = repositoryManager.openEditionExportOutput(edition)) {
+                stream.writeTo(os);
+            }
+            edition.setDvHash(entryHashes.get(DV_JSON));
+            edition.setVdbHash(entryHashes.get(DV_VDB_XML));
 
             dataservice.setModified(false); //once we've published, we're not modified
 
@@ -859,6 +935,33 @@ public final class DataVirtualizationService extends DvService {
         config.setContainerMemorySize(payload.getMemory());
         config.setCpuUnits(payload.getCpuUnits());
         config.setPublishedRevision(edition.getRevision());
+        if (payload.getPriority() != null) {
+            config.setPriority(payload.getPriority());
+        }
+    }
+
+    /**
+     * Get the state of the publish queue
+     * @return a JSON document representing the publish queue statistics
+     */
+    @GetMapping(value = V1Constants.PUBLISH_QUEUE, produces = { MediaType.APPLICATION_JSON_VALUE })
+    @ApiOperation(value = "Return the publish queue statistics", response = PublishQueueStatistics.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 403, message = "An error has occurred.") })
+    public PublishQueueStatistics getPublishQueueStatistics() {
+        return openshiftClient.getPublishQueueStatistics();
+    }
+
+    /**
+     * Get the state of the cache of OpenShift resources
+     * @return a JSON document representing the resource cache statistics
+     */
+    @GetMapping(value = V1Constants.RESOURCE_CACHE, produces = { MediaType.APPLICATION_JSON_VALUE })
+    @ApiOperation(value = "Return the OpenShift resource cache statistics", response = ResourceCacheStatistics.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 403, message = "An error has occurred.") })
+    public ResourceCacheStatistics getResourceCacheStatistics() {
+        return openshiftClient.getResourceCacheStatistics();
     }
 
     /**
@@ -935,10 +1038,10 @@ public final class DataVirtualizationService extends DvService {
                 throw notFound(virtualization + " " + revision); //$NON-NLS-1$
             }
 
-            byte[] bytes = repositoryManager.findEditionExport(e);
-            Assertion.isNotNull(bytes);
+            InputStream is = repositoryManager.openEditionExportInput(e);
+            Assertion.isNotNull(is);
 
-            ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(bytes));
+            ZipInputStream zis = new ZipInputStream(is);
 
             ZipEntry ze = zis.getNextEntry();
             while (ze != null && !ze.getName().equals(DV_VDB_XML)) {
@@ -977,10 +1080,10 @@ public final class DataVirtualizationService extends DvService {
                 throw notFound(virtualization + " " + revision); //$NON-NLS-1$
             }
 
-            byte[] bytes = repositoryManager.findEditionExport(e);
-            Assertion.isNotNull(bytes);
+            InputStream is = repositoryManager.openEditionExportInput(e);
+            Assertion.isNotNull(is);
 
-            return importDataVirtualization(virtualization, new ByteArrayResource(bytes), false);
+            return importDataVirtualization(virtualization, () -> is, false);
         });
     }
 
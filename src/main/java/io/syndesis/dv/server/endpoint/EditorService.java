@@ -15,6 +15,8 @@
  */
 package io.syndesis.dv.server.endpoint;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -67,6 +69,9 @@ public final class EditorService extends DvService {
     @Autowired
     private MetadataService metadataService;
 
+    @Autowired
+    private MetadataSearchIndex searchIndex;
+
     /**
      * Get the view editor state with the given id from the user's profile
      * @return a JSON document representing the view editor state in the user profile (never <code>null</code>)
@@ -131,6 +136,8 @@ public final class EditorService extends DvService {
             return upsertViewEditorState(restViewEditorState);
         });
 
+        searchIndex.markStale(vd.getDataVirtualizationName());
+
         validated.setViewDefinition(vd);
 
         return validated;
@@ -248,6 +255,7 @@ public final class EditorService extends DvService {
 
         boolean pathsSame = false;
         boolean updateDv = false;
+        List<String> oldPaths = null;
         // Add a new ViewDefinition
         if (viewDefn == null) {
             updateDv = true;
@@ -256,7 +264,8 @@ public final class EditorService extends DvService {
             if (!restViewDefn.getName().equals(viewDefn.getName()) || !restViewDefn.getDataVirtualizationName().equals(viewDefn.getDataVirtualizationName())) {
                 throw new IllegalArgumentException("view name / dv name does not match the persistent state"); //$NON-NLS-1$
             }
-            pathsSame = restViewDefn.getSourcePaths().equals(viewDefn.getSourcePaths());
+            oldPaths = new ArrayList<>(viewDefn.getSourcePaths());
+            pathsSame = restViewDefn.getSourcePaths().equals(oldPaths);
             viewDefn.clearState();
         }
 
@@ -318,6 +327,10 @@ public final class EditorService extends DvService {
             }
         }
 
+        if (!viewDefn.getSourcePaths().equals(oldPaths)) {
+            getWorkspaceManager().saveViewDependencies(viewDefn);
+        }
+
         return viewDefn;
     }
 
@@ -337,7 +350,7 @@ public final class EditorService extends DvService {
             @ApiParam(value = "Id of the view editor state to remove", required = true)
             final @PathVariable(V1Constants.ID) String viewEditorStateId)
             throws Exception {
-        return repositoryManager.runInTransaction(false, ()-> {
+        String dvName = repositoryManager.runInTransaction(false, ()-> {
             ViewDefinition vd = getWorkspaceManager().findViewDefinition(viewEditorStateId);
             if (vd == null) {
                 throw notFound(viewEditorStateId);
@@ -348,10 +361,14 @@ public final class EditorService extends DvService {
             }
 
             getWorkspaceManager().deleteViewDefinition(viewEditorStateId);
-            StatusObject kso = new StatusObject("Delete Status"); //$NON-NLS-1$
-            kso.addAttribute(viewEditorStateId, "Successfully deleted"); //$NON-NLS-1$
-
-            return kso;
+            return vd.getDataVirtualizationName();
         });
+
+        searchIndex.markStale(dvName);
+
+        StatusObject kso = new StatusObject("Delete Status"); //$NON-NLS-1$
+        kso.addAttribute(viewEditorStateId, "Successfully deleted"); //$NON-NLS-1$
+
+        return kso;
     }
 }
@@ -0,0 +1,373 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.server.endpoint;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+import org.teiid.metadata.Column;
+import org.teiid.metadata.Schema;
+import org.teiid.metadata.Table;
+
+import io.syndesis.dv.model.ViewDefinitionSummary;
+
+/**
+ * An in-memory inverted index over the source tables, source columns and
+ * view definitions.
+ * <br>
+ * Names are split into lower case tokens on non-alphanumeric characters and camel
+ * case boundaries.  A query matches when each of its tokens is a prefix of some
+ * token of the entry.  Entries are replaced a source or virtualization at a time.
+ */
+@Component
+public class MetadataSearchIndex {
+
+    private static final String SOURCE_OWNER_PREFIX = "s:"; //$NON-NLS-1$
+    private static final String VIRTUALIZATION_OWNER_PREFIX = "v:"; //$NON-NLS-1$
+
+    private static final int NAME_WEIGHT = 4;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT_NAME_BONUS = 10;
+
+    private static final class Document {
+        final String type;
+        final int typeRank;
+        final String name;
+        final String connectionName;
+        final String dataVirtualizationName;
+        final String tableName;
+        final String path;
+        final String id;
+        final String description;
+        final Map<String, Integer> tokens = new HashMap<>();
+
+        Document(String type, int typeRank, String name, String connectionName, String dataVirtualizationName,
+                String tableName, String path, String id, String description) {
+            this.type = type;
+            this.typeRank = typeRank;
+            this.name = name;
+            this.connectionName = connectionName;
+            this.dataVirtualizationName = dataVirtualizationName;
+            this.tableName = tableName;
+            this.path = path;
+            this.id = id;
+            this.description = description;
+            addTokens(name, NAME_WEIGHT, tokens);
+            addTokens(description, DESCRIPTION_WEIGHT, tokens);
+        }
+
+        RestSearchResult toResult(int score) {
+            RestSearchResult result = new RestSearchResult();
+            result.setType(type);
+            result.setName(name);
+            result.setConnectionName(connectionName);
+            result.setDataVirtualizationName(dataVirtualizationName);
+            result.setTableName(tableName);
+            result.setPath(path);
+            result.setId(id);
+            result.setDescription(description);
+            result.setScore(score);
+            return result;
+        }
+    }
+
+    private static final class Hit {
+        final Document document;
+        int score;
+
+        Hit(Document document, int score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+
+    /**
+     * best first - then views and tables before columns, shorter names, and finally by name
+     */
+    private static final Comparator<Hit> RANK = Comparator.<Hit>comparingInt(h -> -h.score)
+            .thenComparingInt(h -> h.document.typeRank)
+            .thenComparingInt(h -> h.document.name.length())
+            .thenComparing(h -> h.document.name)
+            .thenComparing(h -> h.document.path == null ? "" : h.document.path); //$NON-NLS-1$
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Map<Document, Integer>> postings = new TreeMap<>();
+    private final Map<String, List<Document>> owners = new HashMap<>();
+
+    /**
+     * the schema instance last indexed for each source
+     */
+    private final Map<String, Schema> sourceSchemas = new ConcurrentHashMap<>();
+
+    private final Set<String> staleVirtualizations = ConcurrentHashMap.newKeySet();
+    private volatile boolean virtualizationsLoaded;
+
+    /**
+     * Split the text into lower case tokens, keeping the max weight for each
+     */
+    static void addTokens(String text, int weight, Map<String, Integer> tokens) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            boolean part = Character.isLetterOrDigit(c);
+            if (start >= 0 && (!part || (Character.isUpperCase(c) && Character.isLowerCase(text.charAt(i - 1))))) {
+                tokens.merge(text.substring(start, i).toLowerCase(Locale.ROOT), weight, Math::max);
+                start = part ? i : -1;
+            } else if (start < 0 && part) {
+                start = i;
+            }
+        }
+    }
+
+    /**
+     * Index the tables and columns of the source schema.  This is a no-op if
+     * the same schema instance has already been indexed.
+     */
+    public void indexSource(String sourceName, Schema schema) {
+        if (sourceSchemas.get(sourceName) == schema) {
+            return;
+        }
+        List<Document> documents = new ArrayList<>();
+        for (Table table : schema.getTables().values()) {
+            StringBuilder path = new StringBuilder();
+            MetadataService.appendSegment(path, "connection", sourceName); //$NON-NLS-1$
+            MetadataService.appendSegment(path, "table", table.getName()); //$NON-NLS-1$
+            String tablePath = path.toString();
+            Document tableDocument = new Document(RestSearchResult.TABLE_TYPE, 1, table.getName(), sourceName,
+                    null, table.getName(), tablePath, null, table.getAnnotation());
+            addTokens(table.getNameInSource(), NAME_WEIGHT, tableDocument.tokens);
+            documents.add(tableDocument);
+            for (Column column : table.getColumns()) {
+                Document columnDocument = new Document(RestSearchResult.COLUMN_TYPE, 2, column.getName(),
+                        sourceName, null, table.getName(), tablePath, null, column.getAnnotation());
+                documents.add(columnDocument);
+            }
+        }
+        replace(SOURCE_OWNER_PREFIX + sourceName, documents);
+        sourceSchemas.put(sourceName, schema);
+    }
+
+    /**
+     * Remove the entries for the source
+     */
+    public void removeSource(String sourceName) {
+        if (sourceSchemas.remove(sourceName) != null) {
+            replace(SOURCE_OWNER_PREFIX + sourceName, Collections.emptyList());
+        }
+    }
+
+    /**
+     * Remove the entries for any source not in the given names
+     */
+    public void retainSources(Collection<String> sourceNames) {
+        for (Iterator<String> iter = sourceSchemas.keySet().iterator(); iter.hasNext();) {
+            String sourceName = iter.next();
+            if (!sourceNames.contains(sourceName)) {
+                iter.remove();
+                replace(SOURCE_OWNER_PREFIX + sourceName, Collections.emptyList());
+            }
+        }
+    }
+
+    /**
+     * Replace the view entries for the virtualization
+     */
+    public void indexVirtualization(String virtualization, Collection<? extends ViewDefinitionSummary> views) {
+        List<Document> documents = new ArrayList<>(views.size());
+        for (ViewDefinitionSummary view : views) {
+            documents.add(new Document(RestSearchResult.VIEW_TYPE, 0, view.getName(), null, virtualization, null,
+                    null, view.getId(), view.getDescription()));
+        }
+        replace(VIRTUALIZATION_OWNER_PREFIX + virtualization, documents);
+    }
+
+    /**
+     * Mark the views of the virtualization as needing to be reindexed.
+     * Should be called after the modifying transaction has committed.
+     */
+    public void markStale(String virtualization) {
+        staleVirtualizations.add(virtualization);
+    }
+
+    /**
+     * @return the virtualizations to reindex, or null if all virtualizations
+     * need to be loaded.  The caller is responsible for calling {@link #indexVirtualization(String, Collection)}
+     * and {@link #setVirtualizationsLoaded()} as appropriate, and for calling {@link #restoreStale(Collection)}
+     * if the reindex fails.
+     */
+    public Collection<String> takeStaleVirtualizations() {
+        if (!virtualizationsLoaded) {
+            staleVirtualizations.clear();
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        for (Iterator<String> iter = staleVirtualizations.iterator(); iter.hasNext();) {
+            result.add(iter.next());
+            iter.remove();
+        }
+        return result;
+    }
+
+    /**
+     * Mark the virtualizations taken for a reindex that failed as stale again
+     */
+    public void restoreStale(Collection<String> virtualizations) {
+        if (virtualizations != null) {
+            staleVirtualizations.addAll(virtualizations);
+        }
+    }
+
+    public void setVirtualizationsLoaded() {
+        this.virtualizationsLoaded = true;
+    }
+
+    private void replace(String owner, List<Document> documents) {
+        lock.writeLock().lock();
+        try {
+            List<Document> existing = owners.remove(owner);
+            if (existing != null) {
+                for (Document document : existing) {
+                    for (String token : document.tokens.keySet()) {
+                        Map<Document, Integer> posting = postings.get(token);
+                        posting.remove(document);
+                        if (posting.isEmpty()) {
+                            postings.remove(token);
+                        }
+                    }
+                }
+            }
+            if (documents.isEmpty()) {
+                return;
+            }
+            owners.put(owner, documents);
+            for (Document document : documents) {
+                for (Map.Entry<String, Integer> entry : document.tokens.entrySet()) {
+                    postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(document, entry.getValue());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Search the index
+     * @param query the search text
+     * @param type optional type of entry to return - table, column, or view
+     * @param offset the number of ranked hits to skip
+     * @param limit the maximum number of hits to return
+     * @return the ranked page of hits
+     */
+    public RestSearchResults search(String query, String type, int offset, int limit) {
+        Map<String, Integer> queryTokens = new HashMap<>();
+        addTokens(query, 0, queryTokens);
+        if (queryTokens.isEmpty()) {
+            return new RestSearchResults(Collections.emptyList(), 0);
+        }
+        //match longer and more selective tokens first to keep the candidate set small
+        Set<String> ordered = new LinkedHashSet<>();
+        queryTokens.keySet().stream().sorted(Comparator.comparingInt(String::length).reversed()).forEach(ordered::add);
+
+        String trimmed = query.trim();
+        PriorityQueue<Hit> top = new PriorityQueue<>(RANK.reversed());
+        int total = 0;
+
+        lock.readLock().lock();
+        try {
+            Map<Document, Hit> hits = null;
+            for (String token : ordered) {
+                Map<Document, Hit> matched = new HashMap<>();
+                SortedMap<String, Map<Document, Integer>> range = postings.subMap(token, token + Character.MAX_VALUE);
+                for (Map.Entry<String, Map<Document, Integer>> entry : range.entrySet()) {
+                    int multiplier = entry.getKey().length() == token.length() ? 2 : 1;
+                    for (Map.Entry<Document, Integer> posting : entry.getValue().entrySet()) {
+                        Document document = posting.getKey();
+                        if (type != null && !type.equals(document.type)) {
+                            continue;
+                        }
+                        int score = posting.getValue() * multiplier;
+                        if (hits == null) {
+                            Hit hit = matched.get(document);
+                            if (hit == null) {
+                                matched.put(document, new Hit(document, score));
+                            } else if (hit.score < score) {
+                                hit.score = score;
+                            }
+                        } else {
+                            Hit previous = hits.get(document);
+                            if (previous == null) {
+                                continue;
+                            }
+                            Hit hit = matched.get(document);
+                            if (hit == null) {
+                                matched.put(document, new Hit(document, previous.score + score));
+                            } else if (hit.score < previous.score + score) {
+                                hit.score = previous.score + score;
+                            }
+                        }
+                    }
+                }
+                hits = matched;
+                if (hits.isEmpty()) {
+                    break;
+                }
+            }
+
+            int size = offset + limit;
+            for (Hit hit : hits.values()) {
+                if (hit.document.name.equalsIgnoreCase(trimmed)) {
+                    hit.score += EXACT_NAME_BONUS;
+                }
+                total++;
+                top.add(hit);
+                if (top.size() > size) {
+                    top.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Hit> ranked = new ArrayList<>(top);
+        ranked.sort(RANK);
+        List<RestSearchResult> results = new ArrayList<>(limit);
+        for (int i = offset; i < ranked.size(); i++) {
+            Hit hit = ranked.get(i);
+            results.add(hit.document.toResult(hit.score));
+        }
+        return new RestSearchResults(results, total);
+    }
+
+}
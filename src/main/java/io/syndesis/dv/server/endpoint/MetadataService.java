@@ -15,13 +15,25 @@
  */
 package io.syndesis.dv.server.endpoint;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.locks.Lock;
 
@@ -32,11 +44,14 @@ import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.data.util.Pair;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 import org.teiid.adminapi.Model.Type;
 import org.teiid.adminapi.VDB.Status;
@@ -46,8 +61,11 @@ import org.teiid.adminapi.impl.VDBMetaData;
 import org.teiid.deployers.CompositeVDB;
 import org.teiid.deployers.VDBLifeCycleListener;
 import org.teiid.metadata.AbstractMetadataRecord;
+import org.teiid.metadata.Column;
 import org.teiid.metadata.Schema;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.util.concurrent.Striped;
 
 import io.swagger.annotations.Api;
@@ -66,12 +84,15 @@ import io.syndesis.dv.metadata.internal.DefaultMetadataInstance;
 import io.syndesis.dv.metadata.query.QSResult;
 import io.syndesis.dv.model.DataVirtualization;
 import io.syndesis.dv.model.SourceSchema;
+import io.syndesis.dv.model.ViewDefinitionSummary;
 import io.syndesis.dv.openshift.TeiidOpenShiftClient;
 import io.syndesis.dv.server.DvService;
 import io.syndesis.dv.server.Messages;
 import io.syndesis.dv.server.V1Constants;
+import io.syndesis.dv.utils.HashingOutputStream;
 import io.syndesis.dv.utils.PathUtils;
 import io.syndesis.dv.utils.StringUtils;
+import springfox.documentation.annotations.ApiIgnore;
 /**
  * A Komodo REST service for obtaining information from a metadata instance.
  */
@@ -88,6 +109,16 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
 
     private static final String LOAD_SUFFIX = "-load"; //$NON-NLS-1$
 
+    /**
+     * runtime metadata projection including the columns
+     */
+    public static final String FULL_PROJECTION = "full"; //$NON-NLS-1$
+
+    /**
+     * runtime metadata projection of only the schema and table names
+     */
+    public static final String NAMES_PROJECTION = "names"; //$NON-NLS-1$
+
     /**
      * fqn table option key
      */
@@ -104,6 +135,15 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
     @Autowired
     private ScheduledThreadPoolExecutor connectionExecutor;
 
+    @Autowired
+    private MetadataSearchIndex searchIndex;
+
+    /**
+     * materialized schema trees keyed by source name, the version
+     * is used to generate the etag of the connection schema
+     */
+    private Map<String, SourceSchemaTree> schemaTrees = new ConcurrentHashMap<>();
+
     /**
      * locks to make sure request threads don't step on each other's
      * vdb deployments/undeployments. The keys are either dv names, or
@@ -289,6 +329,8 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
             connectionExecutor.execute(()->{
                 try {
                     removeVdb(getWorkspaceSourceVdbName(dsd.getTeiidName()));
+                    searchIndex.removeSource(dsd.getTeiidName());
+                    schemaTrees.remove(dsd.getTeiidName());
                     refreshPreviewVdb();
                 } catch (KException e) {
                     LOGGER.warn("Error removing the source vdb", e); //$NON-NLS-1$
@@ -356,6 +398,7 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
                         //synchronization needs to be expanded to refresh reloading
                     }
                     if (updateSource) {
+                        schemaTrees.remove(teiidSourceName);
                         connectionExecutor.execute(()->{
                             try {
                                 deploySourceVdb(teiidSourceName, SourceDeploymentMode.REPLACE_DDL);
@@ -399,7 +442,7 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
 
             List<RestSchemaNode> schemaNodes = Collections.emptyList();
             if ( schemaModel != null ) {
-                schemaNodes = generateSourceSchema(teiidSourceName, schemaModel.getTables().values());
+                schemaNodes = getSchemaTree(teiidSourceName, schemaModel).nodes;
             }
 
             return schemaNodes;
@@ -407,7 +450,156 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
     }
 
     /**
-     * @return the JSON representation of the schema collection (never <code>null</code>)
+     * @param teiidSourceName the name of the source
+     * @param parentPath the path of the node to browse, empty for the root
+     * @param filter optional case insensitive name prefix
+     * @param pageToken the token from the previous page
+     * @param limit the page size
+     * @return a page of the child nodes
+     * @throws Exception
+     */
+    @RequestMapping(value = TEIID_SOURCE_PLACEHOLDER + FS + V1Constants.SCHEMA_NODES_SEGMENT, method = RequestMethod.GET, produces = { MediaType.APPLICATION_JSON_VALUE })
+    @ApiOperation( value = "Get a page of the native schema nodes under the given parent for the teiid source",
+                   response = RestSchemaNodePage.class)
+    @ApiResponses( value = {
+        @ApiResponse( code = 400, message = "The parent path, page token or limit is malformed" ),
+        @ApiResponse( code = 403, message = "An error has occurred." ),
+        @ApiResponse( code = 404, message = "No teiid source or parent node could be found with the specified name" ),
+        @ApiResponse( code = 406, message = "Only JSON is returned by this operation" )
+    } )
+    public RestSchemaNodePage getSchemaNodes(@ApiParam( value = "Name of the teiid source", required = true )
+                               @PathVariable(TEIID_SOURCE) final String teiidSourceName,
+                               @ApiParam( value = "Path of the parent node, e.g. schema=public" )
+                               @RequestParam(name = "parentPath", required = false) final String parentPath,
+                               @ApiParam( value = "Case insensitive name prefix" )
+                               @RequestParam(name = "filter", required = false) final String filter,
+                               @ApiParam( value = "Token of the page to return" )
+                               @RequestParam(name = "pageToken", required = false) final String pageToken,
+                               @ApiParam( value = "The maximum number of nodes to return" )
+                               @RequestParam(name = "limit", required = false, defaultValue = "100") final int limit) throws Exception {
+        if (limit <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive"); //$NON-NLS-1$
+        }
+        SourceSchemaTree tree = repositoryManager.runInTransaction(true, ()->{
+            TeiidDataSource teiidSource = getMetadataInstance().getDataSource(teiidSourceName);
+
+            if (teiidSource == null) {
+                throw notFound( teiidSourceName );
+            }
+
+            Schema schemaModel = findSchemaModel( teiidSource );
+            if ( schemaModel == null ) {
+                return null;
+            }
+            return getSchemaTree(teiidSourceName, schemaModel);
+        });
+
+        if (tree == null) {
+            return new RestSchemaNodePage(Collections.emptyList(), null);
+        }
+
+        RestSchemaNodePage page = getSchemaNodePage(tree, parentPath, filter, pageToken, limit);
+        if (page == null) {
+            throw notFound( parentPath );
+        }
+        return page;
+    }
+
+    /**
+     * @param query the search text
+     * @param type optional type of hit to return
+     * @param offset the number of hits to skip
+     * @param limit the page size
+     * @return the ranked search results
+     * @throws Exception
+     */
+    @RequestMapping(value = V1Constants.SEARCH_SEGMENT, method = RequestMethod.GET, produces = { MediaType.APPLICATION_JSON_VALUE })
+    @ApiOperation( value = "Search the source tables, source columns, and views by name and description",
+                   response = RestSearchResults.class)
+    @ApiResponses( value = {
+        @ApiResponse( code = 400, message = "Invalid paging parameters" ),
+        @ApiResponse( code = 403, message = "An error has occurred." ),
+        @ApiResponse( code = 406, message = "Only JSON is returned by this operation" )
+    } )
+    public RestSearchResults search(@ApiParam( value = "The search text, each word is matched as a prefix", required = true )
+                               @RequestParam(name = "q") final String query,
+                               @ApiParam( value = "Restrict the results to table, column, or view" )
+                               @RequestParam(name = "type", required = false) final String type,
+                               @ApiParam( value = "The number of results to skip" )
+                               @RequestParam(name = "offset", required = false, defaultValue = "0") final int offset,
+                               @ApiParam( value = "The maximum number of results to return" )
+                               @RequestParam(name = "limit", required = false, defaultValue = "20") final int limit) throws Exception {
+        if (offset < 0 || limit <= 0 || limit > 1000 || offset > 10000) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid offset or limit"); //$NON-NLS-1$
+        }
+        syncSearchIndex();
+        return searchIndex.search(query, type, offset, limit);
+    }
+
+    /**
+     * Bring the search index up to date with the deployed source schemas
+     * and any modified virtualizations
+     */
+    private void syncSearchIndex() throws Exception {
+        //sources are indexed as they are deployed, this picks up any that were missed
+        List<String> sourceNames = new ArrayList<String>();
+        for (TeiidDataSource teiidSource : getMetadataInstance().getDataSources()) {
+            sourceNames.add(teiidSource.getName());
+            indexSourceSchema(teiidSource.getName());
+        }
+        searchIndex.retainSources(sourceNames);
+
+        Collection<String> stale = searchIndex.takeStaleVirtualizations();
+        if (stale != null && stale.isEmpty()) {
+            return;
+        }
+        try {
+            reindexVirtualizations(stale);
+        } catch (Exception e) {
+            //keep them for the next search
+            searchIndex.restoreStale(stale);
+            throw e;
+        }
+    }
+
+    private void reindexVirtualizations(Collection<String> stale) throws Exception {
+        repositoryManager.runInTransaction(true, ()->{
+            Collection<String> dvNames = stale == null ? repositoryManager.findDataVirtualizationNames() : stale;
+            Map<String, List<ViewDefinitionSummary>> byVirtualization = new HashMap<>();
+            for (String dvName : dvNames) {
+                byVirtualization.put(dvName, new ArrayList<>());
+            }
+            for (ViewDefinitionSummary summary : repositoryManager.findViewDefinitionSummaries(dvNames)) {
+                byVirtualization.get(summary.getDataVirtualizationName()).add(summary);
+            }
+            for (Map.Entry<String, List<ViewDefinitionSummary>> entry : byVirtualization.entrySet()) {
+                searchIndex.indexVirtualization(entry.getKey(), entry.getValue());
+            }
+            if (stale == null) {
+                searchIndex.setVirtualizationsLoaded();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Index the deployed schema of the source for search.  Not forcing a deployment,
+     * just using what is already available.
+     */
+    private void indexSourceSchema(String sourceName) throws KException {
+        TeiidVdb vdb = getMetadataInstance().getVdb(getWorkspaceSourceVdbName(sourceName));
+        if (vdb == null) {
+            return;
+        }
+        Schema schemaModel = vdb.getSchema(sourceName);
+        if (schemaModel != null) {
+            searchIndex.indexSource(sourceName, schemaModel);
+        }
+    }
+
+    /**
+     * @param request used for conditional requests via the ETag
+     * @return the JSON representation of the schema collection, or null if not modified
      * @throws Exception
      */
     @RequestMapping(value = "connectionSchema", method = RequestMethod.GET, produces = { MediaType.APPLICATION_JSON_VALUE })
@@ -415,38 +607,88 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
                    response = RestSchemaNode.class,
                    responseContainer = "List")
     @ApiResponses( value = {
+        @ApiResponse( code = 304, message = "The schema has not been modified" ),
         @ApiResponse( code = 403, message = "An error has occurred." ),
         @ApiResponse( code = 404, message = "No results found" ),
         @ApiResponse( code = 406, message = "Only JSON is returned by this operation" )
     } )
-    public List<RestSchemaNode> getAllConnectionSchema() throws Exception {
-        return repositoryManager.runInTransaction(true, ()->{
-            List<RestSchemaNode> rootNodes = new ArrayList<RestSchemaNode>();
+    public List<RestSchemaNode> getAllConnectionSchema(@ApiIgnore final WebRequest request) throws Exception {
+        List<SourceSchemaTree> trees = getConnectionSchemaTrees(false);
+        if (trees == null) {
+            //not all of the source vdbs are deployed
+            trees = repositoryManager.runInTransaction(true, ()->{
+                return getConnectionSchemaTrees(true);
+            });
+        }
 
-            // Get teiid datasources
-            Collection<? extends TeiidDataSource> allTeiidSources = getMetadataInstance().getDataSources();
+        //content based, so that it's the same across restarts and instances
+        StringBuilder versions = new StringBuilder();
+        for (SourceSchemaTree tree : trees) {
+            versions.append(tree.sourceName).append(':').append(tree.version).append(',');
+        }
+        String etag = DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8));
+        if (request != null && request.checkNotModified(etag)) {
+            return null;
+        }
 
-            // Add status summary for each of the syndesis sources.  Determine if there is a matching teiid source
-            for (TeiidDataSource teiidSource : allTeiidSources) {
-                final Schema schemaModel = findSchemaModel( teiidSource );
+        List<RestSchemaNode> rootNodes = new ArrayList<RestSchemaNode>();
+        for (SourceSchemaTree tree : trees) {
+            if (tree.rootNode != null) {
+                rootNodes.add(tree.rootNode);
+            }
+        }
+        return rootNodes;
+    }
 
-                if ( schemaModel == null ) {
-                    continue;
+    /**
+     * Get the schema trees for all the sources
+     * @param deploy if source vdbs should be deployed as needed, which requires a transaction
+     * @return the trees or null if not deploying and a source vdb is not yet deployed
+     */
+    private List<SourceSchemaTree> getConnectionSchemaTrees(boolean deploy) throws KException {
+        List<SourceSchemaTree> trees = new ArrayList<SourceSchemaTree>();
+
+        // Get teiid datasources
+        Collection<? extends TeiidDataSource> allTeiidSources = getMetadataInstance().getDataSources();
+        Set<String> sourceNames = new HashSet<>();
+
+        for (TeiidDataSource teiidSource : allTeiidSources) {
+            sourceNames.add(teiidSource.getName());
+            Schema schemaModel = null;
+            if (deploy) {
+                schemaModel = findSchemaModel( teiidSource );
+            } else {
+                TeiidVdb vdb = getMetadataInstance().getVdb(getWorkspaceSourceVdbName(teiidSource.getName()));
+                if (vdb == null) {
+                    return null;
                 }
+                schemaModel = vdb.getSchema(teiidSource.getName());
+            }
 
-                List<RestSchemaNode> schemaNodes = this.generateSourceSchema(schemaModel.getName(), schemaModel.getTables().values());
-                if(schemaNodes != null && !schemaNodes.isEmpty()) {
-                    RestSchemaNode rootNode = new RestSchemaNode();
-                    rootNode.setName(schemaModel.getName());
-                    rootNode.setType("root");
-                    for(RestSchemaNode sNode: schemaNodes) {
-                        rootNode.addChild(sNode);
-                    }
-                    rootNodes.add(rootNode);
-                }
+            if ( schemaModel == null ) {
+                continue;
             }
-            return rootNodes;
-        });
+
+            trees.add(getSchemaTree(teiidSource.getName(), schemaModel));
+        }
+        //drop the trees of removed sources
+        schemaTrees.keySet().retainAll(sourceNames);
+        return trees;
+    }
+
+    /**
+     * Get the materialized schema tree for the source, building it if
+     * the cached tree is missing or is for a different schema instance
+     */
+    private SourceSchemaTree getSchemaTree(String sourceName, Schema schemaModel) throws KException {
+        SourceSchemaTree tree = schemaTrees.get(sourceName);
+        if (tree != null && tree.schema == schemaModel) {
+            return tree;
+        }
+        tree = new SourceSchemaTree(sourceName, schemaModel, generateSourceSchema(sourceName, schemaModel.getTables().values()),
+                getRuntimeSchemaVersion(schemaModel));
+        schemaTrees.put(sourceName, tree);
+        return tree;
     }
 
     /**
@@ -490,43 +732,134 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
      * @return source schema object array
      * @throws Exception
      */
+    public RestViewSourceInfo getRuntimeMetadata(final String virtualization) throws Exception {
+        return getRuntimeMetadata(virtualization, FULL_PROJECTION, null, null);
+    }
+
+    /**
+     * Find and return the runtime metadata
+     * @param virtualization
+     * @param projection {@link #FULL_PROJECTION} or {@link #NAMES_PROJECTION}
+     * @param schemaNames if not null the schemas to return
+     * @param since if not null the schema versions of a previous response, each as
+     * schema name:version.  Schemas with a matching version will be returned without tables.
+     * @return source schema object array
+     * @throws Exception
+     */
     @RequestMapping(value = V1Constants.RUNTIME_METADATA + StringConstants.FS
             + V1Constants.VIRTUALIZATION_PLACEHOLDER, method = RequestMethod.GET, produces = { MediaType.APPLICATION_JSON_VALUE })
     @ApiOperation(value = "Get Source Schema for a Virtualization", response = RestViewSourceInfo.class)
-    @ApiResponses(value = { @ApiResponse(code = 406, message = "Only JSON is returned by this operation"),
+    @ApiResponses(value = { @ApiResponse(code = 400, message = "Invalid projection"),
+            @ApiResponse(code = 406, message = "Only JSON is returned by this operation"),
             @ApiResponse(code = 403, message = "An error has occurred.") })
     public RestViewSourceInfo getRuntimeMetadata(
             @ApiParam( value = "Name of the data virtualization", required = true )
-            final @PathVariable( VIRTUALIZATION ) String virtualization) throws Exception {
+            final @PathVariable( VIRTUALIZATION ) String virtualization,
+            @ApiParam( value = "full to include the columns, or names for only the table names" )
+            @RequestParam(name = "projection", required = false, defaultValue = FULL_PROJECTION) final String projection,
+            @ApiParam( value = "The schemas to return, all schemas are returned if not specified" )
+            @RequestParam(name = "schema", required = false) final List<String> schemaNames,
+            @ApiParam( value = "The schema versions of a previous response as schema name:version, unchanged schemas will be returned without tables" )
+            @RequestParam(name = "since", required = false) final List<String> since) throws Exception {
         LOGGER.debug("getRuntimeMetadata()");
 
         if (virtualization == null) {
             throw forbidden(Messages.Error.DATASERVICE_SERVICE_MISSING_NAME);
         }
 
-        List<RestSourceSchema> srcSchemas = new ArrayList<>();
+        boolean includeColumns = true;
+        if (NAMES_PROJECTION.equalsIgnoreCase(projection)) {
+            includeColumns = false;
+        } else if (projection != null && !FULL_PROJECTION.equalsIgnoreCase(projection)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "projection must be full or names"); //$NON-NLS-1$
+        }
+
+        Map<String, String> previousVersions = new HashMap<>();
+        if (since != null) {
+            for (String entry : since) {
+                //the version is hex, so the last separator ends the name
+                int index = entry.lastIndexOf(':');
+                if (index < 0) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "since must be of the form schema:version"); //$NON-NLS-1$
+                }
+                previousVersions.put(entry.substring(0, index), entry.substring(index + 1));
+            }
+        }
 
         TeiidVdb vdb = updatePreviewVdb(virtualization);
         if (vdb == null || !vdb.hasLoaded()) {
             throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
         }
 
+        List<Schema> schemas = new ArrayList<>();
         for (TeiidDataSource dataSource : getMetadataInstance().getDataSources()) {
             Schema s = vdb.getSchema(dataSource.getName());
             if (s == null) {
                 continue;
             }
 
-            srcSchemas.add(new RestSourceSchema(s));
+            schemas.add(s);
         }
 
-        for (Schema s : vdb.getLocalSchema()) {
-            srcSchemas.add(new RestSourceSchema(s));
+        schemas.addAll(vdb.getLocalSchema());
+
+        List<RestSourceSchema> srcSchemas = new ArrayList<>();
+        for (Schema s : schemas) {
+            if (schemaNames != null && !schemaNames.contains(s.getName())) {
+                continue;
+            }
+            String version = getRuntimeSchemaVersion(s);
+            if (version.equals(previousVersions.get(s.getName()))) {
+                srcSchemas.add(new RestSourceSchema(s.getName(), version));
+                continue;
+            }
+            RestSourceSchema restSchema = new RestSourceSchema(s, includeColumns);
+            restSchema.setVersion(version);
+            srcSchemas.add(restSchema);
         }
 
         return new RestViewSourceInfo(srcSchemas.toArray(new RestSourceSchema[srcSchemas.size()]));
     }
 
+    /**
+     * Get the version of the schema, which is derived from its content so that it's
+     * the same across restarts and instances.  The version only changes when the
+     * table and column names / types change.
+     */
+    static String getRuntimeSchemaVersion(Schema schema) throws KException {
+        try {
+            return SCHEMA_FINGERPRINTS.get(schema, () -> computeFingerprint(schema));
+        } catch (ExecutionException e) {
+            throw new KException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the hex SHA-256 hash of the schema, table, column and type names
+     */
+    static String computeFingerprint(Schema schema) {
+        MessageDigest digest = HashingOutputStream.newDigest();
+        updateFingerprint(digest, 'S', schema.getName());
+        for (org.teiid.metadata.Table table : schema.getTables().values()) {
+            updateFingerprint(digest, 'T', table.getName());
+            for (Column column : table.getColumns()) {
+                updateFingerprint(digest, 'C', column.getName());
+                updateFingerprint(digest, 'R', String.valueOf(column.getRuntimeType()));
+            }
+        }
+        return HashingOutputStream.toHex(digest.digest());
+    }
+
+    /**
+     * Add the kind and the length prefixed value, so that different metadata
+     * can't produce the same text
+     */
+    private static void updateFingerprint(MessageDigest digest, char kind, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update((kind + Integer.toString(bytes.length) + ':').getBytes(StandardCharsets.UTF_8));
+        digest.update(bytes);
+    }
+
     public enum SourceDeploymentMode {
         REUSE_DDL,
         REPLACE_DDL, //a special case of reuse
@@ -549,8 +882,17 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
         }
 
         // VDB is created in the repository.  If it already exists, delete it
-        SourceSchema schema = repositoryManager.findSchemaBySourceId(teiidSource.getSyndesisId());
-        if (schema == null) {
+        String ddl = null;
+        if (sourceDeploymentMode != SourceDeploymentMode.REFRESH) {
+            //uses the cached ddl if unchanged
+            ddl = repositoryManager.findSchemaDdlBySourceId(teiidSource.getSyndesisId());
+            if (ddl == null && sourceDeploymentMode == SourceDeploymentMode.REUSE_DDL) {
+                //if the ddl doesn't already exist, don't do a deployment/save
+                //the calling operation should be fail-fast
+                return;
+            }
+        }
+        if (ddl == null && repositoryManager.findSchemaNameBySourceId(teiidSource.getSyndesisId()) == null) {
             //something is wrong, the logic that creates TeiidDataSources will always ensure
             //a sourceschema is created
             LOGGER.info("schema entry was not found for source vdb"); //$NON-NLS-1$
@@ -560,15 +902,6 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
         // Name of VDB to be created is based on the source name
         String vdbName = getWorkspaceSourceVdbName( teiidSource.getName() );
 
-        if (sourceDeploymentMode == SourceDeploymentMode.REUSE_DDL
-                && schema.getDdl() == null) {
-            //if the ddl doesn't already exist, don't do a deployment/save
-            //the calling operation should be fail-fast
-            return;
-        }
-
-        String ddl = sourceDeploymentMode == SourceDeploymentMode.REFRESH ? null : schema.getDdl();
-
         if (ddl == null) {
             vdbName += LOAD_SUFFIX;
         }
@@ -589,6 +922,7 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
 
             if (ddl != null && ddl.startsWith(FAILED_DDL)) {
                 getMetadataInstance().undeployDynamicVdb(vdbName);
+                searchIndex.removeSource(teiidSource.getName());
             } else {
                 try {
                     VDBMetaData vdb = generateSourceVdb(teiidSource, vdbName, ddl);
@@ -602,9 +936,10 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
         }
 
         if (ddl != null) {
-            //this is the actual connection vdb, trigger a load of the preview vdbs
+            //this is the actual connection vdb, index it and trigger a load of the preview vdbs
             connectionExecutor.execute(()->{
                 try {
+                    indexSourceSchema(teiidSource.getName());
                     refreshPreviewVdb();
                 } catch (Exception e) {
                     LOGGER.error("could not refresh preview vdb", e); //$NON-NLS-1$
@@ -686,118 +1021,259 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
     }
 
     /**
-     * Generate the syndesis source schema structure using the supplied table fqn information.
-     * @param sourceName the name of the source
-     * @param tables the supplied array of tables
-     * @return the list of schema nodes
-     * @throws KException exception if problem occurs
+     * The schema node tree of a source schema.  The nodes are shared
+     * between requests and must not be modified.
      */
-    private static List<RestSchemaNode> generateSourceSchema(final String sourceName, final Collection<org.teiid.metadata.Table> tables) throws KException {
-        List<RestSchemaNode> schemaNodes = new ArrayList<RestSchemaNode>();
+    private static class SourceSchemaTree {
+        private final String sourceName;
+        private final Schema schema;
+        private final List<RestSchemaNode> nodes;
+        private final RestSchemaNode rootNode;
+        private final String version;
+
+        //sorted children keyed by the parent path, built as the tree is browsed
+        private final Map<String, List<RestSchemaNode>> sortedChildren = new ConcurrentHashMap<>();
+
+        SourceSchemaTree(String sourceName, Schema schema, List<RestSchemaNode> nodes, String version) {
+            this.sourceName = sourceName;
+            this.schema = schema;
+            this.nodes = Collections.unmodifiableList(nodes);
+            this.version = version;
+            if (nodes.isEmpty()) {
+                this.rootNode = null;
+            } else {
+                this.rootNode = new RestSchemaNode();
+                this.rootNode.setName(schema.getName());
+                this.rootNode.setType("root"); //$NON-NLS-1$
+                for(RestSchemaNode sNode: nodes) {
+                    this.rootNode.addChild(sNode);
+                }
+            }
+        }
 
-        for(final org.teiid.metadata.Table table : tables) {
-            // Use the fqn table option do determine native structure
-            String option = table.getProperty(TABLE_OPTION_FQN, false );
-            if( option != null ) {
-                // Break fqn into segments (segment starts at root, eg "schema=public/table=customer")
-                List<Pair<String, String>> segments = PathUtils.getOptions(option);
-                // Get the parent node of the final segment in the 'path'.  New nodes are created if needed.
-                RestSchemaNode parentNode = getLeafNodeParent(sourceName, schemaNodes, segments);
-
-                Pair<String, String> segment = segments.get(segments.size() - 1);
-                String type = segment.getFirst();
-                String name = segment.getSecond();
-
-                // Use last segment to create the leaf node child in the parent.  If parent is null, was root (and leaf already created).
-                if( parentNode != null ) {
-                    RestSchemaNode node = new RestSchemaNode(sourceName, name, type);
-                    node.setTeiidName(table.getName());
-                    node.setQueryable(true);
-                    parentNode.addChild(node);
-                } else {
-                    RestSchemaNode node = getMatchingNode(sourceName, name, type, schemaNodes);
-                    node.setTeiidName(table.getName());
-                    node.setQueryable(true);
+        private List<RestSchemaNode> getSortedChildren(String parentPath, Collection<RestSchemaNode> children) {
+            return sortedChildren.computeIfAbsent(parentPath, k -> {
+                List<RestSchemaNode> sorted = new ArrayList<RestSchemaNode>(children);
+                sorted.sort(NODE_ORDER);
+                return sorted;
+            });
+        }
+
+        /**
+         * Get the sorted children of the node at the given path
+         * @param path the path segments, empty for the root
+         * @return the children or null if there is no node at the path
+         */
+        List<RestSchemaNode> getChildren(List<Pair<String, String>> path) {
+            List<RestSchemaNode> children = getSortedChildren("", nodes); //$NON-NLS-1$
+            StringBuilder currentPath = new StringBuilder();
+            for (Pair<String, String> segment : path) {
+                int index = Collections.binarySearch(children, new RestSchemaNode(null, segment.getSecond(), segment.getFirst()), NODE_ORDER);
+                if (index < 0) {
+                    return null;
                 }
+                appendSegment(currentPath, segment.getFirst(), segment.getSecond());
+                children = getSortedChildren(currentPath.toString(), children.get(index).getChildren());
             }
+            return children;
         }
+    }
+
+    private static final Comparator<RestSchemaNode> NODE_ORDER = Comparator
+            .comparing(RestSchemaNode::getName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(RestSchemaNode::getName)
+            .thenComparing(RestSchemaNode::getType);
 
-        return schemaNodes;
+    static void appendSegment(StringBuilder path, String type, String name) {
+        if (path.length() > 0) {
+            path.append(PathUtils.OPTION_SEPARATOR);
+        }
+        try {
+            path.append(URLEncoder.encode(type, "UTF-8")).append(PathUtils.VALUE_SEPARATOR).append(URLEncoder.encode(name, "UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
-     * Get the RestSchemaNode immediately above the last path segment (leaf parent).  If the parent nodes do not already exist,
-     * they are created and added to the currentNodes.  The returned List is a list of the root nodes.  The root node children,
-     * children's children, etc, are built out according to the path segments.
-     * @param sourceName the name of the source
-     * @param currentNodes the current node list
-     * @param segments the full path of segments, starting at the root
-     * @return the final segments parent node.  (null if final segment is at the root)
-     */
-    private static RestSchemaNode getLeafNodeParent(String sourceName, List<RestSchemaNode> currentNodes, List<Pair<String, String>> segments) {
-        RestSchemaNode parentNode = null;
-        // Determine number of levels to process.
-        // - process one level if one segment
-        // - if more than one level, process nSegment - 1 levels
-        int nLevels = (segments.size() > 1) ? segments.size()-1 : 1;
-
-        // Start at beginning of segment path, creating nodes if necessary
-        for( int i=0; i < nLevels; i++ ) {
-            Pair<String, String> segment = segments.get(i);
-            String type = segment.getFirst();
-            String name = segment.getSecond();
-            // Root Level - look for matching root node in the list
-            if( i == 0 ) {
-                RestSchemaNode matchNode = getMatchingNode(sourceName, name, type, currentNodes);
-                // No match - create a new node
-                if(matchNode == null) {
-                    matchNode = new RestSchemaNode(sourceName, name, type);
-                    currentNodes.add(matchNode);
-                }
-                // Set parent for next iteration
-                if( segments.size() == 1 ) {       // Only one segment - parent is null (root)
-                    matchNode.setQueryable(true);
-                    parentNode = null;
+     * Get a page of the children of the node at the parent path, in case insensitive name order
+     * @param tree the source tree
+     * @param parentPath the path of the parent node, null or empty for the root
+     * @param filter optional case insensitive name prefix
+     * @param pageToken optional token from the previous page
+     * @param limit the maximum number of nodes to return
+     * @return the page or null if the parent does not exist
+     * @throws ResponseStatusException BAD_REQUEST if the parent path or page token is malformed
+     */
+    static RestSchemaNodePage getSchemaNodePage(SourceSchemaTree tree, String parentPath, String filter,
+            String pageToken, int limit) {
+        List<Pair<String, String>> path = Collections.emptyList();
+        if (parentPath != null && !parentPath.isEmpty()) {
+            path = parseNodePath("parentPath", parentPath); //$NON-NLS-1$
+        }
+        List<RestSchemaNode> children = tree.getChildren(path);
+        if (children == null) {
+            return null;
+        }
+
+        int start = 0;
+        if (filter != null && !filter.isEmpty()) {
+            //lower bound of the case insensitive prefix
+            int low = 0;
+            int high = children.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (String.CASE_INSENSITIVE_ORDER.compare(children.get(mid).getName(), filter) < 0) {
+                    low = mid + 1;
                 } else {
-                    // Set next parent if not last level
-                    if( i != segments.size()-1 ) {
-                        parentNode = matchNode;
-                    }
+                    high = mid;
                 }
-            // Not at root - look for matching node in parents children
+            }
+            start = low;
+        } else {
+            filter = null;
+        }
+        if (pageToken != null && !pageToken.isEmpty()) {
+            //the token is the type=name of the last node returned
+            List<Pair<String, String>> token = parseNodePath("pageToken", pageToken); //$NON-NLS-1$
+            if (token.size() != 1) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid pageToken"); //$NON-NLS-1$
+            }
+            Pair<String, String> last = token.get(0);
+            int index = Collections.binarySearch(children, new RestSchemaNode(null, last.getSecond(), last.getFirst()), NODE_ORDER);
+            start = Math.max(start, index < 0 ? -index - 1 : index + 1);
+        }
+
+        String parent = path.isEmpty() ? "" : parentPath; //$NON-NLS-1$
+        List<RestSchemaNode> result = new ArrayList<RestSchemaNode>();
+        String nextPageToken = null;
+        for (int i = start; i < children.size(); i++) {
+            RestSchemaNode child = children.get(i);
+            if (filter != null && !child.getName().regionMatches(true, 0, filter, 0, filter.length())) {
+                break;
+            }
+            if (result.size() == limit) {
+                RestSchemaNode lastNode = result.get(result.size() - 1);
+                StringBuilder token = new StringBuilder();
+                appendSegment(token, lastNode.getType(), lastNode.getName());
+                nextPageToken = token.toString();
+                break;
+            }
+            //copy without the children
+            RestSchemaNode node = new RestSchemaNode(child.getConnectionName(), child.getName(), child.getType());
+            node.setTeiidName(child.getTeiidName());
+            node.setQueryable(child.isQueryable());
+            StringBuilder nodePath = new StringBuilder(parent);
+            appendSegment(nodePath, child.getType(), child.getName());
+            node.setPath(nodePath.toString());
+            result.add(node);
+        }
+        return new RestSchemaNodePage(result, nextPageToken);
+    }
+
+    /**
+     * @return the type=name segments of the path
+     * @throws ResponseStatusException BAD_REQUEST if the path is not a non-empty list of type=name segments
+     */
+    private static List<Pair<String, String>> parseNodePath(String parameter, String value) {
+        try {
+            List<Pair<String, String>> result = PathUtils.getOptions(value);
+            if (!result.isEmpty()) {
+                return result;
+            }
+        } catch (NoSuchElementException | IllegalArgumentException e) {
+            //malformed segment or encoding
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid " + parameter); //$NON-NLS-1$
+    }
+
+    /**
+     * Builds the schema node tree, with hashed lookup of the children at each level.
+     */
+    private static class SchemaNodeTree {
+        private final String sourceName;
+        private final List<RestSchemaNode> rootNodes = new ArrayList<RestSchemaNode>();
+        //keyed by parent node, null for the root level
+        private final Map<RestSchemaNode, Map<RestSchemaNode, RestSchemaNode>> childIndex = new IdentityHashMap<>();
+
+        SchemaNodeTree(String sourceName) {
+            this.sourceName = sourceName;
+        }
+
+        /**
+         * Get the existing child node of the parent matching the segment name and type, or add a new one
+         * @param parent the parent node, null for the root
+         */
+        RestSchemaNode getOrAddChild(RestSchemaNode parent, Pair<String, String> segment) {
+            Map<RestSchemaNode, RestSchemaNode> children = childIndex.get(parent);
+            if (children == null) {
+                children = new HashMap<>();
+                childIndex.put(parent, children);
+            }
+            RestSchemaNode node = new RestSchemaNode(sourceName, segment.getSecond(), segment.getFirst());
+            RestSchemaNode existing = children.putIfAbsent(node, node);
+            if (existing != null) {
+                return existing;
+            }
+            if (parent == null) {
+                rootNodes.add(node);
             } else {
-                RestSchemaNode matchNode = getMatchingNode(sourceName, name, type, parentNode.getChildren());
-                // No match - create a new node
-                if(matchNode == null) {
-                    matchNode = new RestSchemaNode(sourceName, name, type);
-                    parentNode.addChild(matchNode);
-                }
-                // Set next parent if not last level
-                if( i != segments.size()-1 ) {
-                    parentNode = matchNode;
-                }
+                parent.addChild(node);
             }
+            return node;
+        }
+    }
+
+    /*
+     * The parsed fqn segments of each table.  Weakly keyed so entries are
+     * dropped along with the metadata of an undeployed vdb.
+     */
+    private static final Cache<org.teiid.metadata.Table, List<Pair<String, String>>> FQN_SEGMENTS = CacheBuilder.newBuilder().weakKeys().build();
+
+    /*
+     * Fingerprints of the runtime schemas, also weakly keyed
+     */
+    private static final Cache<Schema, String> SCHEMA_FINGERPRINTS = CacheBuilder.newBuilder().weakKeys().build();
+
+    static List<Pair<String, String>> getFqnSegments(org.teiid.metadata.Table table) throws KException {
+        // Use the fqn table option do determine native structure
+        String option = table.getProperty(TABLE_OPTION_FQN, false );
+        if (option == null) {
+            return null;
+        }
+        try {
+            // Break fqn into segments (segment starts at root, eg "schema=public/table=customer")
+            return FQN_SEGMENTS.get(table, () -> Collections.unmodifiableList(PathUtils.getOptions(option)));
+        } catch (ExecutionException e) {
+            throw new KException(e.getCause());
         }
-        return parentNode;
     }
 
     /**
-     * Searches the supplied list for node with matching name and type.  Does NOT search children or parents of supplied nodes.
-     * @param sourceName the source name
-     * @param name the node name
-     * @param type the node type
-     * @param nodes the list of nodes to search
-     * @return the matching node, if found
-     */
-    private static RestSchemaNode getMatchingNode(String sourceName, String name, String type, Collection<RestSchemaNode> nodes) {
-        RestSchemaNode matchedNode = null;
-        for(RestSchemaNode node : nodes) {
-            if( node.getConnectionName().equals(sourceName) && node.getName().equals(name) && node.getType().equals(type) ) {
-                matchedNode = node;
-                break;
+     * Generate the syndesis source schema structure using the supplied table fqn information.
+     * @param sourceName the name of the source
+     * @param tables the supplied array of tables
+     * @return the list of schema nodes
+     * @throws KException exception if problem occurs
+     */
+    static List<RestSchemaNode> generateSourceSchema(final String sourceName, final Collection<org.teiid.metadata.Table> tables) throws KException {
+        SchemaNodeTree tree = new SchemaNodeTree(sourceName);
+
+        for(final org.teiid.metadata.Table table : tables) {
+            List<Pair<String, String>> segments = getFqnSegments(table);
+            if( segments == null || segments.isEmpty() ) {
+                continue;
+            }
+            // Walk the path from the root, creating nodes if needed.  The last segment is the queryable leaf.
+            RestSchemaNode node = null;
+            for (Pair<String, String> segment : segments) {
+                node = tree.getOrAddChild(node, segment);
             }
+            node.setTeiidName(table.getName());
+            node.setQueryable(true);
         }
-        return matchedNode;
+
+        return tree.rootNodes;
     }
 
     /**
@@ -807,13 +1283,13 @@ public class MetadataService extends DvService implements ServiceVdbGenerator.Sc
      */
     private void setSchemaStatus(String schemaId, final RestSyndesisSourceStatus status ) throws Exception {
         // Get the workspace schema VDB
-        SourceSchema schema = repositoryManager.findSchemaBySourceId(schemaId);
+        String ddl = repositoryManager.findSchemaDdlBySourceId(schemaId);
         status.setId(schemaId);
 
-        if ( schema != null && schema.getDdl() != null) {
-            if (schema.getDdl().startsWith(FAILED_DDL)) {
+        if ( ddl != null) {
+            if (ddl.startsWith(FAILED_DDL)) {
                 status.setSchemaState( RestSyndesisSourceStatus.EntityState.FAILED );
-                String error = schema.getDdl().substring(FAILED_DDL.length());
+                String error = ddl.substring(FAILED_DDL.length());
                 if (error != null) {
                     status.setErrors(Arrays.asList(error));
                 }
@@ -34,6 +34,8 @@ public class PublishRequestPayload {
 
     private Boolean enableOdata = true;
 
+    private Integer priority;
+
     public String getName() {
         return name;
     }
@@ -73,4 +75,12 @@ public class PublishRequestPayload {
     public void setEnableOdata(Boolean enableOdata) {
         this.enableOdata = enableOdata;
     }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
 }
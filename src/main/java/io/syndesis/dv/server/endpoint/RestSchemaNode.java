@@ -42,6 +42,8 @@ public class RestSchemaNode {
 
     private boolean queryable = false;
 
+    private String path;
+
     /**
      * Constructor for use when deserializing
      */
@@ -141,6 +143,22 @@ public class RestSchemaNode {
         this.children.add(child);
     }
 
+    /**
+     * Get the path of the node, which is only set when browsing
+     * @return the path of the node from the source root
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Set the path
+     * @param path the path of the node from the source root
+     */
+    public void setPath(String path) {
+        this.path = path;
+    }
+
     public String getTeiidName() {
         return teiidName;
     }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.server.endpoint;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * A page of schema nodes, without their children
+ */
+@JsonSerialize(as = RestSchemaNodePage.class)
+@JsonInclude(Include.NON_NULL)
+public class RestSchemaNodePage {
+
+    private List<RestSchemaNode> nodes;
+
+    private String nextPageToken;
+
+    public RestSchemaNodePage(List<RestSchemaNode> nodes, String nextPageToken) {
+        this.nodes = nodes;
+        this.nextPageToken = nextPageToken;
+    }
+
+    /**
+     * @return the nodes on this page
+     */
+    public List<RestSchemaNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the token to use to get the next page, or null if this is the last page
+     */
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+}
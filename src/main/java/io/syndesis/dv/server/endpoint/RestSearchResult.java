@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.server.endpoint;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * A single metadata search hit - a source table, a source column, or a view
+ */
+@JsonSerialize(as = RestSearchResult.class)
+@JsonInclude(Include.NON_NULL)
+public class RestSearchResult {
+
+    public static final String TABLE_TYPE = "table"; //$NON-NLS-1$
+    public static final String COLUMN_TYPE = "column"; //$NON-NLS-1$
+    public static final String VIEW_TYPE = "view"; //$NON-NLS-1$
+
+    private String type;
+
+    private String name;
+
+    private String connectionName;
+
+    private String dataVirtualizationName;
+
+    private String tableName;
+
+    private String path;
+
+    private String id;
+
+    private String description;
+
+    private int score;
+
+    /**
+     * @return the type of the hit - table, column, or view
+     */
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    /**
+     * @return the name of the table, column, or view
+     */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the source name for a table or column
+     */
+    public String getConnectionName() {
+        return connectionName;
+    }
+
+    public void setConnectionName(String connectionName) {
+        this.connectionName = connectionName;
+    }
+
+    /**
+     * @return the virtualization name for a view
+     */
+    public String getDataVirtualizationName() {
+        return dataVirtualizationName;
+    }
+
+    public void setDataVirtualizationName(String dataVirtualizationName) {
+        this.dataVirtualizationName = dataVirtualizationName;
+    }
+
+    /**
+     * @return the teiid name of the table for a table or column
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    /**
+     * @return the source path of the table for a table or column, e.g. connection=x/schema=y/table=z
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * @return the view definition id for a view
+     */
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the annotation or description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * @return the relevance score, higher is better
+     */
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+
+}
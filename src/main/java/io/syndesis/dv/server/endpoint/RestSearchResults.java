@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.server.endpoint;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * A ranked page of metadata search hits
+ */
+@JsonSerialize(as = RestSearchResults.class)
+@JsonInclude(Include.NON_NULL)
+public class RestSearchResults {
+
+    private List<RestSearchResult> results;
+
+    private int total;
+
+    public RestSearchResults(List<RestSearchResult> results, int total) {
+        this.results = results;
+        this.total = total;
+    }
+
+    /**
+     * @return the hits on this page in rank order
+     */
+    public List<RestSearchResult> getResults() {
+        return results;
+    }
+
+    /**
+     * @return the total number of hits
+     */
+    public int getTotal() {
+        return total;
+    }
+}
@@ -42,15 +42,44 @@ public class RestSourceSchema {
      */
     private RestSourceTable[] tables;
 
+    /*
+     * The version of the schema metadata, a hash of its content
+     */
+    private String version;
+
+    /*
+     * Set when the tables are omitted as the schema has not changed
+     */
+    private Boolean unchanged;
+
     public RestSourceSchema(Schema schema) {
+        this(schema, true);
+    }
+
+    /**
+     * @param schema
+     * @param includeColumns false if only the table names are needed
+     */
+    public RestSourceSchema(Schema schema, boolean includeColumns) {
         super();
         this.name = schema.getName();
-        List<RestSourceTable> tables = new ArrayList<RestSourceTable>();
-        for( String key : schema.getTables().keySet()) {
-            Table nextTable = schema.getTables().get(key);
-            tables.add(new RestSourceTable(nextTable));
+        List<RestSourceTable> tables = new ArrayList<RestSourceTable>(schema.getTables().size());
+        for( Table nextTable : schema.getTables().values()) {
+            tables.add(new RestSourceTable(nextTable, includeColumns));
         }
-        this.tables = tables.toArray(new RestSourceTable[0]);
+        this.tables = tables.toArray(new RestSourceTable[tables.size()]);
+    }
+
+    /**
+     * Create an entry for a schema that has not changed since the client's version
+     * @param name
+     * @param version
+     */
+    public RestSourceSchema(String name, String version) {
+        super();
+        this.name = name;
+        this.version = version;
+        this.unchanged = Boolean.TRUE;
     }
 
     public String getName() {
@@ -61,4 +90,19 @@ public class RestSourceSchema {
         return this.tables;
     }
 
+    public String getVersion() {
+        return this.version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    /**
+     * @return true if the tables were omitted because the schema is unchanged
+     */
+    public Boolean getUnchanged() {
+        return this.unchanged;
+    }
+
 }
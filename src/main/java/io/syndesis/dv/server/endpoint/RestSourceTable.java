@@ -46,13 +46,24 @@ public class RestSourceTable {
      * Constructor for use when de-serializing
      */
     public RestSourceTable(Table table) {
+        this(table, true);
+    }
+
+    /**
+     * @param table
+     * @param includeColumns false to omit the columns
+     */
+    public RestSourceTable(Table table, boolean includeColumns) {
         super();
         this.name = table.getName();
-        List<RestSourceColumn> tableColumns = new ArrayList<RestSourceColumn>();
+        if (!includeColumns) {
+            return;
+        }
+        List<RestSourceColumn> tableColumns = new ArrayList<RestSourceColumn>(table.getColumns().size());
         for( Column column : table.getColumns()) {
             tableColumns.add(new RestSourceColumn(column));
         }
-        this.columns = tableColumns.toArray(new RestSourceColumn[0]);
+        this.columns = tableColumns.toArray(new RestSourceColumn[tableColumns.size()]);
     }
 
     public String getName() {
@@ -16,14 +16,19 @@
 package io.syndesis.dv.server.endpoint;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.TreeSet;
 
 import org.springframework.data.util.Pair;
 import org.teiid.adminapi.Admin.SchemaObjectType;
@@ -33,12 +38,17 @@ import org.teiid.adminapi.impl.VDBMetaData;
 import org.teiid.language.SQLConstants;
 import org.teiid.metadata.AbstractMetadataRecord;
 import org.teiid.metadata.Column;
+import org.teiid.metadata.ForeignKey;
 import org.teiid.metadata.KeyRecord;
 import org.teiid.metadata.KeyRecord.Type;
+import org.teiid.metadata.MetadataException;
+import org.teiid.metadata.MetadataFactory;
 import org.teiid.metadata.Schema;
 import org.teiid.metadata.Table;
 import org.teiid.query.metadata.DDLConstants;
 import org.teiid.query.metadata.DDLStringVisitor;
+import org.teiid.query.metadata.SystemMetadata;
+import org.teiid.query.parser.QueryParser;
 import org.teiid.query.sql.visitor.SQLStringVisitor;
 
 import io.syndesis.dv.KException;
@@ -64,6 +74,30 @@ public final class ServiceVdbGenerator implements StringConstants {
         TeiidDataSource findTeiidDatasource(String connectionName) throws KException;
     }
 
+    /**
+     * Emits the DDL for a given set of tables, rather than filtering
+     * all of the tables in the schema.
+     */
+    static class TableDDLStringVisitor extends DDLStringVisitor {
+
+        TableDDLStringVisitor() {
+            super(EnumSet.of(SchemaObjectType.TABLES), null);
+        }
+
+        String getDDLString(Collection<Table> tables) {
+            boolean first = true;
+            for (Table table : tables) {
+                if (first) {
+                    first = false;
+                } else {
+                    buffer.append(NEW_LINE).append(NEW_LINE);
+                }
+                visit(table);
+            }
+            return toString();
+        }
+    }
+
     private static final char NEW_LINE = '\n';
     private static final String OPEN_SQUARE_BRACKET = "["; //$NON-NLS-1$
     private static final String CLOSE_SQUARE_BRACKET = "]"; //$NON-NLS-1$
@@ -105,6 +139,8 @@ public final class ServiceVdbGenerator implements StringConstants {
         vdb.setName(virtualizationName);
         // Keep track of unique list of sources needed
         Map< Schema, LinkedHashSet<Table> > schemaTableMap = new LinkedHashMap<Schema, LinkedHashSet<Table>>();
+        // Keep track of the source columns referenced by the views
+        Map< Table, Set<String> > tableColumnMap = new HashMap<Table, Set<String>>();
 
         // Generate new model DDL by appending all view DDLs
         StringBuilder allViewDdl = new StringBuilder();
@@ -126,6 +162,18 @@ public final class ServiceVdbGenerator implements StringConstants {
             AbstractMetadataRecord record = s.getTable(viewDef.getName());
 
             for( AbstractMetadataRecord info : record.getIncomingObjects()) {
+                if (info instanceof Column) {
+                    AbstractMetadataRecord parent = ((Column)info).getParent();
+                    if (parent instanceof Table) {
+                        Set<String> cols = tableColumnMap.get(parent);
+                        if (cols == null) {
+                            cols = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+                            tableColumnMap.put((Table)parent, cols);
+                        }
+                        cols.add(info.getName());
+                    }
+                    continue;
+                }
                 if (!(info instanceof Table)) {
                     continue;
                 }
@@ -150,15 +198,13 @@ public final class ServiceVdbGenerator implements StringConstants {
             // Iterate tables for this schema, generating DDL
             String connectionName = entry.getKey().getName();
 
-            StringBuilder regex = new StringBuilder();
-            for ( Table table: entry.getValue() ) {
-                if (regex.length() > 0) {
-                    regex.append("|"); //$NON-NLS-1$
-                }
-                regex.append(Pattern.quote(table.getName()));
+            String ddl = null;
+            if (needsPruning(entry.getValue(), tableColumnMap)) {
+                ddl = getPrunedDDLString(entry.getKey().getName(), entry.getValue(), tableColumnMap);
+            }
+            if (ddl == null) {
+                ddl = new TableDDLStringVisitor().getDDLString(entry.getValue());
             }
-
-            String ddl = DDLStringVisitor.getDDLString(entry.getKey(), EnumSet.of(SchemaObjectType.TABLES), regex.toString());
 
             // Create a source model and set the DDL string via setModelDeinition(DDL)
             ModelMetaData srcModel = new ModelMetaData();
@@ -181,6 +227,97 @@ public final class ServiceVdbGenerator implements StringConstants {
 
     }
 
+    /*
+     * Determine if any of the tables has columns, or foreign keys to tables, that are not needed by the service views
+     */
+    static boolean needsPruning(Collection<Table> tables, Map<Table, Set<String>> tableColumnMap) {
+        for (Table table : tables) {
+            Set<String> cols = tableColumnMap.get(table);
+            if (cols != null && cols.size() < table.getColumns().size()) {
+                return true;
+            }
+            for (ForeignKey fk : table.getForeignKeys()) {
+                KeyRecord referenced = fk.getReferenceKey();
+                if (referenced == null || !tables.contains(referenced.getParent())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Generates the DDL for the tables keeping only the referenced columns and
+     * the keys that are fully covered by them.  The DDL is round-tripped through
+     * the parser so that the preview metadata is not modified.
+     *
+     * @return the pruned DDL or null if it could not be determined
+     */
+    static String getPrunedDDLString(String schemaName, Collection<Table> tables, Map<Table, Set<String>> tableColumnMap) {
+        MetadataFactory mf = new MetadataFactory(schemaName, 1, schemaName, SystemMetadata.getInstance().getRuntimeTypeMap(), new Properties(), null);
+        try {
+            QueryParser.getQueryParser().parseDDL(mf, new TableDDLStringVisitor().getDDLString(tables));
+        } catch (MetadataException e) {
+            return null;
+        }
+        Schema pruned = mf.getSchema();
+        List<Table> result = new ArrayList<Table>(tables.size());
+        for (Table table : tables) {
+            Table copy = pruned.getTable(table.getName());
+            if (copy == null) {
+                return null;
+            }
+            result.add(copy);
+            Set<String> cols = tableColumnMap.get(table);
+            //if nothing is known to be referenced, such as count(*), keep everything
+            if (cols == null || copy.getColumns().stream().noneMatch(c -> cols.contains(c.getName()))) {
+                continue;
+            }
+            copy.getColumns().removeIf(c -> !cols.contains(c.getName()));
+            for (int i = 0; i < copy.getColumns().size(); i++) {
+                copy.getColumns().get(i).setPosition(i + 1);
+            }
+            Set<Column> retained = Collections.newSetFromMap(new IdentityHashMap<Column, Boolean>());
+            retained.addAll(copy.getColumns());
+            if (copy.getPrimaryKey() != null && !retained.containsAll(copy.getPrimaryKey().getColumns())) {
+                copy.setPrimaryKey(null);
+            }
+            copy.getUniqueKeys().removeIf(k -> !retained.containsAll(k.getColumns()));
+            copy.getIndexes().removeIf(k -> !retained.containsAll(k.getColumns()));
+            copy.getAccessPatterns().removeIf(k -> !retained.containsAll(k.getColumns()));
+            copy.getForeignKeys().removeIf(k -> !retained.containsAll(k.getColumns()));
+        }
+        //foreign keys must reference retained tables and columns
+        for (Table copy : result) {
+            copy.getForeignKeys().removeIf(fk -> !isReferenceRetained(fk, pruned));
+        }
+        return new TableDDLStringVisitor().getDDLString(result);
+    }
+
+    private static boolean isReferenceRetained(ForeignKey fk, Schema schema) {
+        String referenceTableName = fk.getReferenceTableName();
+        if (referenceTableName == null) {
+            return false;
+        }
+        Table target = schema.getTable(referenceTableName);
+        if (target == null && referenceTableName.startsWith(schema.getName() + DOT)) {
+            target = schema.getTable(referenceTableName.substring(schema.getName().length() + 1));
+        }
+        if (target == null) {
+            return false;
+        }
+        List<String> referenceColumns = fk.getReferenceColumns();
+        if (referenceColumns == null || referenceColumns.isEmpty()) {
+            return target.getPrimaryKey() != null;
+        }
+        for (String name : referenceColumns) {
+            if (target.getColumns().stream().noneMatch(c -> c.getName().equalsIgnoreCase(name))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * This method creates a preview vdb, that includes all parsable sql and imports the base
      * preview vdb.  It is not guaranteed to be valid.
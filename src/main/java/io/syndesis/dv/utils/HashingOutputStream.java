@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes the SHA-256 content hash of everything written through it.
+ * The hash is available once the stream is closed.
+ */
+public class HashingOutputStream extends FilterOutputStream {
+
+    public static final String ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+    private final MessageDigest digest = newDigest();
+    private final boolean closeTarget;
+    private long size;
+    private String hash;
+
+    /**
+     * @param out
+     * @param closeTarget if false closing this stream will only flush the target
+     */
+    public HashingOutputStream(OutputStream out, boolean closeTarget) {
+        super(out);
+        this.closeTarget = closeTarget;
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            //required to be present on all jvms
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            result[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(result);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        digest.update((byte)b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        digest.update(b, off, len);
+        size += len;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (hash != null) {
+            return;
+        }
+        hash = toHex(digest.digest());
+        if (closeTarget) {
+            out.close();
+        } else {
+            out.flush();
+        }
+    }
+
+    /**
+     * @return the hex encoded hash, or null if the stream is still open
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    public long getSize() {
+        return size;
+    }
+
+}
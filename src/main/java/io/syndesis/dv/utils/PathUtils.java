@@ -57,15 +57,23 @@ public class PathUtils {
             StringTokenizer strTkzr = new StringTokenizer(token, VALUE_SEPARATOR);
             String key = strTkzr.nextToken();
             String value = strTkzr.nextToken();
-            try {
-                props.add(Pair.of(URLDecoder.decode(key, "UTF-8") , URLDecoder.decode(value, "UTF-8")));
-            } catch (UnsupportedEncodingException e) {
-                throw new RuntimeException(e);
-            }
+            props.add(Pair.of(decode(key), decode(value)));
         }
 
         return props;
 
     }
 
+    private static String decode(String value) {
+        //most values need no decoding
+        if (value.indexOf('%') < 0 && value.indexOf('+') < 0) {
+            return value;
+        }
+        try {
+            return URLDecoder.decode(value, "UTF-8"); //$NON-NLS-1$
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
 }
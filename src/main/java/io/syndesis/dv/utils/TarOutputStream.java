@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes a ustar archive of regular files.  The size of each entry must be
+ * known when it is started, the content is then written directly through to
+ * the target stream.
+ */
+public class TarOutputStream extends FilterOutputStream {
+
+    static final int BLOCK_SIZE = 512;
+
+    private static final int NAME_LENGTH = 100;
+    private static final int PREFIX_LENGTH = 155;
+    private static final byte[] MAGIC = {'u', 's', 't', 'a', 'r', 0, '0', '0'};
+
+    private final byte[] header = new byte[BLOCK_SIZE];
+    private final long modified = System.currentTimeMillis() / 1000;
+
+    private long remaining = -1;
+    private long entrySize;
+    private boolean finished;
+
+    public TarOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    /**
+     * Start a new entry, closing the current entry if needed
+     * @param name the relative path of the file
+     * @param size the exact number of bytes that will be written for the entry
+     */
+    public void putNextEntry(String name, long size) throws IOException {
+        if (remaining >= 0) {
+            closeEntry();
+        }
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int split = 0;
+        if (nameBytes.length > NAME_LENGTH) {
+            //use the prefix field for the leading directories
+            split = nameBytes.length - NAME_LENGTH - 1;
+            while (split < nameBytes.length && nameBytes[split] != '/') {
+                split++;
+            }
+            if (split >= nameBytes.length || split > PREFIX_LENGTH) {
+                throw new IOException("Entry name is too long: " + name); //$NON-NLS-1$
+            }
+        }
+        Arrays.fill(header, (byte)0);
+        if (split > 0) {
+            System.arraycopy(nameBytes, split + 1, header, 0, nameBytes.length - split - 1);
+            System.arraycopy(nameBytes, 0, header, 345, split);
+        } else {
+            System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        }
+        writeOctal(0644, 100, 8);
+        writeOctal(0, 108, 8);
+        writeOctal(0, 116, 8);
+        writeOctal(size, 124, 12);
+        writeOctal(modified, 136, 12);
+        header[156] = '0';
+        System.arraycopy(MAGIC, 0, header, 257, MAGIC.length);
+        //the checksum is computed with the checksum field as spaces
+        Arrays.fill(header, 148, 156, (byte)' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        writeOctal(checksum, 148, 7);
+        out.write(header);
+        this.remaining = size;
+        this.entrySize = size;
+    }
+
+    private void writeOctal(long value, int offset, int length) {
+        //zero padded, leaving room for the terminating null
+        String octal = Long.toOctalString(value);
+        int start = offset + length - 1 - octal.length();
+        for (int i = offset; i < start; i++) {
+            header[i] = '0';
+        }
+        for (int i = 0; i < octal.length(); i++) {
+            header[start + i] = (byte)octal.charAt(i);
+        }
+        header[offset + length - 1] = 0;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkRemaining(1);
+        out.write(b);
+        remaining--;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkRemaining(len);
+        out.write(b, off, len);
+        remaining -= len;
+    }
+
+    private void checkRemaining(int len) throws IOException {
+        if (remaining < len) {
+            throw new IOException("Write exceeds the entry size"); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Complete the current entry, which must have had all of its bytes written
+     */
+    public void closeEntry() throws IOException {
+        if (remaining != 0) {
+            throw new IOException("Entry is incomplete"); //$NON-NLS-1$
+        }
+        int padding = (int)((BLOCK_SIZE - (entrySize % BLOCK_SIZE)) % BLOCK_SIZE);
+        out.write(new byte[padding]);
+        remaining = -1;
+    }
+
+    /**
+     * Write the end of the archive without closing the target
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (remaining >= 0) {
+            closeEntry();
+        }
+        out.write(new byte[BLOCK_SIZE * 2]);
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,12 @@
+create table edition_export_chunk
+(
+    edition_id VARCHAR(64) NOT NULL,
+    seq integer NOT NULL,
+    data bytea NOT NULL,
+    PRIMARY KEY (edition_id, seq),
+    FOREIGN KEY (edition_id) REFERENCES edition(id) ON DELETE CASCADE
+);
+
+insert into edition_export_chunk (edition_id, seq, data) select id, 0, dv_export from edition where dv_export is not null;
+
+alter table edition drop column dv_export;
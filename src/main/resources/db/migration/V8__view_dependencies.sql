@@ -0,0 +1,14 @@
+create table view_dependency
+(
+    id VARCHAR(64) NOT NULL,
+    view_id VARCHAR(64) NOT NULL,
+    dv_name VARCHAR(255) NOT NULL,
+    source_name VARCHAR(255) NOT NULL,
+    table_name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    FOREIGN KEY (view_id) REFERENCES view_definition(id) ON DELETE CASCADE
+);
+
+create index view_dependency_view_id on view_dependency (view_id);
+create index view_dependency_source on view_dependency (source_name, table_name);
+create index view_dependency_dv_name on view_dependency (dv_name);
@@ -1,11 +1,93 @@
 package io.integration;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.endpoint.web.annotation.RestControllerEndpoint;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.teiid.adminapi.impl.VDBMetaData;
+import org.teiid.adminapi.impl.VDBMetadataParser;
+import org.teiid.core.util.ObjectConverterUtil;
+import org.teiid.spring.autoconfigure.TeiidServer;
 
 @SpringBootApplication
 public class Application {
     public static void main(String[] args) {
         SpringApplication.run(Application.class, args);
     }
+
+    /**
+     * Redeploys the vdb in place when only the vdb has changed since the image was built.
+     * The latest vdb is also mounted from a config map, so that it is used after a restart.
+     * <br>
+     * This is an actuator endpoint, so it's served on the management port rather than
+     * the port exposed by the odata route.
+     */
+    @Component
+    @RestControllerEndpoint(id = "vdb")
+    public static class VdbReloadController implements ApplicationRunner {
+
+        private static final String VDB_DIRECTORY = "/deployments/vdb";
+
+        @Autowired
+        private TeiidServer server;
+
+        @Value("${teiid.vdb-file}")
+        private String vdbFile;
+
+        @Value("${VDB_RELOAD_TOKEN:}")
+        private String token;
+
+        private byte[] deployed;
+
+        @Override
+        public void run(ApplicationArguments args) throws Exception {
+            try (InputStream is = getClass().getClassLoader().getResourceAsStream(vdbFile)) {
+                if (is != null) {
+                    deployed = ObjectConverterUtil.convertToByteArray(is);
+                }
+            }
+            File mounted = new File(VDB_DIRECTORY, vdbFile);
+            if (mounted.exists()) {
+                deploy(Files.readAllBytes(mounted.toPath()));
+            }
+        }
+
+        @PostMapping("/reload")
+        public ResponseEntity<String> reload(@RequestHeader(value = "X-Vdb-Reload-Token", required = false) String requestToken,
+                @RequestBody byte[] vdb) throws Exception {
+            if (token.isEmpty() || requestToken == null || !MessageDigest.isEqual(
+                    token.getBytes(StandardCharsets.UTF_8), requestToken.getBytes(StandardCharsets.UTF_8))) {
+                return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+            }
+            deploy(vdb);
+            return ResponseEntity.ok("reloaded");
+        }
+
+        private synchronized void deploy(byte[] contents) throws Exception {
+            if (Arrays.equals(contents, deployed)) {
+                return;
+            }
+            VDBMetaData vdb = VDBMetadataParser.unmarshell(new ByteArrayInputStream(contents));
+            server.undeployVDB(vdb.getName(), vdb.getVersion());
+            server.deployVDB(new ByteArrayInputStream(contents));
+            deployed = contents;
+        }
+    }
 }
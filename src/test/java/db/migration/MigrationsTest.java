@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package db.migration;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.syndesis.dv.repository.CompactEncoding;
+import io.syndesis.dv.utils.HashingOutputStream;
+
+@SuppressWarnings("nls")
+public class MigrationsTest {
+
+    @Test public void testCompactEncoding() throws Exception {
+        //must stay readable by the application
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            large.append("create view v").append(i).append(" as select 1;");
+        }
+        for (String value : Arrays.asList("", "create view v as select 1", large.toString())) {
+            assertEquals(value, CompactEncoding.decodeString(V10__compact_view_definition_storage.encodeString(value)));
+        }
+        assertTrue(V10__compact_view_definition_storage.encodeString(large.toString()).length < large.length());
+
+        List<String> paths = V10__compact_view_definition_storage.getSourcePaths(
+                new ObjectMapper().readTree("{\"sourcePaths\":[\"schema=s/table=a\",\"schema=s/table=b\"]}"));
+        assertEquals(Arrays.asList("schema=s/table=a", "schema=s/table=b"), paths);
+        assertEquals(paths, CompactEncoding.decodeList(V10__compact_view_definition_storage.encodeList(paths)));
+        assertEquals(Collections.emptyList(), CompactEncoding.decodeList(V10__compact_view_definition_storage.encodeList(
+                V10__compact_view_definition_storage.getSourcePaths(new ObjectMapper().readTree("{}")))));
+    }
+
+    @Test public void testBlobHash() throws Exception {
+        //must stay the same as the hash of later exports, so that they are deduplicated
+        byte[] data = "export".getBytes("UTF-8");
+        HashingOutputStream hos = new HashingOutputStream(new ByteArrayOutputStream(), true);
+        hos.write(data);
+        hos.close();
+        assertEquals(hos.getHash(), V12__content_addressed_exports.toHex(MessageDigest.getInstance("SHA-256").digest(data)));
+    }
+
+    @Test public void testParseSourcePath() throws Exception {
+        assertEquals(Arrays.asList("source", "my table"),
+                V9__view_dependencies_data.parseSourcePath("schema=source/table=my%20table"));
+        assertNull(V9__view_dependencies_data.parseSourcePath("schema=source"));
+        assertNull(V9__view_dependencies_data.parseSourcePath("schema=source/table"));
+        assertNull(V9__view_dependencies_data.parseSourcePath("not a path"));
+    }
+
+}
@@ -118,4 +118,58 @@ public class DefaultMetadataInstanceTest {
         assertTrue(teiidVdb.hasValidationError("views", "tbl2", "table"));
     }
 
+    @Test
+    public void shouldFindValidationErrorsBySchema() throws Exception {
+        String vdb = "<vdb name=\"myservice\" version=\"1\">\n" +
+                "    <property name=\"preview\" value=\"true\"/>" +
+                "    <model visible=\"true\" name=\"valid\" type=\"VIRTUAL\">\n" +
+                "      <metadata type=\"DDL\">create view tbl2 (col) as select 1;</metadata>" +
+                "    </model>    \n" +
+                "    <model visible=\"true\" name=\"views\" type=\"VIRTUAL\">\n" +
+                "      <metadata type=\"DDL\">create view tbl2 (col string) as select 1;</metadata>" +
+                "    </model>    \n" +
+                "</vdb>";
+
+        metadataInstance.deploy(VDBMetadataParser.unmarshell(new ByteArrayInputStream(vdb.getBytes("UTF-8"))));
+
+        TeiidVdb teiidVdb = metadataInstance.getVdb("myservice");
+
+        //the errors of one schema must not be used for another
+        assertFalse(teiidVdb.hasValidationError("valid", "tbl2", "table"));
+        assertTrue(teiidVdb.hasValidationError("views", "tbl2", "table"));
+        assertFalse(teiidVdb.hasValidationError("valid", "tbl2", "table"));
+    }
+
+    @Test
+    public void shouldTrackDeployedVdbs() throws Exception {
+        String vdb = "<vdb name=\"myservice\" version=\"1\">\n" +
+                "    <model visible=\"true\" name=\"accounts\" type=\"VIRTUAL\">\n" +
+                "      <metadata type=\"DDL\">create view tbl (col) as select 1;</metadata>" +
+                "    </model>    \n" +
+                "</vdb>";
+
+        assertNull(metadataInstance.getVdb("myservice"));
+
+        metadataInstance.deploy(VDBMetadataParser.unmarshell(new ByteArrayInputStream(vdb.getBytes("UTF-8"))));
+
+        TeiidVdbImpl teiidVdb = metadataInstance.getVdb("myservice");
+        assertTrue(teiidVdb.isActive());
+        //the same snapshot should be returned until there is a redeploy
+        assertSame(teiidVdb, metadataInstance.getVdb("myservice"));
+        assertEquals(1, metadataInstance.getVdbs().size());
+
+        metadataInstance.deploy(VDBMetadataParser.unmarshell(new ByteArrayInputStream(vdb.getBytes("UTF-8"))));
+
+        TeiidVdbImpl redeployed = metadataInstance.getVdb("myservice");
+        assertNotSame(teiidVdb, redeployed);
+        assertFalse(teiidVdb.isActive());
+        assertTrue(redeployed.isActive());
+        assertEquals(1, metadataInstance.getVdbs().size());
+
+        metadataInstance.undeployDynamicVdb("myservice");
+
+        assertNull(metadataInstance.getVdb("myservice"));
+        assertTrue(metadataInstance.getVdbs().isEmpty());
+    }
+
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.openshift;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CompiledTemplateTest {
+
+    @Test public void testRender() {
+        CompiledTemplate template = new CompiledTemplate("package {{packageName}};\nclass {{dsName}} { {{dsName}} x; {{other}} }",
+                CompiledTemplate.MUSTACHE_OPEN, CompiledTemplate.MUSTACHE_CLOSE);
+        Map<String, String> values = new HashMap<>();
+        values.put("packageName", "io.integration");
+        values.put("dsName", "accountsxyz");
+        assertEquals("package io.integration;\nclass accountsxyz { accountsxyz x; {{other}} }", template.render(values));
+    }
+
+    @Test public void testComments() {
+        CompiledTemplate template = new CompiledTemplate("<!--\n license -->\n<a><!--vdb-name--></a><!-- not a variable --><!--",
+                CompiledTemplate.COMMENT_OPEN, CompiledTemplate.COMMENT_CLOSE);
+        Map<String, String> values = new HashMap<>();
+        values.put("vdb-name", "x");
+        assertEquals("<!--\n license -->\n<a>x</a><!-- not a variable --><!--", template.render(values));
+    }
+
+    @Test public void testResourceLoadedOnce() throws Exception {
+        CompiledTemplate template = CompiledTemplate.forResource("s2i/Jdbc.mustache",
+                CompiledTemplate.MUSTACHE_OPEN, CompiledTemplate.MUSTACHE_CLOSE);
+        assertSame(template, CompiledTemplate.forResource("s2i/Jdbc.mustache",
+                CompiledTemplate.MUSTACHE_OPEN, CompiledTemplate.MUSTACHE_CLOSE));
+    }
+
+}
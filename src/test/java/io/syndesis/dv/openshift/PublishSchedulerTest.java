@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.openshift;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.syndesis.dv.openshift.BuildStatus.Status;
+
+public class PublishSchedulerTest {
+
+    private List<Runnable> started = new ArrayList<>();
+    private List<String> ran = new ArrayList<>();
+
+    private BuildStatus submit(PublishScheduler scheduler, String name, String namespace, int priority) {
+        BuildStatus work = new BuildStatus(name);
+        work.setNamespace(namespace);
+        work.setStatus(Status.CONFIGURING);
+        PublishConfiguration config = new PublishConfiguration();
+        config.setPriority(priority);
+        work.setPublishConfiguration(config);
+        scheduler.submit(work, () -> ran.add(name));
+        return work;
+    }
+
+    private void runNext() {
+        started.remove(0).run();
+    }
+
+    @Test public void testConcurrencyLimit() {
+        PublishScheduler scheduler = new PublishScheduler(started::add, 2, 0, PublishScheduler.Ordering.FIFO);
+        for (int i = 0; i < 5; i++) {
+            submit(scheduler, "dv" + i, "ns", 0);
+        }
+        assertEquals(2, started.size());
+        PublishQueueStatistics stats = scheduler.getStatistics();
+        assertEquals(3, stats.getPending());
+        assertEquals(2, stats.getRunning());
+        assertEquals(5, stats.getSubmitted());
+
+        while (!started.isEmpty()) {
+            runNext();
+        }
+        assertEquals(5, ran.size());
+        assertEquals("dv0", ran.get(0));
+        assertEquals("dv4", ran.get(4));
+        stats = scheduler.getStatistics();
+        assertEquals(0, stats.getPending());
+        assertEquals(5, stats.getCompleted());
+    }
+
+    @Test public void testLatestWins() {
+        PublishScheduler scheduler = new PublishScheduler(started::add, 1, 0, PublishScheduler.Ordering.FIFO);
+        submit(scheduler, "running", "ns", 0);
+        BuildStatus first = submit(scheduler, "dv", "ns", 0);
+        assertTrue(first.getStatusMessage().startsWith("Queued for configuration, position 1"));
+        BuildStatus second = submit(scheduler, "dv", "ns", 0);
+
+        assertEquals(Status.CANCELLED, first.getStatus());
+        assertEquals(Status.CONFIGURING, second.getStatus());
+        assertEquals(1, scheduler.getStatistics().getSuperseded());
+
+        runNext();
+        runNext();
+        assertTrue(started.isEmpty());
+        assertEquals(2, ran.size());
+    }
+
+    @Test public void testOnePerVirtualization() {
+        PublishScheduler scheduler = new PublishScheduler(started::add, 3, 0, PublishScheduler.Ordering.FIFO);
+        submit(scheduler, "dv", "ns", 0);
+        //the first is running, so this waits rather than replacing it
+        submit(scheduler, "dv", "ns", 0);
+        submit(scheduler, "other", "ns", 0);
+        assertEquals(2, started.size());
+        assertEquals(0, scheduler.getStatistics().getSuperseded());
+        runNext();
+        assertEquals(2, started.size());
+    }
+
+    @Test public void testResume() {
+        PublishScheduler scheduler = new PublishScheduler(started::add, 1, 0, PublishScheduler.Ordering.FIFO);
+        BuildStatus work = submit(scheduler, "dv", "ns", 0);
+        runNext();
+        submit(scheduler, "other", "ns", 0);
+        BuildStatus newer = submit(scheduler, "dv", "ns", 0);
+
+        //continuing the earlier work neither replaces the newer nor runs alongside it
+        scheduler.resume(work, () -> ran.add("resumed"));
+        assertEquals(Status.CONFIGURING, newer.getStatus());
+        assertEquals(0, scheduler.getStatistics().getSuperseded());
+        assertEquals(2, scheduler.getStatistics().getPending());
+
+        while (!started.isEmpty()) {
+            runNext();
+        }
+        assertEquals(4, ran.size());
+        assertEquals("resumed", ran.get(3));
+        assertEquals(4, scheduler.getStatistics().getCompleted());
+    }
+
+    @Test public void testPriorityAndNamespaceLimit() {
+        PublishScheduler scheduler = new PublishScheduler(started::add, 2, 1, PublishScheduler.Ordering.PRIORITY);
+        submit(scheduler, "a1", "a", 0);
+        submit(scheduler, "a2", "a", 0);
+        submit(scheduler, "a3", "a", 5);
+        submit(scheduler, "b1", "b", 0);
+        //one per namespace
+        assertEquals(2, started.size());
+
+        runNext();
+        runNext();
+        runNext();
+        runNext();
+        assertEquals(4, ran.size());
+        assertEquals("a1", ran.get(0));
+        assertEquals("b1", ran.get(1));
+        //higher priority first
+        assertEquals("a3", ran.get(2));
+        assertEquals("a2", ran.get(3));
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.openshift;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.Watcher.Action;
+import io.fabric8.openshift.api.model.Build;
+import io.fabric8.openshift.api.model.BuildBuilder;
+import io.fabric8.openshift.client.OpenShiftClient;
+
+public class ResourceCacheTest {
+
+    private ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+    private Set<String> changed = ConcurrentHashMap.newKeySet();
+    private ResourceCache cache;
+    private ResourceCache.Kind<Build> kind;
+    private AtomicReference<List<Build>> listed = new AtomicReference<>(Collections.emptyList());
+    private AtomicReference<Runnable> duringList = new AtomicReference<>();
+    private AtomicReference<Watcher<Build>> watcher = new AtomicReference<>();
+    private AtomicInteger watches = new AtomicInteger();
+
+    @Before public void setup() {
+        //the standard kinds can't be synchronized without openshift
+        OpenShiftClient client = Mockito.mock(OpenShiftClient.class, invocation -> {
+            throw new KubernetesClientException("offline");
+        });
+        cache = new ResourceCache(() -> client, executor, 60000, changed::add);
+        kind = cache.addKind("test builds", (c, ns) -> {
+            Runnable r = duringList.getAndSet(null);
+            if (r != null) {
+                r.run();
+            }
+            return listed.get();
+        }, (c, ns, w) -> {
+            watches.incrementAndGet();
+            watcher.set(w);
+            return Mockito.mock(Watch.class);
+        });
+    }
+
+    @After public void teardown() {
+        cache.stop();
+        executor.shutdownNow();
+    }
+
+    private Build get(String name) {
+        return cache.get(kind, "ns", name, () -> null);
+    }
+
+    private static Build build(String name, String resourceVersion) {
+        return new BuildBuilder().withNewMetadata().withName(name).withResourceVersion(resourceVersion)
+                .addToLabels(TeiidOpenShiftClient.APPLICATION_LABEL, "dv-a").endMetadata().build();
+    }
+
+    @Test public void testIsNewer() {
+        assertTrue(ResourceCache.isNewer(build("b", "10"), build("b", "9")));
+        assertFalse(ResourceCache.isNewer(build("b", "9"), build("b", "10")));
+        assertTrue(ResourceCache.isNewer(build("b", "x"), build("b", "10")));
+    }
+
+    @Test public void testFallbackWhenNotStarted() {
+        ResourceCache cache = new ResourceCache(() -> null, new ScheduledThreadPoolExecutor(1), 1000, name -> {});
+        assertFalse(cache.isSynced());
+
+        Build build = build("dv-a-1", "1");
+        assertSame(build, cache.get(cache.builds, "ns", "dv-a-1", () -> build));
+        List<Build> builds = cache.list(cache.builds, "ns", "dv-a", () -> Collections.singletonList(build));
+        assertEquals(1, builds.size());
+
+        ResourceCacheStatistics stats = cache.getStatistics();
+        assertFalse(stats.isSynced());
+        assertEquals(2, stats.getApiCalls());
+        assertEquals(0, stats.getApiCallsAvoided());
+        assertEquals(0, stats.getCachedResources());
+    }
+
+    @Test public void testEvents() {
+        listed.set(Arrays.asList(build("dv-a-1", "1")));
+        cache.start("ns");
+        assertEquals("1", get("dv-a-1").getMetadata().getResourceVersion());
+
+        watcher.get().eventReceived(Action.MODIFIED, build("dv-a-1", "3"));
+        assertEquals("3", get("dv-a-1").getMetadata().getResourceVersion());
+        assertEquals(Collections.singleton("dv-a"), changed);
+
+        //out of order
+        watcher.get().eventReceived(Action.MODIFIED, build("dv-a-1", "2"));
+        assertEquals("3", get("dv-a-1").getMetadata().getResourceVersion());
+
+        watcher.get().eventReceived(Action.ADDED, build("dv-a-2", "4"));
+        assertEquals(2, cache.list(kind, "ns", "dv-a", () -> null).size());
+        assertEquals(0, cache.list(kind, "ns", "dv-b", () -> null).size());
+
+        watcher.get().eventReceived(Action.DELETED, build("dv-a-1", "5"));
+        assertNull(get("dv-a-1"));
+
+        ResourceCacheStatistics stats = cache.getStatistics();
+        assertEquals(4, stats.getEvents());
+        assertEquals(1, stats.getCachedResources());
+        assertEquals(1, stats.getResyncs());
+    }
+
+    @Test public void testEventsDuringList() {
+        cache.start("ns");
+        watcher.get().eventReceived(Action.ADDED, build("dv-a-1", "1"));
+
+        //the list was made before the delete and add were received
+        listed.set(Arrays.asList(build("dv-a-1", "1")));
+        duringList.set(() -> {
+            watcher.get().eventReceived(Action.DELETED, build("dv-a-1", "2"));
+            watcher.get().eventReceived(Action.ADDED, build("dv-a-2", "3"));
+        });
+        cache.resync();
+
+        assertNull(get("dv-a-1"));
+        assertEquals("3", get("dv-a-2").getMetadata().getResourceVersion());
+
+        //the next list no longer has the deleted build
+        listed.set(Arrays.asList(build("dv-a-2", "3")));
+        cache.resync();
+        assertNull(get("dv-a-1"));
+        assertNotNull(get("dv-a-2"));
+    }
+
+    @Test public void testResync() {
+        listed.set(Arrays.asList(build("dv-a-1", "1"), build("dv-a-2", "2")));
+        cache.start("ns");
+
+        //a missed delete and update
+        listed.set(Arrays.asList(build("dv-a-2", "3")));
+        cache.resync();
+
+        assertNull(get("dv-a-1"));
+        assertEquals("3", get("dv-a-2").getMetadata().getResourceVersion());
+        assertEquals(1, watches.get());
+        assertEquals(2, cache.getStatistics().getResyncs());
+    }
+
+    @Test public void testEvictAndRestart() throws Exception {
+        listed.set(Arrays.asList(build("dv-a-1", "1")));
+        cache.start("ns");
+
+        cache.evict("dv-a");
+        Build build = build("dv-a-1", "2");
+        assertSame(build, cache.get(kind, "ns", "dv-a-1", () -> build));
+        assertEquals(1, cache.getStatistics().getApiCalls());
+
+        //not used until listed again
+        watcher.get().onClose(new KubernetesClientException("expired"));
+        List<Build> api = Collections.emptyList();
+        assertSame(api, cache.list(kind, "ns", "dv-a", () -> api));
+
+        for (int i = 0; i < 50 && watches.get() < 2; i++) {
+            Thread.sleep(100);
+        }
+        executor.submit(() -> {}).get();
+        assertEquals(2, watches.get());
+        assertEquals(1, cache.list(kind, "ns", "dv-a", () -> api).size());
+        assertEquals(1, cache.getStatistics().getWatchRestarts());
+    }
+
+}
@@ -18,15 +18,42 @@ package io.syndesis.dv.openshift;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
+import org.teiid.adminapi.impl.VDBMetaData;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.Watcher.Action;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.PodResource;
+import io.fabric8.openshift.api.model.Build;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.openshift.api.model.BuildBuilder;
+import io.fabric8.openshift.api.model.Route;
+import io.fabric8.openshift.client.OpenShiftClient;
 import io.syndesis.dv.datasources.DefaultSyndesisDataSource;
 import io.syndesis.dv.metadata.MetadataInstance;
+import io.syndesis.dv.model.DataVirtualization;
+import io.syndesis.dv.openshift.BuildStatus.Status;
 import io.syndesis.dv.server.DvConfigurationProperties;
 
 import org.mockito.Mockito;
 
+import io.syndesis.dv.KException;
 import io.syndesis.dv.RepositoryManager;
 
 public class TeiidOpenShiftClientTest {
@@ -63,4 +90,413 @@ public class TeiidOpenShiftClientTest {
         assertTrue(name.startsWith("syS_"));
     }
 
+    @Test public void testMonitorTriggeredByEvent() throws Exception {
+        MetadataInstance metadata = Mockito.mock(MetadataInstance.class);
+        RepositoryManager mock = Mockito.mock(MockRepositoryManager.class);
+
+        int jobs = 50;
+        Map<String, AtomicInteger> checks = new ConcurrentHashMap<>();
+        CountDownLatch initial = new CountDownLatch(jobs);
+        CountDownLatch triggered = new CountDownLatch(1);
+
+        TeiidOpenShiftClient client = new TeiidOpenShiftClient(metadata, new EncryptionComponent("blah"), new DvConfigurationProperties(), mock, null) {
+            {
+                //long enough that only an event could cause a second check
+                pollIntervalMillis = 60000;
+            }
+
+            @Override
+            protected void startWatches(String namespace) {
+                //no openshift - events are sent directly
+            }
+
+            @Override
+            protected boolean checkStatus(BuildStatus work) {
+                int count = checks.computeIfAbsent(work.getOpenShiftName(), k -> new AtomicInteger()).incrementAndGet();
+                if (count == 1) {
+                    initial.countDown();
+                    return true;
+                }
+                triggered.countDown();
+                return false;
+            }
+        };
+
+        for (int i = 0; i < jobs; i++) {
+            VDBMetaData vdb = new VDBMetaData();
+            vdb.setName("dv" + i);
+            PublishConfiguration config = new PublishConfiguration();
+            config.setVDB(vdb);
+            client.addToQueue("dv" + i, config);
+        }
+
+        assertTrue(initial.await(5, TimeUnit.SECONDS));
+
+        client.triggerCheck("dv25");
+
+        assertTrue(triggered.await(5, TimeUnit.SECONDS));
+        assertEquals(2, checks.get("dv25").get());
+        assertEquals(1, checks.get("dv24").get());
+        assertEquals(1, checks.get("dv26").get());
+
+        //no longer monitored, so further events are ignored
+        client.triggerCheck("dv25");
+        client.triggerCheck("unknown");
+        Thread.sleep(100);
+        assertEquals(2, checks.get("dv25").get());
+    }
+
+    @Test public void testVirtualizationStatusesLoadedOnce() throws Exception {
+        MetadataInstance metadata = Mockito.mock(MetadataInstance.class);
+        RepositoryManager mock = Mockito.mock(MockRepositoryManager.class);
+        AtomicInteger loads = new AtomicInteger();
+
+        TeiidOpenShiftClient client = new TeiidOpenShiftClient(metadata, new EncryptionComponent("blah"), new DvConfigurationProperties(), mock, null) {
+            {
+                statusRefreshMillis = 60000;
+            }
+
+            @Override
+            protected StatusResources loadStatusResources(OpenShiftClient openShiftClient, String namespace,
+                    String openShiftName) {
+                assertNull(openShiftName);
+                loads.incrementAndGet();
+                Build build = new BuildBuilder().withNewMetadata().withName("dv-a-1")
+                        .addToLabels("application", "dv-a").endMetadata()
+                        .withNewStatus().withPhase("Running").withMessage("building").endStatus().build();
+                return new StatusResources(namespace, Arrays.asList(build), Collections.emptyList(),
+                        Collections.emptyList(), Collections.emptyList());
+            }
+        };
+
+        for (int i = 0; i < 2; i++) {
+            Map<String, BuildStatus> statuses = client.getVirtualizationStatuses(
+                    Arrays.asList(new DataVirtualization("a"), new DataVirtualization("b")));
+            assertEquals(Status.BUILDING, statuses.get("a").getStatus());
+            assertEquals("dv-a-1", statuses.get("a").getName());
+            assertEquals(Status.NOTFOUND, statuses.get("b").getStatus());
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test public void testFinishedStatusUntilRefreshed() throws Exception {
+        MetadataInstance metadata = Mockito.mock(MetadataInstance.class);
+        RepositoryManager mock = Mockito.mock(MockRepositoryManager.class);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(1);
+        CountDownLatch refresh = new CountDownLatch(1);
+
+        TeiidOpenShiftClient client = new TeiidOpenShiftClient(metadata, new EncryptionComponent("blah"), new DvConfigurationProperties(), mock, null) {
+            {
+                //refreshed only when the work finishes
+                statusRefreshMillis = 60000;
+            }
+
+            @Override
+            protected void startWatches(String namespace) {
+                //no openshift
+            }
+
+            @Override
+            protected boolean checkStatus(BuildStatus work) {
+                work.setStatus(Status.RUNNING);
+                finished.countDown();
+                return false;
+            }
+
+            @Override
+            protected StatusResources loadStatusResources(OpenShiftClient openShiftClient, String namespace,
+                    String openShiftName) {
+                if (loads.incrementAndGet() == 1) {
+                    return new StatusResources(namespace, Collections.emptyList(), Collections.emptyList(),
+                            Collections.emptyList(), Collections.emptyList());
+                }
+                //the background refresh
+                try {
+                    assertTrue(refresh.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                Build build = new BuildBuilder().withNewMetadata().withName("dv-a-2")
+                        .addToLabels("application", "dv-a").endMetadata()
+                        .withNewStatus().withPhase("Running").withMessage("building").endStatus().build();
+                return new StatusResources(namespace, Arrays.asList(build), Collections.emptyList(),
+                        Collections.emptyList(), Collections.emptyList());
+            }
+        };
+
+        Map<String, BuildStatus> statuses = client.getVirtualizationStatuses(Arrays.asList(new DataVirtualization("a")));
+        assertEquals(Status.NOTFOUND, statuses.get("a").getStatus());
+
+        VDBMetaData vdb = new VDBMetaData();
+        vdb.setName("a");
+        PublishConfiguration config = new PublishConfiguration();
+        config.setVDB(vdb);
+        client.addToQueue("dv-a", config);
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+
+        //the cached resources predate the finished work
+        statuses = client.getVirtualizationStatuses(Arrays.asList(new DataVirtualization("a")));
+        assertEquals(Status.RUNNING, statuses.get("a").getStatus());
+
+        refresh.countDown();
+        for (int i = 0; i < 50 && statuses.get("a").getStatus() == Status.RUNNING; i++) {
+            Thread.sleep(100);
+            statuses = client.getVirtualizationStatuses(Arrays.asList(new DataVirtualization("a")));
+        }
+        assertEquals(Status.BUILDING, statuses.get("a").getStatus());
+        assertEquals(2, loads.get());
+    }
+
+    private TeiidOpenShiftClient monitoringClient() {
+        MetadataInstance metadata = Mockito.mock(MetadataInstance.class);
+        RepositoryManager mock = Mockito.mock(MockRepositoryManager.class);
+        return new TeiidOpenShiftClient(metadata, new EncryptionComponent("blah"), new DvConfigurationProperties(), mock, null) {
+            {
+                pollIntervalMillis = 60000;
+            }
+
+            @Override
+            protected void startWatches(String namespace) {
+                //no openshift
+            }
+
+            @Override
+            protected boolean checkStatus(BuildStatus work) {
+                //awaiting the build pod
+                return true;
+            }
+        };
+    }
+
+    private static Pod buildPod(boolean ready) {
+        return new PodBuilder().withNewMetadata().withName("dv-a-1-build").endMetadata()
+                .withNewStatus().withPhase("Running").addNewCondition().withType("Ready")
+                .withStatus(ready ? "True" : "False").endCondition().endStatus().build();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static OpenShiftClient podClient(Pod pod, AtomicReference<Watcher<Pod>> watcher, Watch watch) {
+        OpenShiftClient client = Mockito.mock(OpenShiftClient.class);
+        MixedOperation pods = Mockito.mock(MixedOperation.class);
+        PodResource resource = Mockito.mock(PodResource.class);
+        Mockito.when(client.pods()).thenReturn(pods);
+        Mockito.when(pods.withName("dv-a-1-build")).thenReturn(resource);
+        Mockito.when(resource.watch(Mockito.any())).thenAnswer(invocation -> {
+            if (watch == null) {
+                throw new KubernetesClientException("offline");
+            }
+            watcher.set(invocation.getArgument(0));
+            return watch;
+        });
+        Mockito.when(resource.get()).thenReturn(pod);
+        return client;
+    }
+
+    private static BuildStatus queue(TeiidOpenShiftClient client) {
+        VDBMetaData vdb = new VDBMetaData();
+        vdb.setName("a");
+        PublishConfiguration config = new PublishConfiguration();
+        config.setVDB(vdb);
+        BuildStatus work = client.addToQueue("dv-a", config);
+        work.setStatus(Status.CONFIGURING);
+        return work;
+    }
+
+    private static void awaitCompleted(TeiidOpenShiftClient client, long completed) throws InterruptedException {
+        for (int i = 0; i < 50 && client.getPublishQueueStatistics().getCompleted() < completed; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(completed, client.getPublishQueueStatistics().getCompleted());
+    }
+
+    @Test public void testPodReadyEvent() throws Exception {
+        TeiidOpenShiftClient client = monitoringClient();
+        BuildStatus work = queue(client);
+        AtomicReference<Watcher<Pod>> watcher = new AtomicReference<>();
+        Watch watch = Mockito.mock(Watch.class);
+        AtomicInteger runs = new AtomicInteger();
+
+        client.whenPodIsReady(work, podClient(buildPod(false), watcher, watch), "dv-a-1-build", 20, () -> {
+            runs.incrementAndGet();
+            client.completeConfiguration(work, "dv-a-1-build");
+        });
+        assertNotNull(watcher.get());
+        assertEquals(0, client.getPublishQueueStatistics().getSubmitted());
+
+        watcher.get().eventReceived(Action.MODIFIED, buildPod(false));
+        watcher.get().eventReceived(Action.MODIFIED, buildPod(true));
+        watcher.get().eventReceived(Action.MODIFIED, buildPod(true));
+        awaitCompleted(client, 1);
+
+        assertEquals(1, runs.get());
+        assertEquals(1, client.getPublishQueueStatistics().getSubmitted());
+        assertEquals(Status.BUILDING, work.getStatus());
+        assertEquals("dv-a-1-build", work.getPublishPodName());
+        assertFalse(client.isLogOpen("dv-a"));
+        Mockito.verify(watch).close();
+    }
+
+    @Test public void testPodReadyBeforeWatch() throws Exception {
+        TeiidOpenShiftClient client = monitoringClient();
+        BuildStatus work = queue(client);
+        AtomicReference<Watcher<Pod>> watcher = new AtomicReference<>();
+        Watch watch = Mockito.mock(Watch.class);
+        AtomicInteger runs = new AtomicInteger();
+
+        client.whenPodIsReady(work, podClient(buildPod(true), watcher, watch), "dv-a-1-build", 20, () -> {
+            runs.incrementAndGet();
+            client.completeConfiguration(work, "dv-a-1-build");
+        });
+        //an event for the already ready pod
+        watcher.get().eventReceived(Action.MODIFIED, buildPod(true));
+        awaitCompleted(client, 1);
+
+        assertEquals(1, runs.get());
+        assertEquals(Status.BUILDING, work.getStatus());
+        Mockito.verify(watch).close();
+    }
+
+    @Test public void testPodReadyTimeout() throws Exception {
+        TeiidOpenShiftClient client = monitoringClient();
+        BuildStatus work = queue(client);
+        AtomicReference<Watcher<Pod>> watcher = new AtomicReference<>();
+        Watch watch = Mockito.mock(Watch.class);
+
+        client.whenPodIsReady(work, podClient(buildPod(false), watcher, watch), "dv-a-1-build", 1,
+                () -> client.completeConfiguration(work, "dv-a-1-build"));
+        assertEquals(Status.CONFIGURING, work.getStatus());
+        awaitCompleted(client, 1);
+
+        //the build is monitored from here
+        assertEquals(Status.BUILDING, work.getStatus());
+        Mockito.verify(watch).close();
+    }
+
+    @Test public void testPodReadyReplaced() throws Exception {
+        TeiidOpenShiftClient client = monitoringClient();
+        BuildStatus work = queue(client);
+        BuildStatus newer = queue(client);
+
+        //the failed watch is logged, and the continuation proceeds immediately
+        client.whenPodIsReady(work, podClient(buildPod(false), new AtomicReference<>(), null), "dv-a-1-build", 20,
+                () -> client.completeConfiguration(work, "dv-a-1-build"));
+        awaitCompleted(client, 1);
+
+        assertEquals(Status.CONFIGURING, work.getStatus());
+        assertNull(work.getPublishPodName());
+        assertEquals(Status.CONFIGURING, newer.getStatus());
+        assertFalse(client.isLogOpen("dv-a"));
+    }
+
+    @Test public void testShutdown() throws Exception {
+        TeiidOpenShiftClient client = monitoringClient();
+        BuildStatus work = queue(client);
+        AtomicReference<Watcher<Pod>> watcher = new AtomicReference<>();
+        Watch watch = Mockito.mock(Watch.class);
+
+        client.whenPodIsReady(work, podClient(buildPod(false), watcher, watch), "dv-a-1-build", 1,
+                () -> client.completeConfiguration(work, "dv-a-1-build"));
+        client.shutdown();
+
+        //the pending timeout no longer runs
+        Thread.sleep(1500);
+        assertEquals(0, client.getPublishQueueStatistics().getSubmitted());
+        assertEquals(Status.CONFIGURING, work.getStatus());
+    }
+
+    /**
+     * Records the resources as they are created, the services after a delay
+     */
+    private TeiidOpenShiftClient exposingClient(List<String> created, String failing) {
+        MetadataInstance metadata = Mockito.mock(MetadataInstance.class);
+        RepositoryManager mock = Mockito.mock(MockRepositoryManager.class);
+        return new TeiidOpenShiftClient(metadata, new EncryptionComponent("blah"), new DvConfigurationProperties(), mock, null) {
+            private void create(String name, long delay) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                if (name.equals(failing)) {
+                    throw new KubernetesClientException("could not create " + name);
+                }
+                created.add(name);
+            }
+
+            @Override
+            protected Service createODataService(OpenShiftClient client, String namespace, String openShiftName,
+                    String type, int port) {
+                create(type + " service", 200);
+                return null;
+            }
+
+            @Override
+            protected Service createService(OpenShiftClient client, String namespace, String openShiftName,
+                    String type, int srcPort, int exposedPort) {
+                create(type + " service", "pg".equals(type) ? 0 : 200);
+                return null;
+            }
+
+            @Override
+            protected Route createRoute(OpenShiftClient client, String namespace, String openShiftName, String type) {
+                create(type + " route", 0);
+                return null;
+            }
+
+            @Override
+            protected void createSyndesisConnection(OpenShiftClient client, String namespace, String openshiftName,
+                    String virtualizationName) throws KException {
+                assertEquals("a", virtualizationName);
+                create("connection", 0);
+            }
+        };
+    }
+
+    private static BuildStatus deployed() {
+        BuildStatus work = new BuildStatus("dv-a");
+        work.setNamespace("ns");
+        work.setDataVirtualizationName("a");
+        work.setStatus(Status.DEPLOYING);
+        return work;
+    }
+
+    @Test public void testExposeDeployment() throws Exception {
+        List<String> created = Collections.synchronizedList(new ArrayList<>());
+        TeiidOpenShiftClient client = exposingClient(created, null);
+        BuildStatus work = deployed();
+
+        client.exposeDeployment(null, work);
+
+        assertEquals(Status.RUNNING, work.getStatus());
+        assertEquals(5, created.size());
+        //concurrently, but the route and connection after the services they refer to
+        assertEquals("pg service", created.get(0));
+        assertTrue(created.indexOf("odata route") > created.indexOf("odata service"));
+        assertTrue(created.indexOf("connection") > created.indexOf("jdbc service"));
+    }
+
+    @Test public void testExposeDeploymentErrors() throws Exception {
+        List<String> created = Collections.synchronizedList(new ArrayList<>());
+        TeiidOpenShiftClient client = exposingClient(created, "jdbc service");
+        BuildStatus work = deployed();
+
+        client.exposeDeployment(null, work);
+
+        assertEquals(Status.FAILED, work.getStatus());
+        assertTrue(work.getStatusMessage(), work.getStatusMessage().contains("create the jdbc service: could not create jdbc service"));
+        //the failure does not prevent the rest
+        assertTrue(created.containsAll(Arrays.asList("pg service", "odata service", "odata route", "connection")));
+
+        created.clear();
+        client = exposingClient(created, "connection");
+        work = deployed();
+        client.exposeDeployment(null, work);
+        assertEquals(Status.FAILED, work.getStatus());
+        assertEquals("Could not expose the deployment: create the syndesis connection: could not create connection",
+                work.getStatusMessage());
+        assertEquals(4, created.size());
+    }
+
 }
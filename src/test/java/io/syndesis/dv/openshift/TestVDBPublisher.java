@@ -19,33 +19,48 @@ import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
-import org.jboss.shrinkwrap.api.GenericArchive;
-import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.teiid.adminapi.Model;
+import org.teiid.adminapi.impl.ModelMetaData;
 import org.teiid.adminapi.impl.VDBMetaData;
 import org.teiid.adminapi.impl.VDBMetadataParser;
+import org.teiid.core.util.AccessibleByteArrayOutputStream;
 import org.teiid.core.util.ObjectConverterUtil;
 
 import io.fabric8.kubernetes.api.model.EnvVar;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.api.model.Secret;
+import io.fabric8.kubernetes.api.model.SecretBuilder;
+import io.fabric8.openshift.api.model.Build;
+import io.fabric8.openshift.api.model.BuildBuilder;
+import io.fabric8.openshift.api.model.DeploymentConfig;
+import io.fabric8.openshift.api.model.DeploymentConfigBuilder;
+import io.fabric8.openshift.client.OpenShiftClient;
 import io.syndesis.dv.KException;
 import io.syndesis.dv.datasources.DefaultSyndesisDataSource;
 import io.syndesis.dv.datasources.MySQLDefinition;
 import io.syndesis.dv.datasources.PostgreSQLDefinition;
 import io.syndesis.dv.metadata.MetadataInstance;
+import io.syndesis.dv.metadata.internal.DefaultMetadataInstance;
 import io.syndesis.dv.server.AuthHandlingFilter;
 import io.syndesis.dv.server.AuthHandlingFilter.OAuthCredentials;
 import io.syndesis.dv.server.DvConfigurationProperties;
+import io.syndesis.dv.utils.TarOutputStream;
 
 public class TestVDBPublisher {
 
@@ -137,6 +152,109 @@ public class TestVDBPublisher {
         assertEquals(ObjectConverterUtil.convertFileToString(new File("src/test/resources/generated-pom.xml")), pom);
     }
 
+    @Test
+    public void testDependencyFingerprint() throws Exception {
+        TeiidOpenShiftClient generator = testDataSetup();
+        PublishConfiguration config = new PublishConfiguration();
+
+        String fingerprint = TeiidOpenShiftClient.getDependencyFingerprint(generator.generatePomXml(vdb, false), config);
+        assertEquals(32, fingerprint.length());
+
+        //the view definitions are not part of the pom
+        ModelMetaData views = new ModelMetaData();
+        views.setName("views");
+        views.setModelType(Model.Type.VIRTUAL);
+        views.addSourceMetadata("DDL", "CREATE VIEW v AS SELECT 1");
+        vdb.addModel(views);
+        assertEquals(fingerprint, TeiidOpenShiftClient.getDependencyFingerprint(generator.generatePomXml(vdb, false), config));
+
+        assertNotEquals(fingerprint, TeiidOpenShiftClient.getDependencyFingerprint(generator.generatePomXml(vdb, true), config));
+    }
+
+    @Test
+    public void testDependencyFingerprintLabel() throws Exception {
+        Build build = new BuildBuilder().withNewMetadata().withName("dv-myservice-1")
+                .addToLabels("syndesis.io/dependency-fingerprint", "abc").endMetadata().build();
+        assertTrue(TeiidOpenShiftClient.hasDependencyFingerprint(build, "abc"));
+        assertFalse(TeiidOpenShiftClient.hasDependencyFingerprint(build, "abd"));
+        assertFalse(TeiidOpenShiftClient.hasDependencyFingerprint(null, "abc"));
+        build.getMetadata().setLabels(null);
+        assertFalse(TeiidOpenShiftClient.hasDependencyFingerprint(build, "abc"));
+    }
+
+    @Test
+    public void testReloadToken() throws Exception {
+        assertNull(TeiidOpenShiftClient.getReloadToken(null));
+        assertNull(TeiidOpenShiftClient.getReloadToken(new SecretBuilder().build()));
+        assertNull(TeiidOpenShiftClient.getReloadToken(new SecretBuilder().addToData("x", "eA==").build()));
+        Secret secret = new SecretBuilder().addToData("vdb.reload.token",
+                Base64.getEncoder().encodeToString("token".getBytes(StandardCharsets.UTF_8))).build();
+        assertEquals("token", TeiidOpenShiftClient.getReloadToken(secret));
+    }
+
+    @Test
+    public void testRedeployConflict() throws Exception {
+        TeiidOpenShiftClient generator = testDataSetup();
+        PublishConfiguration config = new PublishConfiguration();
+        config.setContainerMemorySize(1024);
+        config.addEnvironmentVariables(generator.getEnvironmentVariablesForVDBDataSources(vdb, config, "dv-myservice"));
+        config.addSecretVariables(generator.getSecretVariablesForVDBDataSources(vdb, config));
+
+        Secret secret = new SecretBuilder().addToData(config.getSecretVariables())
+                .addToData("vdb.reload.token", "dG9rZW4=").build();
+        DeploymentConfig dc = runningDeployment(generator, config, "1024Mi");
+
+        assertNull(generator.getRedeployConflict(dc, secret, config, "dv-myservice", 1000));
+
+        //deployed without the token
+        Secret noToken = new SecretBuilder().addToData(config.getSecretVariables()).build();
+        assertEquals("deployment does not support reloading", generator.getRedeployConflict(dc, noToken, config, "dv-myservice", 1000));
+
+        assertEquals("vdb is too large to be saved in a config map", generator.getRedeployConflict(dc, secret, config, "dv-myservice", 1 << 20));
+
+        assertEquals("memory or cpu has changed", generator.getRedeployConflict(
+                runningDeployment(generator, config, "512Mi"), secret, config, "dv-myservice", 1000));
+
+        Secret changed = new SecretBuilder().addToData(config.getSecretVariables())
+                .addToData("vdb.reload.token", "dG9rZW4=").addToData("spring.datasource.accounts-xyz.password", "b3RoZXI=").build();
+        assertEquals("secrets have changed", generator.getRedeployConflict(dc, changed, config, "dv-myservice", 1000));
+
+        config.addEnvironmentVariables(Arrays.asList(new EnvVar("OTHER", "value", null)));
+        assertEquals("environment variables have changed", generator.getRedeployConflict(dc, secret, config, "dv-myservice", 1000));
+    }
+
+    @Test
+    public void testRedeployFallsBackToBuild() throws Exception {
+        TeiidOpenShiftClient generator = testDataSetup();
+        PublishConfiguration config = new PublishConfiguration();
+        config.setVDB(vdb);
+        BuildStatus work = new BuildStatus("dv-myservice");
+        work.setNamespace("ns");
+        work.setPublishConfiguration(config);
+
+        OpenShiftClient client = Mockito.mock(OpenShiftClient.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(client.secrets().inNamespace("ns").withName("dv-myservice-secret").get())
+                .thenReturn(new SecretBuilder().addToData("x", "eA==").build());
+
+        assertFalse(generator.redeployVdb(client, work, null, new byte[10]));
+        //nothing was changed on the running deployment
+        Mockito.verify(client, Mockito.never()).configMaps();
+        Mockito.verify(client, Mockito.never()).pods();
+    }
+
+    private static DeploymentConfig runningDeployment(TeiidOpenShiftClient generator, PublishConfiguration config,
+            String memory) {
+        return new DeploymentConfigBuilder().withNewMetadata().withName("dv-myservice").endMetadata()
+                .withNewSpec().withNewTemplate().withNewSpec().addNewContainer().withName("dv-myservice")
+                    .addAllToEnv(config.getEnvironmentVariables())
+                    .addToEnv(generator.envFromSecret("dv-myservice-secret", "vdb.reload.token"))
+                    .withNewResources().addToLimits("memory", new Quantity(memory))
+                        .addToLimits("cpu", new Quantity(config.getCpuUnits())).endResources()
+                .endContainer().endSpec().endTemplate().endSpec()
+                .withNewStatus().addNewCondition().withType("Available").withStatus("True").endCondition().endStatus()
+                .build();
+    }
+
     @Test
     public void testGenerateDataSource() throws Exception {
         TeiidOpenShiftClient generator = testDataSetup();
@@ -147,14 +265,48 @@ public class TestVDBPublisher {
             if (!model.isSource()) {
                 continue;
             }
-            GenericArchive archive = ShrinkWrap.create(GenericArchive.class, "contents.tar");
-            generator.buildDataSourceBuilders(model, archive);
-            InputStream dsIs = archive.get("/src/main/java/io/integration/DataSourcesaccountsxyz.java").getAsset().openStream();
-            String ds = ObjectConverterUtil.convertToString(dsIs);
+            Map<String, String> dataSources = generator.buildDataSourceBuilders(model);
+            String ds = dataSources.get("src/main/java/io/integration/DataSourcesaccountsxyz.java");
             assertEquals(ObjectConverterUtil.convertFileToString(new File("src/test/resources/generated-ds.txt")), ds);
         }
     }
 
+    @Test
+    public void testWriteBuildContents() throws Exception {
+        TeiidOpenShiftClient generator = testDataSetup();
+
+        generator.normalizeDataSourceNames(vdb);
+        String pom = generator.generatePomXml(vdb, false);
+        Map<String, String> dataSources = generator.buildDataSourceBuilders(vdb.getModel("accounts"));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (TarOutputStream tar = new TarOutputStream(baos)) {
+            generator.writeBuildContents(tar, pom, vdb, TeiidOpenShiftClient.getVdbXmlSize(vdb), dataSources);
+        }
+        byte[] bytes = baos.toByteArray();
+        assertEquals(0, bytes.length % 512);
+
+        //read back the entries
+        Map<String, String> entries = new LinkedHashMap<>();
+        int pos = 0;
+        while (bytes[pos] != 0) {
+            String name = new String(bytes, pos, 100, StandardCharsets.UTF_8).trim();
+            int size = Integer.parseInt(new String(bytes, pos + 124, 11, StandardCharsets.US_ASCII), 8);
+            entries.put(name, new String(bytes, pos + 512, size, StandardCharsets.UTF_8));
+            pos += 512 + (size + 511) / 512 * 512;
+        }
+        assertEquals(bytes.length, pos + 1024);
+
+        assertEquals(pom, entries.get("pom.xml"));
+        AccessibleByteArrayOutputStream vdbContents = DefaultMetadataInstance.toBytes(vdb);
+        assertEquals(new String(vdbContents.getBuffer(), 0, vdbContents.getCount(), StandardCharsets.UTF_8),
+                entries.get("src/main/resources/myservice-vdb.xml"));
+        assertTrue(entries.containsKey("src/main/resources/application.properties"));
+        assertTrue(entries.containsKey("src/main/java/io/integration/Application.java"));
+        assertEquals(dataSources.get("src/main/java/io/integration/DataSourcesaccountsxyz.java"),
+                entries.get("src/main/java/io/integration/DataSourcesaccountsxyz.java"));
+    }
+
     @Test
     public void testGenerateDeploymentYML() throws Exception {
         TeiidOpenShiftClient generator = testDataSetup();
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.repository;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class CompactEncodingTest {
+
+    @Test
+    public void testString() {
+        assertNull(CompactEncoding.encodeString(null));
+        assertNull(CompactEncoding.decodeString(null));
+
+        byte[] small = CompactEncoding.encodeString("create view x as select 1");
+        assertEquals(CompactEncoding.UNCOMPRESSED, small[1]);
+        assertEquals("create view x as select 1", CompactEncoding.decodeString(small));
+        assertEquals("", CompactEncoding.decodeString(CompactEncoding.encodeString("")));
+
+        StringBuilder ddl = new StringBuilder("CREATE VIEW v (");
+        for (int i = 0; i < 500; i++) {
+            ddl.append("col").append(i).append(" string, \u00e9");
+        }
+        String value = ddl.toString();
+        byte[] large = CompactEncoding.encodeString(value);
+        assertEquals(CompactEncoding.DEFLATED, large[1]);
+        assertTrue(large.length < value.getBytes(StandardCharsets.UTF_8).length / 2);
+        assertEquals(value, CompactEncoding.decodeString(large));
+    }
+
+    @Test
+    public void testIncompressible() {
+        byte[] payload = new byte[1000];
+        new Random(1).nextBytes(payload);
+        byte[] encoded = CompactEncoding.encode(payload);
+        assertEquals(CompactEncoding.UNCOMPRESSED, encoded[1]);
+        assertArrayEquals(payload, CompactEncoding.decode(encoded));
+    }
+
+    @Test
+    public void testList() {
+        assertNull(CompactEncoding.encodeList(null));
+        assertEquals(Collections.emptyList(), CompactEncoding.decodeList(CompactEncoding.encodeList(Collections.emptyList())));
+
+        List<String> paths = Arrays.asList("connection=pgconn/schema=public/table=orders", "connection=x/table=y");
+        assertEquals(paths, CompactEncoding.decodeList(CompactEncoding.encodeList(paths)));
+
+        List<String> many = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            many.add("connection=pgconn/schema=public/table=t" + i);
+        }
+        byte[] encoded = CompactEncoding.encodeList(many);
+        assertEquals(CompactEncoding.DEFLATED, encoded[1]);
+        assertEquals(many, CompactEncoding.decodeList(encoded));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testUnknownVersion() {
+        CompactEncoding.decode(new byte[] {99, 0});
+    }
+
+}
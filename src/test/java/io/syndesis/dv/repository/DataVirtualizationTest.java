@@ -81,5 +81,7 @@ public class DataVirtualizationTest {
         entityManager.flush();
 
         assertEquals("foo", workspaceManagerImpl.findDataVirtualizationBySourceId("bar").getName());
+        assertTrue(workspaceManagerImpl.isDataVirtualizationSource("bar"));
+        assertFalse(workspaceManagerImpl.isDataVirtualizationSource("baz"));
     }
 }
@@ -18,7 +18,10 @@ package io.syndesis.dv.repository;
 
 import static org.junit.Assert.*;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.Random;
 
 import javax.persistence.PersistenceException;
 
@@ -28,6 +31,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.teiid.core.util.ObjectConverterUtil;
 
 import io.syndesis.dv.model.Edition;
 
@@ -83,4 +87,90 @@ public class EditionTest {
 
         assertEquals("hello world", new String(bytes, Charset.forName("UTF-8")));
     }
+
+    @Test
+    public void testExportStreams() throws Exception {
+        repositoryManagerImpl.createDataVirtualization("x");
+
+        Edition e1 = repositoryManagerImpl.createEdition("x");
+
+        assertNull(repositoryManagerImpl.openEditionExportInput(e1));
+
+        //spans several chunks
+        byte[] expected = new byte[ChunkedStreams.CHUNK_SIZE * 2 + 100];
+        new Random(1).nextBytes(expected);
+        try (OutputStream os = repositoryManagerImpl.openEditionExportOutput(e1)) {
+            os.write(expected, 0, 10);
+            os.write(expected[10]);
+            os.write(expected, 11, expected.length - 11);
+        }
+
+        entityManager.flush();
+
+        try (InputStream is = repositoryManagerImpl.openEditionExportInput(e1)) {
+            assertArrayEquals(expected, ObjectConverterUtil.convertToByteArray(is));
+        }
+
+        //replaced rather than appended
+        repositoryManagerImpl.saveEditionExport(e1, new byte[0]);
+        assertArrayEquals(new byte[0], repositoryManagerImpl.findEditionExport(e1));
+    }
+
+    @Test
+    public void testExportDeduplication() {
+        repositoryManagerImpl.createDataVirtualization("x");
+
+        Edition e1 = repositoryManagerImpl.createEdition("x");
+        Edition e2 = repositoryManagerImpl.createEdition("x");
+
+        repositoryManagerImpl.saveEditionExport(e1, "hello world".getBytes(Charset.forName("UTF-8")));
+        repositoryManagerImpl.saveEditionExport(e2, "hello world".getBytes(Charset.forName("UTF-8")));
+
+        entityManager.flush();
+
+        assertNotNull(e1.getExportBlobId());
+        assertEquals(e1.getExportBlobId(), e2.getExportBlobId());
+        assertEquals(1, count("export_blob"));
+        assertEquals(1, count("export_blob_chunk"));
+
+        //replacing removes content that is no longer referenced
+        repositoryManagerImpl.saveEditionExport(e1, "goodbye".getBytes(Charset.forName("UTF-8")));
+        repositoryManagerImpl.saveEditionExport(e2, "goodbye".getBytes(Charset.forName("UTF-8")));
+        entityManager.flush();
+        assertEquals(1, count("export_blob"));
+        assertEquals("goodbye", new String(repositoryManagerImpl.findEditionExport(e2), Charset.forName("UTF-8")));
+
+        repositoryManagerImpl.deleteDataVirtualization("x");
+        assertEquals(0, count("export_blob"));
+        assertEquals(0, count("export_blob_chunk"));
+    }
+
+    @Test
+    public void testExportDuplicateBlobs() {
+        repositoryManagerImpl.createDataVirtualization("x");
+
+        Edition e1 = repositoryManagerImpl.createEdition("x");
+        Edition e2 = repositoryManagerImpl.createEdition("x");
+
+        repositoryManagerImpl.saveEditionExport(e1, "hello world".getBytes(Charset.forName("UTF-8")));
+        entityManager.flush();
+
+        //simulate a concurrent writer of the same content that also kept its blob
+        String hash = (String)entityManager.getEntityManager().createNativeQuery("select hash from export_blob").getSingleResult();
+        entityManager.getEntityManager().createNativeQuery("insert into export_blob (id, hash, blob_size) values ('0', :hash, 11)")
+                .setParameter("hash", hash).executeUpdate();
+        entityManager.getEntityManager().createNativeQuery("insert into export_blob_chunk (blob_id, seq, data) select '0', seq, data from export_blob_chunk")
+                .executeUpdate();
+
+        repositoryManagerImpl.saveEditionExport(e2, "hello world".getBytes(Charset.forName("UTF-8")));
+        entityManager.flush();
+
+        assertEquals("0", e2.getExportBlobId());
+        assertEquals(2, count("export_blob"));
+        assertEquals("hello world", new String(repositoryManagerImpl.findEditionExport(e2), Charset.forName("UTF-8")));
+    }
+
+    private int count(String table) {
+        return ((Number)entityManager.getEntityManager().createNativeQuery("select count(*) from " + table).getSingleResult()).intValue();
+    }
 }
@@ -83,6 +83,30 @@ public class SourceSchemaTest {
         entityManager.flush();
     }
 
+    @Test
+    public void testFindDdl() {
+        SourceSchema s = workspaceManagerImpl.createSchema("foo", "bar", "create ...");
+        entityManager.flush();
+
+        assertEquals("create ...", workspaceManagerImpl.findSchemaDdlBySourceId("foo"));
+        assertEquals("bar", workspaceManagerImpl.findSchemaNameBySourceId("foo"));
+
+        //the same managed entity is returned within the transaction
+        assertSame(s, workspaceManagerImpl.findSchemaBySourceId("foo"));
+
+        s.setDdl("create other");
+        entityManager.flush();
+
+        //the version has changed, so the cached ddl is not used
+        assertEquals("create other", workspaceManagerImpl.findSchemaDdlBySourceId("foo"));
+
+        assertTrue(workspaceManagerImpl.deleteSchemaBySourceId("foo"));
+
+        assertNull(workspaceManagerImpl.findSchemaDdlBySourceId("foo"));
+        assertNull(workspaceManagerImpl.findSchemaNameBySourceId("foo"));
+        assertNull(workspaceManagerImpl.findSchemaBySourceId("foo"));
+    }
+
     @Test
     public void testAllNames() {
         workspaceManagerImpl.createSchema("foo", "bar", "create ...");
@@ -19,6 +19,10 @@ package io.syndesis.dv.repository;
 import static org.junit.Assert.*;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -29,6 +33,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import io.syndesis.dv.model.DataVirtualization;
 import io.syndesis.dv.model.ViewDefinition;
+import io.syndesis.dv.model.ViewDefinitionSummary;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
@@ -97,6 +102,52 @@ public class ViewDefinitionTest {
         assertEquals(Arrays.asList("x"), found.getSourcePaths());
     }
 
+    @Test
+    public void testSummaries() {
+        DataVirtualization dv = repositoryManager.createDataVirtualization("name");
+
+        ViewDefinition v = repositoryManager.createViewDefiniton(dv.getName(), "existing");
+        v.setDdl("create ...");
+        v.setDescription("something");
+        v.setParsable(true);
+
+        entityManager.flush();
+
+        List<? extends ViewDefinitionSummary> summaries = repositoryManager.findViewDefinitionSummaries(dv.getName());
+        assertEquals(1, summaries.size());
+        ViewDefinitionSummary summary = summaries.get(0);
+        assertFalse(summary instanceof ViewDefinition);
+        assertEquals(v.getId(), summary.getId());
+        assertEquals("existing", summary.getName());
+        assertEquals("something", summary.getDescription());
+        assertEquals("name", summary.getDataVirtualizationName());
+        assertTrue(summary.isParsable());
+    }
+
+    @Test
+    public void testBatchLookups() {
+        repositoryManager.createDataVirtualization("dv1");
+        repositoryManager.createDataVirtualization("dv2");
+        repositoryManager.createDataVirtualization("dv3");
+
+        repositoryManager.createViewDefiniton("dv1", "a");
+        repositoryManager.createViewDefiniton("dv1", "b");
+        repositoryManager.createViewDefiniton("dv2", "c");
+
+        entityManager.flush();
+
+        Map<String, Long> counts = repositoryManager.findViewDefinitionCounts(Arrays.asList("dv1", "dv2", "dv3"));
+        assertEquals(2, counts.size());
+        assertEquals(Long.valueOf(2), counts.get("dv1"));
+        assertEquals(Long.valueOf(1), counts.get("dv2"));
+        assertFalse(counts.containsKey("dv3"));
+
+        assertTrue(repositoryManager.findViewDefinitionCounts(Collections.emptyList()).isEmpty());
+
+        List<? extends ViewDefinitionSummary> summaries = repositoryManager.findViewDefinitionSummaries(Arrays.asList("dv1", "dv3"));
+        assertEquals(Arrays.asList("a", "b"), summaries.stream().map(ViewDefinitionSummary::getName).sorted().collect(Collectors.toList()));
+    }
+
     @Test
     public void testSameName() throws Exception {
         repositoryManager.createDataVirtualization("name");
@@ -125,4 +176,41 @@ public class ViewDefinitionTest {
         assertEquals(2, repositoryManager.deleteViewDefinitions("dv").intValue());
     }
 
+    @Test
+    public void testViewDependencies() throws Exception {
+        repositoryManager.createDataVirtualization("dv");
+        repositoryManager.createDataVirtualization("dv1");
+
+        ViewDefinition x = repositoryManager.createViewDefiniton("dv", "x");
+        x.addSourcePath("schema=source/table=a");
+        x.addSourcePath("schema=source/table=b");
+        repositoryManager.saveViewDependencies(x);
+
+        ViewDefinition y = repositoryManager.createViewDefiniton("dv1", "y");
+        y.addSourcePath("schema=source/table=b");
+        y.addSourcePath("invalid");
+        repositoryManager.saveViewDependencies(y);
+
+        entityManager.flush();
+
+        assertEquals(Arrays.asList("dv", "dv1"), repositoryManager.findDataVirtualizationNamesBySource("source").stream().sorted().collect(Collectors.toList()));
+        assertEquals(2, repositoryManager.findViewDefinitionsBySourceTable("source", "b").size());
+        assertEquals(1, repositoryManager.findViewDefinitionsBySourceTable("source", "a").size());
+
+        //replace
+        x.getSourcePaths().clear();
+        x.addSourcePath("schema=other/table=a");
+        repositoryManager.saveViewDependencies(x);
+
+        entityManager.flush();
+
+        assertTrue(repositoryManager.findViewDefinitionsBySourceTable("source", "a").isEmpty());
+        assertEquals(Arrays.asList("dv1"), repositoryManager.findDataVirtualizationNamesBySource("source"));
+
+        //removed with the view
+        repositoryManager.deleteViewDefinition(y.getId());
+
+        assertTrue(repositoryManager.findDataVirtualizationNamesBySource("source").isEmpty());
+    }
+
 }
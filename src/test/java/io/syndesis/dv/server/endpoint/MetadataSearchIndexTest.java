@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2013 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.syndesis.dv.server.endpoint;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.teiid.metadata.MetadataFactory;
+import org.teiid.metadata.Table;
+import org.teiid.query.metadata.SystemMetadata;
+
+import io.syndesis.dv.model.ViewDefinition;
+
+@SuppressWarnings("nls")
+public class MetadataSearchIndexTest {
+
+    @Test
+    public void testTokens() {
+        Map<String, Integer> tokens = new HashMap<>();
+        MetadataSearchIndex.addTokens("customerOrder_ID2 x", 1, tokens);
+        assertEquals(4, tokens.size());
+        assertTrue(tokens.keySet().containsAll(Arrays.asList("customer", "order", "id2", "x")));
+    }
+
+    @Test
+    public void testSearch() {
+        MetadataFactory mf = new MetadataFactory("x", 1, "source", SystemMetadata.getInstance().getRuntimeTypeMap(), new Properties(), null);
+        Table customers = mf.addTable("customers");
+        mf.addColumn("customer_id", "long", customers);
+        mf.addColumn("name", "string", customers);
+        Table orders = mf.addTable("orders");
+        mf.addColumn("orderDate", "date", orders);
+        mf.addColumn("customer_id", "long", orders).setAnnotation("the ordering customer");
+
+        MetadataSearchIndex index = new MetadataSearchIndex();
+        index.indexSource("source", mf.getSchema());
+
+        ViewDefinition view = new ViewDefinition("dv", "CustomerOrders");
+        view.setId("1");
+        index.indexVirtualization("dv", Arrays.asList(view));
+
+        RestSearchResults results = index.search("cust", null, 0, 10);
+        assertEquals(4, results.getTotal());
+        //the view and table names are ranked ahead of the columns
+        assertEquals("CustomerOrders", results.getResults().get(0).getName());
+        assertEquals(RestSearchResult.VIEW_TYPE, results.getResults().get(0).getType());
+        assertEquals("1", results.getResults().get(0).getId());
+        assertEquals("customers", results.getResults().get(1).getName());
+        assertEquals("connection=source/table=customers", results.getResults().get(1).getPath());
+
+        results = index.search("customer ord", null, 0, 10);
+        assertEquals(2, results.getTotal());
+        assertEquals("CustomerOrders", results.getResults().get(0).getName());
+        //matches through the annotation
+        assertEquals("customer_id", results.getResults().get(1).getName());
+        assertEquals("orders", results.getResults().get(1).getTableName());
+
+        results = index.search("cust", RestSearchResult.COLUMN_TYPE, 1, 1);
+        assertEquals(2, results.getTotal());
+        assertEquals(1, results.getResults().size());
+
+        //incremental updates
+        index.indexVirtualization("dv", Collections.emptyList());
+        assertEquals(3, index.search("cust", null, 0, 10).getTotal());
+        index.retainSources(Collections.emptyList());
+        assertEquals(0, index.search("cust", null, 0, 10).getTotal());
+    }
+
+    @Test
+    public void testRemoveSource() {
+        MetadataFactory mf = new MetadataFactory("x", 1, "source", SystemMetadata.getInstance().getRuntimeTypeMap(), new Properties(), null);
+        mf.addTable("customers");
+
+        MetadataSearchIndex index = new MetadataSearchIndex();
+        index.indexSource("source", mf.getSchema());
+        assertEquals(1, index.search("cust", null, 0, 10).getTotal());
+
+        index.removeSource("source");
+        assertEquals(0, index.search("cust", null, 0, 10).getTotal());
+
+        //reindexing the same schema after removal is not skipped
+        index.indexSource("source", mf.getSchema());
+        assertEquals(1, index.search("cust", null, 0, 10).getTotal());
+    }
+
+    @Test
+    public void testRestoreStale() {
+        MetadataSearchIndex index = new MetadataSearchIndex();
+        assertNull(index.takeStaleVirtualizations());
+        index.setVirtualizationsLoaded();
+
+        index.markStale("dv");
+        Collection<String> stale = index.takeStaleVirtualizations();
+        assertEquals(Arrays.asList("dv"), stale);
+        assertTrue(index.takeStaleVirtualizations().isEmpty());
+
+        //the reindex failed
+        index.restoreStale(stale);
+        assertEquals(Arrays.asList("dv"), index.takeStaleVirtualizations());
+    }
+
+    @Test
+    public void testLargeSearch() {
+        int tableCount = 10000;
+        MetadataFactory mf = new MetadataFactory("x", 1, "source", SystemMetadata.getInstance().getRuntimeTypeMap(), new Properties(), null);
+        for (int i = 0; i < tableCount; i++) {
+            Table table = mf.addTable("tbl" + i);
+            for (int j = 0; j < 10; j++) {
+                mf.addColumn("col" + j + "_" + i, "string", table);
+            }
+        }
+        MetadataSearchIndex index = new MetadataSearchIndex();
+        index.indexSource("source", mf.getSchema());
+
+        //warm up
+        index.search("col1 99", null, 0, 20);
+
+        long start = System.nanoTime();
+        RestSearchResults results = index.search("col1_999", null, 0, 20);
+        long elapsed = System.nanoTime() - start;
+        assertEquals(11, results.getTotal());
+        assertEquals("col1_999", results.getResults().get(0).getName());
+        assertEquals(20, index.search("tbl12", null, 0, 20).getResults().size());
+        //should be well under this even on a slow machine
+        assertTrue("took " + elapsed/1000000 + " ms", elapsed < TimeUnit.SECONDS.toNanos(1));
+    }
+
+}
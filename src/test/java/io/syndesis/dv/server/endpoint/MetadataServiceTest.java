@@ -18,7 +18,13 @@ package io.syndesis.dv.server.endpoint;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -26,6 +32,7 @@ import io.syndesis.dv.datasources.DefaultSyndesisDataSource;
 import io.syndesis.dv.metadata.TeiidVdb;
 import io.syndesis.dv.metadata.internal.DefaultMetadataInstance;
 import io.syndesis.dv.metadata.internal.TeiidDataSourceImpl;
+import io.syndesis.dv.model.ViewDefinition;
 import io.syndesis.dv.repository.RepositoryConfiguration;
 import io.syndesis.dv.repository.RepositoryManagerImpl;
 import io.syndesis.dv.rest.JsonMarshaller;
@@ -36,11 +43,18 @@ import io.syndesis.dv.server.endpoint.RestSchemaNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
 import org.teiid.adminapi.impl.VDBMetaData;
+import org.teiid.metadata.MetadataFactory;
+import org.teiid.metadata.Table;
+import org.teiid.query.metadata.SystemMetadata;
 
 import io.syndesis.dv.KException;
 
@@ -183,6 +197,218 @@ public class MetadataServiceTest {
                 "} ]", JsonMarshaller.marshall(nodes));
     }
 
+    @Test
+    public void testGetSchemaNodes() throws Exception {
+        DefaultSyndesisDataSource sds = DataVirtualizationServiceTest.createH2DataSource("source5");
+        metadataInstance.registerDataSource(sds);
+
+        repositoryManagerImpl.createSchema("someid", "source5",
+                "create foreign table tbl (col string) options (\"teiid_rel:fqn\" 'schema=s%20x/table=Bar');"
+                + "create foreign table tbl1 (col string) options (\"teiid_rel:fqn\" 'schema=s%20x/table=bar1');"
+                + "create foreign table tbl2 (col string) options (\"teiid_rel:fqn\" 'schema=s%20x/table=baz');"
+                + "create foreign table tbl3 (col string) options (\"teiid_rel:fqn\" 'schema=s%20x/table=foo');");
+
+        RestSchemaNodePage page = metadataService.getSchemaNodes("source5", null, null, null, 10);
+        assertEquals(1, page.getNodes().size());
+        assertEquals("schema=s+x", page.getNodes().get(0).getPath());
+        assertNull(page.getNextPageToken());
+
+        page = metadataService.getSchemaNodes("source5", "schema=s+x", "BA", null, 2);
+        assertEquals(Arrays.asList("Bar", "bar1"), page.getNodes().stream().map(RestSchemaNode::getName).collect(Collectors.toList()));
+        assertEquals("schema=s+x/table=Bar", page.getNodes().get(0).getPath());
+        assertEquals("tbl", page.getNodes().get(0).getTeiidName());
+        assertTrue(page.getNodes().get(0).getChildren().isEmpty());
+        assertNotNull(page.getNextPageToken());
+
+        page = metadataService.getSchemaNodes("source5", "schema=s+x", "BA", page.getNextPageToken(), 2);
+        assertEquals(Arrays.asList("baz"), page.getNodes().stream().map(RestSchemaNode::getName).collect(Collectors.toList()));
+        assertNull(page.getNextPageToken());
+
+        try {
+            metadataService.getSchemaNodes("source5", "schema=y", null, null, 10);
+            fail();
+        } catch (ResponseStatusException e) {
+            //no such parent
+            assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+        }
+
+        for (String[] malformed : new String[][] {{"schema", null}, {"schema=%zz", null}, {"/", null},
+                {"schema=s+x", "table"}, {"schema=s+x", "schema=s+x/table=Bar"}, {"schema=s+x", "/"}}) {
+            try {
+                metadataService.getSchemaNodes("source5", malformed[0], null, malformed[1], 10);
+                fail();
+            } catch (ResponseStatusException e) {
+                assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+            }
+        }
+    }
+
+    @Test
+    public void testGetAllConnectionSchemaNotModified() throws Exception {
+        DefaultSyndesisDataSource sds = DataVirtualizationServiceTest.createH2DataSource("source4");
+        metadataInstance.registerDataSource(sds);
+
+        repositoryManagerImpl.createSchema("someid", "source4",
+                "create foreign table tbl (col string) options (\"teiid_rel:fqn\" 'collection=bar');");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        List<RestSchemaNode> nodes = metadataService.getAllConnectionSchema(new ServletWebRequest(new MockHttpServletRequest("GET", "/"), response));
+        assertNotNull(nodes);
+        String etag = response.getHeader("ETag");
+        assertNotNull(etag);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("If-None-Match", etag);
+        response = new MockHttpServletResponse();
+        assertNull(metadataService.getAllConnectionSchema(new ServletWebRequest(request, response)));
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    public void testGenerateLargeSourceSchema() throws Exception {
+        int sourceCount = 20;
+        int tableCount = 10000;
+        List<Collection<Table>> sources = new ArrayList<>();
+        for (int i = 0; i < sourceCount; i++) {
+            MetadataFactory mf = new MetadataFactory("x", 1, "source" + i, SystemMetadata.getInstance().getRuntimeTypeMap(), new Properties(), null);
+            for (int j = 0; j < tableCount; j++) {
+                Table t = mf.addTable("tbl" + j);
+                t.setProperty(MetadataService.TABLE_OPTION_FQN, "schema=public/table=tbl" + j);
+            }
+            sources.add(mf.getSchema().getTables().values());
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < sourceCount; i++) {
+            List<RestSchemaNode> nodes = MetadataService.generateSourceSchema("source" + i, sources.get(i));
+            assertEquals(1, nodes.size());
+            assertEquals(tableCount, nodes.get(0).getChildren().size());
+        }
+        long elapsed = System.nanoTime() - start;
+        //should be well under this even on a slow machine
+        assertTrue("took " + elapsed/1000000 + " ms", elapsed < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    public void testRuntimeMetadataProjection() throws Exception {
+        MetadataFactory mf = new MetadataFactory("x", 1, "source", SystemMetadata.getInstance().getRuntimeTypeMap(), new Properties(), null);
+        Table t = mf.addTable("tbl");
+        mf.addColumn("col", "string", t);
+
+        RestSourceSchema names = new RestSourceSchema(mf.getSchema(), false);
+        assertEquals("{\n" +
+                "  \"name\" : \"source\",\n" +
+                "  \"tables\" : [ {\n" +
+                "    \"name\" : \"tbl\"\n" +
+                "  } ]\n" +
+                "}", JsonMarshaller.marshall(names));
+
+        RestSourceSchema full = new RestSourceSchema(mf.getSchema());
+        assertEquals(1, full.getTables()[0].getColumns().length);
+
+        RestSourceSchema unchanged = new RestSourceSchema("source", "abc");
+        assertNull(unchanged.getTables());
+        assertTrue(unchanged.getUnchanged());
+
+        String fingerprint = MetadataService.computeFingerprint(mf.getSchema());
+        assertEquals(fingerprint, MetadataService.computeFingerprint(mf.getSchema()));
+        mf.addColumn("col1", "string", t);
+        assertNotEquals(fingerprint, MetadataService.computeFingerprint(mf.getSchema()));
+
+        //names with the same String hash code
+        MetadataFactory aa = new MetadataFactory("x", 1, "source", SystemMetadata.getInstance().getRuntimeTypeMap(), new Properties(), null);
+        aa.addColumn("Aa", "string", aa.addTable("tbl"));
+        MetadataFactory bb = new MetadataFactory("x", 1, "source", SystemMetadata.getInstance().getRuntimeTypeMap(), new Properties(), null);
+        bb.addColumn("BB", "string", bb.addTable("tbl"));
+        assertNotEquals(MetadataService.computeFingerprint(aa.getSchema()), MetadataService.computeFingerprint(bb.getSchema()));
+
+        //the same names split differently
+        MetadataFactory ab = new MetadataFactory("x", 1, "source", SystemMetadata.getInstance().getRuntimeTypeMap(), new Properties(), null);
+        ab.addColumn("ab", "string", ab.addTable("t"));
+        MetadataFactory a = new MetadataFactory("x", 1, "source", SystemMetadata.getInstance().getRuntimeTypeMap(), new Properties(), null);
+        a.addColumn("b", "string", a.addTable("ta"));
+        assertNotEquals(MetadataService.computeFingerprint(ab.getSchema()), MetadataService.computeFingerprint(a.getSchema()));
+    }
+
+    @Test
+    public void testRuntimeMetadataDelta() throws Exception {
+        repositoryManagerImpl.createDataVirtualization("dvmeta");
+        ViewDefinition vd = repositoryManagerImpl.createViewDefiniton("dvmeta", "myview");
+        vd.setDdl("create view myview (col string) as select 'a'");
+        vd.setComplete(true);
+        vd.setParsable(true);
+
+        if (metadataInstance.getVdb(EditorService.PREVIEW_VDB) == null) {
+            metadataInstance.deploy(EditorServiceTest.dummyPreviewVdb());
+        }
+
+        //schema selection
+        RestViewSourceInfo info = metadataService.getRuntimeMetadata("dvmeta", MetadataService.FULL_PROJECTION, Arrays.asList("dvmeta"), null);
+        assertEquals(1, info.getSchemas().length);
+        RestSourceSchema schema = info.getSchemas()[0];
+        assertEquals("dvmeta", schema.getName());
+        assertEquals(1, schema.getTables().length);
+        assertEquals(1, schema.getTables()[0].getColumns().length);
+        assertNull(schema.getUnchanged());
+
+        info = metadataService.getRuntimeMetadata("dvmeta", MetadataService.FULL_PROJECTION, Arrays.asList("other"), null);
+        assertEquals(0, info.getSchemas().length);
+
+        //the version is content based, so it's stable across instances
+        String version = schema.getVersion();
+        assertNotNull(version);
+
+        //delta
+        info = metadataService.getRuntimeMetadata("dvmeta", MetadataService.FULL_PROJECTION, Arrays.asList("dvmeta"), Arrays.asList("dvmeta:" + version));
+        schema = info.getSchemas()[0];
+        assertTrue(schema.getUnchanged());
+        assertNull(schema.getTables());
+        assertEquals(version, schema.getVersion());
+
+        info = metadataService.getRuntimeMetadata("dvmeta", MetadataService.FULL_PROJECTION, Arrays.asList("dvmeta"), Arrays.asList("dvmeta:" + version + "0"));
+        schema = info.getSchemas()[0];
+        assertNull(schema.getUnchanged());
+        assertEquals(1, schema.getTables().length);
+
+        //versions only apply to the schema they were given for
+        info = metadataService.getRuntimeMetadata("dvmeta", MetadataService.FULL_PROJECTION, Arrays.asList("dvmeta"), Arrays.asList("other:" + version));
+        schema = info.getSchemas()[0];
+        assertNull(schema.getUnchanged());
+        assertEquals(1, schema.getTables().length);
+
+        try {
+            metadataService.getRuntimeMetadata("dvmeta", MetadataService.FULL_PROJECTION, null, Arrays.asList(version));
+            fail();
+        } catch (ResponseStatusException e) {
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+        }
+    }
+
+    @Test
+    public void testDeploySourceVdbWithoutDdl() throws Exception {
+        DefaultSyndesisDataSource sds = DataVirtualizationServiceTest.createH2DataSource("source6");
+        metadataInstance.registerDataSource(sds);
+        String loadVdbName = MetadataService.getWorkspaceSourceVdbName("source6") + "-load";
+
+        //no schema entry
+        metadataService.deploySourceVdb("source6", MetadataService.SourceDeploymentMode.MAKE_LIVE);
+        assertNull(metadataInstance.getVdb(loadVdbName));
+
+        repositoryManagerImpl.createSchema("someid", "source6", null);
+
+        //reuse requires existing ddl
+        metadataService.deploySourceVdb("source6", MetadataService.SourceDeploymentMode.REUSE_DDL);
+        assertNull(metadataInstance.getVdb(loadVdbName));
+        metadataService.deploySourceVdb("source6", MetadataService.SourceDeploymentMode.REPLACE_DDL);
+        assertNull(metadataInstance.getVdb(loadVdbName));
+
+        //a new connection should load the metadata
+        metadataService.deploySourceVdb("source6", MetadataService.SourceDeploymentMode.MAKE_LIVE);
+        assertNotNull(metadataInstance.getVdb(loadVdbName));
+
+        metadataInstance.undeployDynamicVdb(loadVdbName);
+    }
+
     @Test
     public void testPreviewQuery() throws Exception {
         QueryAttribute kqa = new QueryAttribute();
@@ -460,6 +460,81 @@ public class ServiceVdbGeneratorTest {
 
     }
 
+    @Test
+    public void shouldPruneUnreferencedSourceColumns() throws Exception {
+        TeiidVdb mock = Mockito.mock(TeiidVdb.class);
+        Mockito.when(mock.getName()).thenReturn("servicevdb");
+        ValidationResult result = new DefaultMetadataInstance().parse("create view v (ID, orderDate) as select 1, 2");
+        Table t = result.getSchema().getTables().firstEntry().getValue();
+        Table orders2 = schemas.get("pgconnection1").getTable("orders2");
+        t.setIncomingObjects(new ArrayList<>());
+        t.getIncomingObjects().add(orders2);
+        t.getIncomingObjects().add(orders2.getColumnByName("ID"));
+        t.getIncomingObjects().add(orders2.getColumnByName("orderDate"));
+        Mockito.when(mock.getSchema("servicevdb")).thenReturn(result.getSchema());
+
+        ViewDefinition state = new ViewDefinition("dvName", "v");
+        state.setComplete(true);
+        state.setDdl("create view v (ID, orderDate) as select 1, 2");
+
+        ServiceVdbGenerator vdbGenerator = new ServiceVdbGenerator(schemaFinder());
+        VDBMetaData serviceVdb = vdbGenerator.createServiceVdb("servicevdb", mock, Arrays.asList(state));
+
+        assertEquals(SET_NAMESPACE_STRING +
+                "CREATE FOREIGN TABLE orders2 (\n" +
+                "\tID long,\n" +
+                "\torderDate timestamp,\n" +
+                "\tPRIMARY KEY(ID)\n" +
+                ") OPTIONS (\"teiid_rel:fqn\" 'schema=public/table=orders2');", serviceVdb.getModel(MODEL_NAME).getSourceMetadataText().get(0));
+
+        //the preview metadata should not be modified
+        assertEquals(3, orders2.getColumns().size());
+    }
+
+    @Test
+    public void shouldRefreshServiceVdb_LargeSource() throws Exception {
+        int tableCount = 10000;
+        MetadataFactory mf = new MetadataFactory("x", 1, "bigschemamodel", SystemMetadata.getInstance().getRuntimeTypeMap(), new Properties(), null);
+        for (int i = 0; i < tableCount; i++) {
+            Table table = mf.addTable("tbl" + i);
+            mf.addColumn("ID", "long", table);
+            mf.addColumn("name", "string", table);
+        }
+        Schema bigSchema = mf.getSchema();
+
+        TeiidVdb mock = Mockito.mock(TeiidVdb.class);
+        Mockito.when(mock.getName()).thenReturn("servicevdb");
+        ValidationResult result = new DefaultMetadataInstance().parse("create view v (col) as select 1");
+        Table t = result.getSchema().getTables().firstEntry().getValue();
+        t.setIncomingObjects(new ArrayList<>());
+        //reference every 20th table
+        for (int i = 0; i < tableCount; i += 20) {
+            t.getIncomingObjects().add(bigSchema.getTable("tbl" + i));
+        }
+        Mockito.when(mock.getSchema("servicevdb")).thenReturn(result.getSchema());
+
+        ViewDefinition state = new ViewDefinition("dvName", "v");
+        state.setComplete(true);
+        state.setDdl("create view v (col) as select 1");
+
+        ServiceVdbGenerator vdbGenerator = new ServiceVdbGenerator(schemaFinder());
+
+        long start = System.nanoTime();
+        VDBMetaData serviceVdb = vdbGenerator.createServiceVdb("servicevdb", mock, Arrays.asList(state));
+        long elapsed = System.nanoTime() - start;
+
+        if (doPrint) {
+            System.out.println("\nServiceVdbGeneratorTest\n    service vdb from " + tableCount + " tables in " + elapsed/1000000 + " ms");
+        }
+
+        ModelMetaData sourceModel = serviceVdb.getModel("bigschemamodel");
+        assertNotNull(sourceModel);
+        String ddl = sourceModel.getSourceMetadataText().get(0);
+        assertEquals(tableCount/20, ddl.split("CREATE FOREIGN TABLE").length - 1);
+        assertTrue(ddl.contains("CREATE FOREIGN TABLE tbl9980 ("));
+        assertFalse(ddl.contains("CREATE FOREIGN TABLE tbl1 ("));
+    }
+
     @Test
     public void shouldRefreshServiceVdbPreviewNoViews() throws Exception {
         ServiceVdbGenerator vdbGenerator = new ServiceVdbGenerator(schemaFinder());